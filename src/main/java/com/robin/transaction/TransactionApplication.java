@@ -1,6 +1,13 @@
 package com.robin.transaction;
 
 import com.robin.transaction.config.AsyncExecutorProperties;
+import com.robin.transaction.config.IdempotencyProperties;
+import com.robin.transaction.config.ImportProperties;
+import com.robin.transaction.config.IngestProperties;
+import com.robin.transaction.config.RollupProperties;
+import com.robin.transaction.config.StoreProperties;
+import com.robin.transaction.config.TopAccountsProperties;
+import com.robin.transaction.config.WalProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -10,7 +17,9 @@ import org.springframework.scheduling.annotation.EnableAsync;
 @SpringBootApplication
 @EnableAsync
 @EnableCaching
-@EnableConfigurationProperties(AsyncExecutorProperties.class)
+@EnableConfigurationProperties({AsyncExecutorProperties.class, StoreProperties.class, WalProperties.class,
+        IdempotencyProperties.class, IngestProperties.class, ImportProperties.class, RollupProperties.class,
+        TopAccountsProperties.class})
 public class TransactionApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,15 @@
+package com.robin.transaction.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Idempotency-Key header properties
+ */
+@ConfigurationProperties(prefix = "transaction.idempotency")
+@Data
+public class IdempotencyProperties {
+
+    private long ttlSeconds = 86400;
+    private int maxKeys = 100000;
+}
@@ -0,0 +1,18 @@
+package com.robin.transaction.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * CSV file import properties
+ */
+@ConfigurationProperties(prefix = "transaction.import")
+@Data
+public class ImportProperties {
+
+    private String directory = "data/import";
+    private long chunkBytes = 64L * 1024 * 1024;
+    private int batchSize = 1000;
+    private int maxReportedRejects = 100;
+    private int parallelism = 0;
+}
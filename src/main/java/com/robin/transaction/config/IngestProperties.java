@@ -0,0 +1,15 @@
+package com.robin.transaction.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Bulk ingest properties
+ */
+@ConfigurationProperties(prefix = "transaction.ingest")
+@Data
+public class IngestProperties {
+
+    private int batchSize = 1000;
+    private int maxLineBytes = 64 * 1024;
+}
@@ -0,0 +1,16 @@
+package com.robin.transaction.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Time-bucket rollup properties: how many buckets of each granularity are kept
+ */
+@ConfigurationProperties(prefix = "transaction.rollup")
+@Data
+public class RollupProperties {
+
+    private int minuteBuckets = 1440;
+    private int hourBuckets = 720;
+    private int dayBuckets = 366;
+}
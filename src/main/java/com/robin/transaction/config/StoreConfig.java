@@ -0,0 +1,60 @@
+package com.robin.transaction.config;
+
+import com.robin.transaction.store.HeapTransactionStore;
+import com.robin.transaction.store.JournaledTransactionStore;
+import com.robin.transaction.store.OffHeapTransactionStore;
+import com.robin.transaction.store.TransactionStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration class for the transaction storage engine.
+ * Selects the store implementation from {@link StoreProperties#getType()} and, when
+ * {@link WalProperties#isEnabled()} is set, journals it in a write-ahead log with periodic snapshots.
+ */
+@Configuration
+public class StoreConfig {
+    @Autowired
+    private StoreProperties storeProperties;
+
+    @Autowired
+    private WalProperties walProperties;
+
+    /**
+     * Creates the transaction store.
+     * @return Configured TransactionStore instance
+     */
+    @Bean
+    public TransactionStore transactionStore() {
+        Duration dedupWindow = Duration.ofSeconds(storeProperties.getDedupWindowSeconds());
+        TransactionStore store = switch (storeProperties.getType()) {
+            case HEAP -> new HeapTransactionStore(
+                    dedupWindow,
+                    storeProperties.getDedupBuckets(),
+                    storeProperties.getDedupExpectedTransactions(),
+                    storeProperties.getDedupFilterBytes(),
+                    storeProperties.getDedupFilterFpp());
+            case OFF_HEAP -> new OffHeapTransactionStore(
+                    storeProperties.getOffHeapRowsPerChunk(),
+                    storeProperties.getOffHeapArenaChunkBytes(),
+                    dedupWindow,
+                    storeProperties.getDedupBuckets(),
+                    storeProperties.getDedupExpectedTransactions(),
+                    storeProperties.getDedupFilterBytes(),
+                    storeProperties.getDedupFilterFpp());
+        };
+        if (!walProperties.isEnabled()) {
+            return store;
+        }
+        return new JournaledTransactionStore(
+                store,
+                Path.of(walProperties.getDirectory()),
+                Duration.ofMillis(walProperties.getFlushIntervalMillis()),
+                walProperties.getBatchSize(),
+                Duration.ofSeconds(walProperties.getSnapshotIntervalSeconds()));
+    }
+}
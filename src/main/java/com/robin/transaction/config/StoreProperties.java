@@ -0,0 +1,30 @@
+package com.robin.transaction.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Transaction store properties
+ */
+@ConfigurationProperties(prefix = "transaction.store")
+@Data
+public class StoreProperties {
+
+    /**
+     * Storage engine: HEAP keeps transaction objects in concurrent maps,
+     * OFF_HEAP keeps fixed-width rows in direct memory.
+     */
+    public enum Type {
+        HEAP,
+        OFF_HEAP
+    }
+
+    private Type type = Type.HEAP;
+    private int offHeapRowsPerChunk = 65536;
+    private int offHeapArenaChunkBytes = 4 * 1024 * 1024;
+    private long dedupWindowSeconds = 300;
+    private int dedupBuckets = 10;
+    private long dedupExpectedTransactions = 1_000_000;
+    private long dedupFilterBytes = 4L * 1024 * 1024;
+    private double dedupFilterFpp = 0.01;
+}
@@ -0,0 +1,17 @@
+package com.robin.transaction.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Top accounts by volume properties: the window is kept as buckets of bucket-seconds each,
+ * and each bucket counts at most capacity accounts
+ */
+@ConfigurationProperties(prefix = "transaction.top-accounts")
+@Data
+public class TopAccountsProperties {
+
+    private long bucketSeconds = 60;
+    private int buckets = 60;
+    private int capacity = 1000;
+}
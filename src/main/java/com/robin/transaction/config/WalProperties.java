@@ -0,0 +1,18 @@
+package com.robin.transaction.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Write-ahead log properties
+ */
+@ConfigurationProperties(prefix = "transaction.wal")
+@Data
+public class WalProperties {
+
+    private boolean enabled = false;
+    private String directory = "data/wal";
+    private long flushIntervalMillis = 2;
+    private int batchSize = 512;
+    private long snapshotIntervalSeconds = 300;
+}
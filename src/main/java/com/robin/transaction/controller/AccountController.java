@@ -0,0 +1,64 @@
+package com.robin.transaction.controller;
+
+import com.robin.transaction.model.AccountBalance;
+import com.robin.transaction.model.AccountVolume;
+import com.robin.transaction.service.TransactionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Restful Service Controller for account level views of transactions.
+ */
+@RestController
+@RequestMapping("/api/accounts")
+public class AccountController {
+
+    private final TransactionService transactionService;
+
+    /**
+     * Constructor for AccountController.
+     *
+     * @param transactionService The transaction service to use
+     */
+    public AccountController(TransactionService transactionService) {
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * Retrieves the balance of an account.
+     *
+     * @param accountNumber The account
+     * @return ResponseEntity containing the balance, the credit and debit totals and the number of transactions
+     */
+    @GetMapping("/{accountNumber}/balance")
+    public CompletableFuture<ResponseEntity<AccountBalance>> getAccountBalance(@PathVariable String accountNumber) {
+        return transactionService.getAccountBalance(accountNumber)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Retrieves the accounts with the largest transaction volume (sum of amounts) over a recent window.
+     * Volumes are estimated from fixed-size summaries maintained as transactions are written, so the
+     * cost does not depend on the number of transactions or accounts; each volume comes with the most
+     * it can overstate the true sum by.
+     *
+     * @param windowMinutes Length of the window ending now, in minutes
+     * @param size          Maximum number of accounts to return
+     * @return ResponseEntity containing the accounts, largest volume first
+     */
+    @GetMapping("/top")
+    public CompletableFuture<ResponseEntity<List<AccountVolume>>> getTopAccounts(
+            @RequestParam(defaultValue = "60") long windowMinutes,
+            @RequestParam(defaultValue = "10") int size) {
+        return transactionService.getTopAccounts(Duration.ofMinutes(windowMinutes), size)
+                .thenApply(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,75 @@
+package com.robin.transaction.controller;
+
+import com.robin.transaction.model.DedupFilterStats;
+import com.robin.transaction.model.DescriptionIndexStats;
+import com.robin.transaction.model.ImportReport;
+import com.robin.transaction.service.TransactionCsvImporter;
+import com.robin.transaction.service.TransactionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Restful Service Controller for operational tasks and statistics.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final TransactionService transactionService;
+
+    private final TransactionCsvImporter csvImporter;
+
+    /**
+     * Constructor for AdminController.
+     *
+     * @param transactionService The transaction service to use
+     * @param csvImporter        The importer of CSV files
+     */
+    public AdminController(TransactionService transactionService, TransactionCsvImporter csvImporter) {
+        this.transactionService = transactionService;
+        this.csvImporter = csvImporter;
+    }
+
+    /**
+     * Imports a CSV file from the import directory on the server.
+     * Runs on the request thread, so long imports are not cut off by the async request timeout.
+     *
+     * @param file Name of the file, relative to the import directory
+     * @return ResponseEntity containing the import totals, throughput and the first rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ImportReport> importFile(@RequestParam String file) throws IOException {
+        return ResponseEntity.ok(csvImporter.importFile(file));
+    }
+
+    /**
+     * Retrieves the counters of the Bloom filters in front of the duplicate check.
+     * A high share of false positives among the filter hits means the filters need more memory.
+     *
+     * @return ResponseEntity containing the filter counters
+     */
+    @GetMapping("/dedup-filter")
+    public CompletableFuture<ResponseEntity<DedupFilterStats>> getDedupFilterStats() {
+        return transactionService.getDedupFilterStats()
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Retrieves the size of the full-text index of descriptions, with its estimated memory per transaction.
+     *
+     * @return ResponseEntity containing the index size
+     */
+    @GetMapping("/description-index")
+    public CompletableFuture<ResponseEntity<DescriptionIndexStats>> getDescriptionIndexStats() {
+        return transactionService.getDescriptionIndexStats()
+                .thenApply(ResponseEntity::ok);
+    }
+}
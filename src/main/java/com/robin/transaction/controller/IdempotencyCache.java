@@ -0,0 +1,132 @@
+package com.robin.transaction.controller;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, expiring map from client supplied idempotency keys to the result of the request they were first sent with.
+ * <p>
+ * The first request with a key runs; requests with the same key that arrive while it is in flight share its
+ * future, and later requests replay its result until the key expires, a fixed time after it was first seen.
+ * Failed requests are forgotten once they complete, so a retry after an error runs again. When more than the
+ * maximum number of keys are held, the oldest keys are evicted first.
+ *
+ * @param <T> The result type
+ */
+public class IdempotencyCache<T> {
+
+    /**
+     * Longest idempotency key accepted.
+     */
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    // Keys in insertion order; with one TTL for all keys this is also their expiry order
+    private final Queue<Entry<T>> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    /**
+     * Constructor for IdempotencyCache.
+     * @param ttl How long after a key was first seen its result is replayed
+     * @param maxEntries Maximum number of keys held
+     */
+    public IdempotencyCache(Duration ttl, int maxEntries) {
+        this(ttl, maxEntries, System::currentTimeMillis);
+    }
+
+    IdempotencyCache(Duration ttl, int maxEntries, LongSupplier clock) {
+        if (ttl.toMillis() < 1 || maxEntries < 1) {
+            throw new IllegalArgumentException("Idempotency TTL and maximum number of keys must be positive");
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs a request once per idempotency key.
+     * @param key The idempotency key sent by the client
+     * @param request The request to run if the key is new or expired
+     * @return The future of the request run for the key
+     * @throws IllegalArgumentException if the key is blank or too long
+     */
+    public CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> request) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        long now = clock.getAsLong();
+        Entry<T> created = new Entry<>(key, now + ttlMillis);
+        Entry<T> current = entries.compute(key, (k, existing) ->
+                existing == null || existing.expiresAt <= now ? created : existing);
+        if (current != created) {
+            return current.future;
+        }
+        order.add(created);
+        size.incrementAndGet();
+        evict(now);
+
+        CompletableFuture<T> future;
+        try {
+            future = request.get();
+        } catch (RuntimeException ex) {
+            future = CompletableFuture.failedFuture(ex);
+        }
+        future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                // Forget the key before failing the shared future, so a retry runs again and the key
+                // no longer counts towards the maximum
+                entries.remove(key, created);
+                if (order.remove(created)) {
+                    size.decrementAndGet();
+                }
+                created.future.completeExceptionally(ex);
+            } else {
+                created.future.complete(result);
+            }
+        });
+        return created.future;
+    }
+
+    /**
+     * Drops expired keys and, while over capacity, the oldest keys.
+     */
+    private void evict(long now) {
+        Entry<T> oldest;
+        while ((oldest = order.peek()) != null && (oldest.expiresAt <= now || size.get() > maxEntries)) {
+            if (order.remove(oldest)) {
+                size.decrementAndGet();
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    /**
+     * @return The number of keys held, including expired keys not evicted yet
+     */
+    int size() {
+        return size.get();
+    }
+
+    private static final class Entry<T> {
+        final String key;
+        final long expiresAt;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Entry(String key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,14 +1,35 @@
 package com.robin.transaction.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.robin.transaction.config.IdempotencyProperties;
+import com.robin.transaction.config.IngestProperties;
+import com.robin.transaction.model.BatchItemResult;
+import com.robin.transaction.model.CursorPage;
+import com.robin.transaction.model.MultiGetResult;
+import com.robin.transaction.model.RollupBucket;
+import com.robin.transaction.model.RollupGranularity;
 import com.robin.transaction.model.Transaction;
 import com.robin.transaction.service.TransactionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Restful Service Controller for managing transactions.
@@ -19,27 +40,93 @@ public class TransactionController {
 
     private final TransactionService transactionService;
 
+    // Results of create requests by Idempotency-Key header
+    private final IdempotencyCache<Transaction> idempotencyCache;
+
+    // Writes exported transactions back to back (each line ends itself), leaving flushing to the output buffers
+    private final ObjectWriter exportWriter;
+
+    // Parses and creates uploaded transactions in micro-batches
+    private final TransactionIngester ingester;
+
     /**
      * Constructor for TransactionController.
      *
-     * @param transactionService The transaction service to use
+     * @param transactionService    The transaction service to use
+     * @param idempotencyProperties How long and how many Idempotency-Key results are kept
+     * @param ingestProperties      Micro-batch and line size limits of bulk ingests
+     * @param objectMapper          The application's JSON mapper
      */
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, IdempotencyProperties idempotencyProperties,
+                                 IngestProperties ingestProperties, ObjectMapper objectMapper) {
         this.transactionService = transactionService;
+        this.ingester = new TransactionIngester(
+                objectMapper, transactionService::createTransactions, ingestProperties.getBatchSize(),
+                ingestProperties.getMaxLineBytes());
+        this.exportWriter = objectMapper.writerFor(Transaction.class)
+                .withRootValueSeparator("")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.idempotencyCache = new IdempotencyCache<>(
+                Duration.ofSeconds(idempotencyProperties.getTtlSeconds()),
+                idempotencyProperties.getMaxKeys());
     }
 
     /**
      * Creates a new transaction.
+     * A request with an Idempotency-Key header runs once per key: retries replay the original
+     * response without validating or storing the transaction again, and concurrent requests with
+     * the same key wait for the same result.
      *
-     * @param transaction The transaction to create
+     * @param idempotencyKey Optional client chosen key identifying retries of the same request
+     * @param transaction    The transaction to create
      * @return ResponseEntity containing the created transaction
      */
     @PostMapping
-    public CompletableFuture<ResponseEntity<Transaction>> createTransaction(@RequestBody Transaction transaction) {
-        return transactionService.createTransaction(transaction)
+    public CompletableFuture<ResponseEntity<Transaction>> createTransaction(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody Transaction transaction) {
+        CompletableFuture<Transaction> created = idempotencyKey == null
+                ? transactionService.createTransaction(transaction)
+                : idempotencyCache.execute(idempotencyKey, () -> transactionService.createTransaction(transaction));
+        return created.thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Creates a batch of transactions in one request.
+     * Each transaction gets its own outcome, in batch order: created, duplicate, or invalid with its validation errors.
+     *
+     * @param transactions The transactions to create
+     * @return ResponseEntity containing the outcome of each transaction
+     */
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<List<BatchItemResult>>> createTransactions(
+            @RequestBody List<Transaction> transactions) {
+        return transactionService.createTransactions(transactions)
                 .thenApply(ResponseEntity::ok);
     }
 
+    /**
+     * Creates transactions from a newline-delimited JSON upload, one transaction per line.
+     * The body is parsed as it arrives and created in micro-batches, so memory use depends on the
+     * batch size and not on the size of the upload; a line longer than the configured limit is
+     * rejected as invalid without being buffered. The response is newline-delimited JSON too:
+     * one line with the line number and errors of each line that was not created, written as its
+     * batch completes, then a summary line with the totals.
+     * Like the export, it runs on the request thread so large uploads are not cut off by the async request timeout.
+     *
+     * @param request  The request to read the transactions from
+     * @param response The response to write the rejected lines and the summary to
+     * @throws IOException if reading the upload or writing to the client fails
+     */
+    @PostMapping("/ingest")
+    public void ingestTransactions(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        try (InputStream in = request.getInputStream()) {
+            ingester.ingest(in, response.getOutputStream());
+        }
+    }
+
     /**
      * Retrieves a transaction by ID.
      *
@@ -52,6 +139,19 @@ public class TransactionController {
                 .thenApply(ResponseEntity::ok);
     }
 
+    /**
+     * Retrieves many transactions by ID in one request.
+     * Unknown IDs are returned in the missing list instead of failing the request.
+     *
+     * @param ids The IDs of the transactions to retrieve
+     * @return ResponseEntity containing the found transactions and the missing IDs
+     */
+    @PostMapping("/_mget")
+    public CompletableFuture<ResponseEntity<MultiGetResult>> getTransactionsByIds(@RequestBody List<String> ids) {
+        return transactionService.getTransactionsByIds(ids)
+                .thenApply(ResponseEntity::ok);
+    }
+
     /**
      * Updates an existing transaction.
      * @param
@@ -80,14 +180,172 @@ public class TransactionController {
     }
 
     /**
-     * Retrieves all transactions by pagination.
+     * Retrieves all transactions, or those in an optional time range, by pagination, most recent first.
+     * A page costs time proportional to its offset, as the pages before it are walked past, and the exact
+     * total of a time range costs a walk of the range; use the cursor form of this endpoint to read deep
+     * pages or large ranges in constant time per page.
      *
+     * @param from     Optional inclusive start of the time range (ISO date-time)
+     * @param to       Optional exclusive end of the time range (ISO date-time)
+     * @param count    Whether to count a time range for the total; if false, the total only tells
+     *                 whether more pages follow
      * @param pageable Pagination request
      * @return ResponseEntity containing a page of transactions
      */
     @GetMapping
-    public CompletableFuture<ResponseEntity<Page<Transaction>>> getAllTransactions(Pageable pageable) {
-        return transactionService.getAllTransactions(pageable)
+    public CompletableFuture<ResponseEntity<Page<Transaction>>> getAllTransactions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "true") boolean count,
+            Pageable pageable) {
+        return transactionService.getAllTransactions(from, to, pageable, count)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Exports transactions as newline-delimited JSON, most recent first.
+     * Transactions are written straight from the time-ordered index to the response through fixed-size
+     * buffers, so memory use does not depend on the number of transactions. The writes block while the
+     * client is not reading, which holds back the scan. The export runs on the request thread rather
+     * than asynchronously, so it is not cut off by the async request timeout.
+     *
+     * @param from     Optional inclusive start of the time range (ISO date-time)
+     * @param to       Optional exclusive end of the time range (ISO date-time)
+     * @param response The response to write to
+     * @throws IOException if writing to the client fails
+     */
+    @GetMapping("/export")
+    public void exportTransactions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            HttpServletResponse response) throws IOException {
+        try (Stream<Transaction> transactions = transactionService.streamTransactions(from, to)) {
+            response.setContentType("application/x-ndjson");
+            response.setCharacterEncoding("UTF-8");
+            try (JsonGenerator generator = exportWriter.createGenerator(response.getOutputStream())) {
+                for (Transaction transaction : (Iterable<Transaction>) transactions::iterator) {
+                    exportWriter.writeValue(generator, transaction);
+                    generator.writeRaw('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves transactions, optionally limited to one account and to a time range, by cursor (keyset) pagination.
+     * Pass an empty cursor for the first page and the returned next cursor for the following ones.
+     * Each page is read straight from the time-ordered or the per-account index, so narrow ranges cost the
+     * same over any history.
+     *
+     * @param cursor        Opaque cursor of the page to read
+     * @param size          Maximum number of transactions per page
+     * @param accountNumber Optional account to list transactions for
+     * @param from          Optional inclusive start of the time range (ISO date-time)
+     * @param to            Optional exclusive end of the time range (ISO date-time)
+     * @return ResponseEntity containing the transactions and the next cursor
+     */
+    @GetMapping(params = "cursor")
+    public CompletableFuture<ResponseEntity<CursorPage<Transaction>>> getTransactions(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String accountNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        CompletableFuture<CursorPage<Transaction>> page = accountNumber == null
+                ? transactionService.getTransactions(from, to, cursor, size)
+                : transactionService.getTransactionsByAccount(accountNumber, from, to, cursor, size);
+        return page.thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Retrieves the transactions with an amount in a range, optionally limited to a time range,
+     * by cursor (keyset) pagination, most recent first.
+     * The query is served from whichever of the amount and the time-ordered index holds fewer
+     * candidates, so its cost depends on the size of the smaller range, not on the number of transactions.
+     *
+     * @param minAmount Optional inclusive lower bound of the amount
+     * @param maxAmount Optional inclusive upper bound of the amount
+     * @param from      Optional inclusive start of the time range (ISO date-time)
+     * @param to        Optional exclusive end of the time range (ISO date-time)
+     * @param cursor    Optional opaque cursor of the page to read
+     * @param size      Maximum number of transactions per page
+     * @return ResponseEntity containing the transactions and the next cursor
+     */
+    @GetMapping("/amount-range")
+    public CompletableFuture<ResponseEntity<CursorPage<Transaction>>> getTransactionsByAmount(
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return transactionService.getTransactionsByAmount(minAmount, maxAmount, from, to, cursor, size)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Searches transaction descriptions for words, most recently stored or changed first, by cursor pagination.
+     * Words are matched whole, ignoring case and punctuation.
+     *
+     * @param q      The words to search for
+     * @param match  {@code all} (default) for descriptions containing every word, {@code any} for any word
+     * @param cursor Optional opaque cursor of the page to read
+     * @param size   Maximum number of transactions per page
+     * @return ResponseEntity containing the transactions and the next cursor
+     */
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<CursorPage<Transaction>>> searchTransactions(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "all") String match,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        if (!"all".equalsIgnoreCase(match) && !"any".equalsIgnoreCase(match)) {
+            throw new IllegalArgumentException("Match must be either all or any");
+        }
+        return transactionService.searchTransactions(q, "all".equalsIgnoreCase(match), cursor, size)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Retrieves the count and sum by type of the transactions per minute, hour or day.
+     * The buckets are pre-aggregated as transactions are written, so the cost depends on the
+     * number of buckets returned, not on the number of transactions. Only the most recent
+     * buckets of each granularity are kept, as configured.
+     *
+     * @param granularity {@code minute} (default), {@code hour} or {@code day}
+     * @param from        Optional inclusive start of the time range (ISO date-time)
+     * @param to          Optional exclusive end of the time range (ISO date-time)
+     * @return ResponseEntity containing the non-empty buckets overlapping the range, oldest first
+     */
+    @GetMapping("/rollups")
+    public CompletableFuture<ResponseEntity<List<RollupBucket>>> getRollups(
+            @RequestParam(defaultValue = "minute") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return transactionService.getRollups(RollupGranularity.parse(granularity), from, to)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Retrieves the transactions of one account by pagination.
+     * A time range is only supported with cursor pagination: pass an empty cursor for the first page.
+     *
+     * @param accountNumber The account to list transactions for
+     * @param from          Not supported here; rejected if present
+     * @param to            Not supported here; rejected if present
+     * @param pageable      Pagination request
+     * @return ResponseEntity containing a page of the account's transactions
+     */
+    @GetMapping(params = {"accountNumber", "!cursor"})
+    public CompletableFuture<ResponseEntity<Page<Transaction>>> getTransactionsByAccount(
+            @RequestParam String accountNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            Pageable pageable) {
+        if (from != null || to != null) {
+            throw new IllegalArgumentException("A time range on an account requires cursor pagination");
+        }
+        return transactionService.getTransactionsByAccount(accountNumber, pageable)
                 .thenApply(ResponseEntity::ok);
     }
 }
\ No newline at end of file
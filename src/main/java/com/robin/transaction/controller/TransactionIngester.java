@@ -0,0 +1,270 @@
+package com.robin.transaction.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.robin.transaction.model.BatchItemResult;
+import com.robin.transaction.model.IngestLineResult;
+import com.robin.transaction.model.IngestSummary;
+import com.robin.transaction.model.Transaction;
+import com.robin.transaction.service.TransactionService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Ingests newline-delimited JSON transactions in micro-batches.
+ * <p>
+ * The body is parsed one line at a time into batches of at most the batch size. Each full batch is
+ * handed to the batch create operation, and the next batch is parsed while it runs; a batch is only
+ * handed over once the previous one has completed, so duplicates across batches are resolved in line
+ * order. Lines are read as bytes into a buffer of the line size limit, and a longer line is skipped
+ * to its end and reported as invalid, so memory is bounded by two batches and one line, whatever the
+ * size of the upload.
+ * <p>
+ * As each batch completes, one line is written per rejected input line, in line order, followed by
+ * a summary line once the body has been read.
+ */
+class TransactionIngester {
+
+    private final ObjectReader lineReader;
+    private final ObjectWriter resultWriter;
+    private final Function<List<Transaction>, CompletableFuture<List<BatchItemResult>>> createBatch;
+    private final int batchSize;
+    private final int maxLineBytes;
+
+    /**
+     * @param objectMapper The application's JSON mapper
+     * @param createBatch The batch create operation
+     * @param batchSize Maximum number of lines per batch
+     * @param maxLineBytes Maximum length of a line in bytes, without its line break
+     */
+    TransactionIngester(ObjectMapper objectMapper,
+                        Function<List<Transaction>, CompletableFuture<List<BatchItemResult>>> createBatch,
+                        int batchSize, int maxLineBytes) {
+        if (batchSize < 1 || batchSize > TransactionService.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException(
+                    "Ingest batch size must be 1 to " + TransactionService.MAX_BATCH_SIZE);
+        }
+        if (maxLineBytes < 1) {
+            throw new IllegalArgumentException("Ingest line size limit must be positive");
+        }
+        this.lineReader = objectMapper.readerFor(Transaction.class);
+        this.resultWriter = objectMapper.writer()
+                .withRootValueSeparator("")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.createBatch = createBatch;
+        this.batchSize = batchSize;
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    /**
+     * Reads the body to the end and writes the rejected lines and the summary.
+     * @param in The request body, in UTF-8
+     * @param out The response body
+     * @return The totals of the ingest
+     * @throws IOException if reading the request or writing the response fails
+     */
+    IngestSummary ingest(InputStream in, OutputStream out) throws IOException {
+        try (JsonGenerator generator = resultWriter.createGenerator(out)) {
+            Totals totals = new Totals();
+            Batch inFlight = null;
+            Batch batch = new Batch();
+            Lines lines = new Lines(in, maxLineBytes);
+            long lineNumber = 0;
+            while (lines.next()) {
+                lineNumber++;
+                if (lines.tooLong) {
+                    batch.reject(lineNumber, Map.of("line", "Line is longer than " + maxLineBytes + " bytes"));
+                } else if (lines.isBlank()) {
+                    continue;
+                } else {
+                    batch.add(lineNumber, lines.line, lines.length);
+                }
+                if (batch.size() == batchSize) {
+                    complete(inFlight, generator, totals);
+                    inFlight = batch.submit();
+                    batch = new Batch();
+                }
+            }
+            complete(inFlight, generator, totals);
+            complete(batch.submit(), generator, totals);
+
+            IngestSummary summary = new IngestSummary(totals.lines, totals.created, totals.duplicates, totals.invalid);
+            write(generator, summary);
+            return summary;
+        }
+    }
+
+    /**
+     * Waits for a batch and writes its rejected lines.
+     */
+    private void complete(Batch batch, JsonGenerator generator, Totals totals) throws IOException {
+        if (batch == null) {
+            return;
+        }
+        List<BatchItemResult> results;
+        try {
+            results = batch.results.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        for (int i = 0; i < batch.lines.size(); i++) {
+            totals.lines++;
+            long lineNumber = batch.lines.get(i);
+            Map<String, String> parseErrors = batch.parseErrors.get(i);
+            if (parseErrors != null) {
+                totals.invalid++;
+                write(generator, new IngestLineResult(lineNumber, BatchItemResult.Status.INVALID, parseErrors));
+                continue;
+            }
+            BatchItemResult result = results.get(batch.parsedIndex.get(i));
+            switch (result.status()) {
+                case CREATED -> totals.created++;
+                case DUPLICATE -> {
+                    totals.duplicates++;
+                    write(generator, new IngestLineResult(lineNumber, result.status(), null));
+                }
+                case INVALID -> {
+                    totals.invalid++;
+                    write(generator, new IngestLineResult(lineNumber, result.status(), result.errors()));
+                }
+            }
+        }
+        // Send the results of each batch as it completes
+        generator.flush();
+    }
+
+    private void write(JsonGenerator generator, Object value) throws IOException {
+        resultWriter.writeValue(generator, value);
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Lines of one micro-batch: the parsed transactions, and for each line either its
+     * position among them or the error that kept it from being parsed.
+     */
+    private final class Batch {
+        final List<Long> lines = new ArrayList<>();
+        final List<Integer> parsedIndex = new ArrayList<>();
+        final List<Map<String, String>> parseErrors = new ArrayList<>();
+        final List<Transaction> parsed = new ArrayList<>();
+        CompletableFuture<List<BatchItemResult>> results;
+
+        void add(long lineNumber, byte[] line, int length) throws IOException {
+            Map<String, String> error;
+            try {
+                Transaction transaction = lineReader.readValue(line, 0, length);
+                if (transaction != null) {
+                    lines.add(lineNumber);
+                    parsedIndex.add(parsed.size());
+                    parseErrors.add(null);
+                    parsed.add(transaction);
+                    return;
+                }
+                error = Map.of("transaction", "Transaction cannot be null");
+            } catch (JsonProcessingException e) {
+                error = Map.of("json", "Malformed JSON: " + e.getOriginalMessage());
+            }
+            reject(lineNumber, error);
+        }
+
+        void reject(long lineNumber, Map<String, String> error) {
+            lines.add(lineNumber);
+            parsedIndex.add(-1);
+            parseErrors.add(error);
+        }
+
+        int size() {
+            return lines.size();
+        }
+
+        Batch submit() {
+            results = parsed.isEmpty() ? CompletableFuture.completedFuture(List.of()) : createBatch.apply(parsed);
+            return this;
+        }
+    }
+
+    /**
+     * Reads the lines of a body into a buffer of at most the line size limit. The rest of a longer line
+     * is skipped.
+     */
+    private static final class Lines {
+        private final InputStream in;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+
+        final byte[] line;
+        int length;
+        boolean tooLong;
+
+        Lines(InputStream in, int maxLineBytes) {
+            this.in = in;
+            this.line = new byte[maxLineBytes];
+        }
+
+        /**
+         * Reads the next line, without its line break.
+         * @return false at the end of the body
+         */
+        boolean next() throws IOException {
+            length = 0;
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return read;
+                    }
+                }
+                read = true;
+                int end = position;
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                int copied = Math.min(end - position, line.length - length);
+                System.arraycopy(buffer, position, line, length, copied);
+                length += copied;
+                tooLong |= copied < end - position;
+                position = end;
+                if (end < limit) {
+                    position++;
+                    return true;
+                }
+            }
+        }
+
+        boolean isBlank() {
+            for (int i = 0; i < length; i++) {
+                if (line[i] != ' ' && line[i] != '\t' && line[i] != '\r') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Totals {
+        long lines;
+        long created;
+        long duplicates;
+        long invalid;
+    }
+}
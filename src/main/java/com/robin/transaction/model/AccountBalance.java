@@ -0,0 +1,16 @@
+package com.robin.transaction.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Running totals of one account's stored transactions.
+ *
+ * @param accountNumber The account
+ * @param balance       Credits minus debits
+ * @param credits       Sum of the CREDIT transactions
+ * @param debits        Sum of the DEBIT transactions
+ * @param count         Number of stored transactions
+ */
+public record AccountBalance(String accountNumber, BigDecimal balance, BigDecimal credits, BigDecimal debits,
+                             long count) {
+}
@@ -0,0 +1,14 @@
+package com.robin.transaction.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Estimated transaction volume of one account over a recent window.
+ *
+ * @param accountNumber The account
+ * @param volume        Estimated sum of the account's amounts in the window, never below the true sum
+ *                      while transactions are only added
+ * @param error         Most the estimate can exceed the true sum by
+ */
+public record AccountVolume(String accountNumber, BigDecimal volume, BigDecimal error) {
+}
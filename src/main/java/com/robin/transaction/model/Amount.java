@@ -0,0 +1,54 @@
+package com.robin.transaction.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point amount used inside the storage engine.
+ * The value is held as a long count of minor units at a fixed scale of {@value #SCALE}
+ * decimal places, so amounts compare, hash and add up as plain longs regardless of how
+ * they were written. The original scale is kept so the amount converts back to the
+ * same {@link BigDecimal} ("10.00" stays "10.00").
+ *
+ * @param minorUnits The amount in units of 10^-{@value #SCALE}
+ * @param scale      The scale of the original BigDecimal
+ */
+public record Amount(long minorUnits, byte scale) implements Comparable<Amount> {
+
+    /**
+     * Number of decimal places of a minor unit.
+     */
+    public static final int SCALE = 4;
+
+    /**
+     * Converts a BigDecimal into its fixed-point form.
+     * @param value The amount to convert
+     * @return The fixed-point amount
+     * @throws IllegalArgumentException if the value has more than {@value #SCALE} significant decimal places
+     *                                  or does not fit a long count of minor units
+     */
+    public static Amount of(BigDecimal value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Amount cannot be null");
+        }
+        if (value.scale() != (byte) value.scale()) {
+            throw new IllegalArgumentException("Amount cannot be represented without losing precision: " + value);
+        }
+        try {
+            return new Amount(value.movePointRight(SCALE).longValueExact(), (byte) value.scale());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount cannot be represented without losing precision: " + value, e);
+        }
+    }
+
+    /**
+     * @return The amount as a BigDecimal with its original scale
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE).setScale(scale);
+    }
+
+    @Override
+    public int compareTo(Amount other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+}
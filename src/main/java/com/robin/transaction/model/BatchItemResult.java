@@ -0,0 +1,34 @@
+package com.robin.transaction.model;
+
+import java.util.Map;
+
+/**
+ * Outcome of one transaction of a batch create request, in the position of the transaction in the batch.
+ *
+ * @param status      Whether the transaction was created, rejected as a duplicate or rejected as invalid
+ * @param transaction The created transaction, or the submitted transaction if it was rejected
+ * @param errors      Validation errors by field of an invalid transaction, otherwise null
+ */
+public record BatchItemResult(Status status, Transaction transaction, Map<String, String> errors) {
+
+    /**
+     * Outcome of a batch item.
+     */
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID
+    }
+
+    public static BatchItemResult created(Transaction transaction) {
+        return new BatchItemResult(Status.CREATED, transaction, null);
+    }
+
+    public static BatchItemResult duplicate(Transaction transaction) {
+        return new BatchItemResult(Status.DUPLICATE, transaction, null);
+    }
+
+    public static BatchItemResult invalid(Transaction transaction, Map<String, String> errors) {
+        return new BatchItemResult(Status.INVALID, transaction, errors);
+    }
+}
@@ -0,0 +1,15 @@
+package com.robin.transaction.model;
+
+import java.util.List;
+
+/**
+ * A page of results read by keyset pagination.
+ * The next page is requested by passing {@link #next()} back as the cursor;
+ * a null next cursor means there are no more results.
+ *
+ * @param content The results of this page
+ * @param next    Opaque cursor of the next page, or null on the last page
+ * @param <T>     The result type
+ */
+public record CursorPage<T>(List<T> content, String next) {
+}
@@ -0,0 +1,12 @@
+package com.robin.transaction.model;
+
+/**
+ * Counters of the Bloom filters in front of the duplicate check, for tuning their size and false-positive rate.
+ * Counted since the store was created. Transactions outside the duplicate detection window are not looked up.
+ *
+ * @param lookups        Number of duplicate checks
+ * @param filterHits     Checks the filters reported as possible duplicates, which probed the exact index
+ * @param falsePositives Possible duplicates the exact index showed to be unique
+ */
+public record DedupFilterStats(long lookups, long filterHits, long falsePositives) {
+}
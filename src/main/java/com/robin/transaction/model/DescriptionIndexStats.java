@@ -0,0 +1,17 @@
+package com.robin.transaction.model;
+
+/**
+ * Size of the full-text index of transaction descriptions, for sizing the heap.
+ * Byte counts are estimates from the sizes of the index arrays plus fixed per-object overheads.
+ *
+ * @param transactions        Number of indexed transactions
+ * @param deadDocuments       Replaced or removed descriptions still held in posting lists
+ * @param terms               Number of distinct words
+ * @param postings            Number of word occurrences held in posting lists
+ * @param postingBytes        Bytes of the compressed posting lists
+ * @param estimatedBytes      Estimated heap use of the whole index
+ * @param bytesPerTransaction Estimated heap use per indexed transaction
+ */
+public record DescriptionIndexStats(long transactions, long deadDocuments, long terms, long postings,
+                                    long postingBytes, long estimatedBytes, long bytesPerTransaction) {
+}
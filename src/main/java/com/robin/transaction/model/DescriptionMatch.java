@@ -0,0 +1,10 @@
+package com.robin.transaction.model;
+
+/**
+ * A transaction found by a description search.
+ *
+ * @param position    Position of the match in the search order; later pages resume below it
+ * @param transaction The matching transaction
+ */
+public record DescriptionMatch(long position, Transaction transaction) {
+}
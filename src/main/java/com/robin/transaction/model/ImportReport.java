@@ -0,0 +1,19 @@
+package com.robin.transaction.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a CSV file import.
+ *
+ * @param file          The imported file, relative to the import directory
+ * @param rows          Number of non-blank data rows read
+ * @param created       Number of transactions created
+ * @param duplicates    Number of rows rejected as duplicates
+ * @param invalid       Number of rows rejected as malformed or invalid
+ * @param elapsedMillis Duration of the import
+ * @param rowsPerSecond Rows read per second
+ * @param rejected      The first rejected rows, by line number
+ */
+public record ImportReport(String file, long rows, long created, long duplicates, long invalid,
+                           long elapsedMillis, long rowsPerSecond, List<IngestLineResult> rejected) {
+}
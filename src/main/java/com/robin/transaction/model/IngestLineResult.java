@@ -0,0 +1,13 @@
+package com.robin.transaction.model;
+
+import java.util.Map;
+
+/**
+ * Outcome of one line of a bulk ingest that was not created.
+ *
+ * @param line   The 1-based line number in the uploaded body
+ * @param status Whether the line was rejected as a duplicate or as invalid
+ * @param errors Errors by field of an invalid line, otherwise null
+ */
+public record IngestLineResult(long line, BatchItemResult.Status status, Map<String, String> errors) {
+}
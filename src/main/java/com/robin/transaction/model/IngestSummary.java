@@ -0,0 +1,12 @@
+package com.robin.transaction.model;
+
+/**
+ * Totals of a bulk ingest, sent as its last line.
+ *
+ * @param lines      Number of non-blank lines read
+ * @param created    Number of transactions created
+ * @param duplicates Number of lines rejected as duplicates
+ * @param invalid    Number of lines rejected as malformed or invalid
+ */
+public record IngestSummary(long lines, long created, long duplicates, long invalid) {
+}
@@ -0,0 +1,12 @@
+package com.robin.transaction.model;
+
+import java.util.List;
+
+/**
+ * Transactions looked up by id in one request.
+ *
+ * @param found   The transactions found, in the order their ids were requested
+ * @param missing The requested ids no transaction is stored under, in request order
+ */
+public record MultiGetResult(List<Transaction> found, List<String> missing) {
+}
@@ -0,0 +1,18 @@
+package com.robin.transaction.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Volume of the stored transactions whose timestamps fall in one time bucket.
+ *
+ * @param start       Start of the bucket, inclusive
+ * @param count       Number of transactions
+ * @param debitCount  Number of DEBIT transactions
+ * @param debitSum    Sum of the DEBIT transactions
+ * @param creditCount Number of CREDIT transactions
+ * @param creditSum   Sum of the CREDIT transactions
+ */
+public record RollupBucket(LocalDateTime start, long count, long debitCount, BigDecimal debitSum,
+                           long creditCount, BigDecimal creditSum) {
+}
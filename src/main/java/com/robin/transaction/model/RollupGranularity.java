@@ -0,0 +1,41 @@
+package com.robin.transaction.model;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Width of the time buckets transaction volumes are rolled up into.
+ */
+public enum RollupGranularity {
+    MINUTE(Duration.ofMinutes(1)),
+    HOUR(Duration.ofHours(1)),
+    DAY(Duration.ofDays(1));
+
+    private final long seconds;
+
+    RollupGranularity(Duration width) {
+        this.seconds = width.getSeconds();
+    }
+
+    /**
+     * @return The width of a bucket in seconds
+     */
+    public long seconds() {
+        return seconds;
+    }
+
+    /**
+     * Parses a granularity name, ignoring case.
+     * @param name minute, hour or day
+     * @return The granularity
+     * @throws IllegalArgumentException if the name is not a granularity
+     */
+    public static RollupGranularity parse(String name) {
+        for (RollupGranularity granularity : values()) {
+            if (granularity.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return granularity;
+            }
+        }
+        throw new IllegalArgumentException("Granularity must be one of minute, hour or day");
+    }
+}
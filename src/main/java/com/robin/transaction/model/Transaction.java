@@ -25,6 +25,7 @@ public class Transaction {
     // Transaction amount with validation constraints
     @NotNull(message = "Amount is required")
     @DecimalMin(value = "0.01", message = "Amount must be greater than 0")
+    @Digits(integer = 14, fraction = 4, message = "Amount must have at most 14 integer and 4 fraction digits")
     private BigDecimal amount;
 
     // Transaction type with validation constraints
@@ -66,4 +67,24 @@ public class Transaction {
         this.description = description;
     }
 
+    /**
+     * Constructor with all fields, used to restore a stored transaction.
+     *
+     * @param id            The transaction id
+     * @param accountNumber The account number for the transaction
+     * @param amount        The transaction amount
+     * @param type          The transaction type (DEBIT/CREDIT)
+     * @param description   A description of the transaction
+     * @param timestamp     Timestamp of when the transaction was created
+     */
+    public Transaction(String id, String accountNumber, BigDecimal amount, String type, String description,
+                       LocalDateTime timestamp) {
+        this.id = id;
+        this.accountNumber = accountNumber;
+        this.amount = amount;
+        this.type = type;
+        this.description = description;
+        this.timestamp = timestamp;
+    }
+
 } 
\ No newline at end of file
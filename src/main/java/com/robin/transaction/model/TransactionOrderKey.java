@@ -0,0 +1,80 @@
+package com.robin.transaction.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Sort key of the time-ordered transaction index.
+ * Orders transactions by timestamp (most recent first) and breaks ties by id,
+ * so every stored transaction has exactly one position in the index.
+ *
+ * @param timestamp The transaction timestamp
+ * @param id        The transaction id
+ */
+public record TransactionOrderKey(LocalDateTime timestamp, String id) implements Comparable<TransactionOrderKey> {
+
+    private static final char CURSOR_SEPARATOR = '|';
+
+    // Greatest id, so a key with it sorts after every other transaction of the same timestamp
+    private static final String MAX_ID = "ffffffff-ffff-ffff-ffff-ffffffffffff";
+
+    private static final Comparator<TransactionOrderKey> ORDER = Comparator
+            .comparing(TransactionOrderKey::timestamp, Comparator.reverseOrder())
+            .thenComparing(TransactionOrderKey::id);
+
+    /**
+     * Builds the index key of a transaction.
+     * @param transaction The transaction to build the key for
+     * @return The key locating the transaction in the time-ordered index
+     */
+    public static TransactionOrderKey of(Transaction transaction) {
+        return new TransactionOrderKey(transaction.getTimestamp(), transaction.getId());
+    }
+
+    /**
+     * Builds the key to resume a scan after to read only transactions older than a timestamp.
+     * @param timestamp The exclusive upper bound of the transaction timestamps
+     * @return A key sorting after every transaction at or after the timestamp
+     */
+    public static TransactionOrderKey olderThan(LocalDateTime timestamp) {
+        return new TransactionOrderKey(timestamp, MAX_ID);
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #toCursor()}.
+     * @param cursor The opaque cursor token
+     * @return The key the cursor points at
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static TransactionOrderKey fromCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new TransactionOrderKey(
+                    LocalDateTime.parse(decoded.substring(0, separator)),
+                    decoded.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Encodes this key as an opaque, URL-safe cursor token.
+     * @return The cursor token
+     */
+    public String toCursor() {
+        String raw = timestamp.toString() + CURSOR_SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int compareTo(TransactionOrderKey other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,69 @@
+package com.robin.transaction.service;
+
+import com.robin.transaction.model.AccountBalance;
+import com.robin.transaction.model.Amount;
+import com.robin.transaction.model.Transaction;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running credit, debit and count totals per account, maintained as transactions are stored and removed.
+ * <p>
+ * Each change adds to striped {@link LongAdder}s, so concurrent writers to the same account do not
+ * contend on one counter, and reading a balance sums a few cells instead of the account's transactions.
+ * Changes are applied as the store makes them, as described on {@code TransactionServiceImpl.added}.
+ */
+class AccountBalances {
+
+    private final Map<String, Totals> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param transaction A transaction the store has just added
+     */
+    void add(Transaction transaction) {
+        apply(transaction, 1);
+    }
+
+    /**
+     * @param transaction A transaction the store has just removed or replaced
+     */
+    void subtract(Transaction transaction) {
+        apply(transaction, -1);
+    }
+
+    /**
+     * @param accountNumber The account
+     * @return The account's totals, all zero if it has no transactions
+     */
+    AccountBalance get(String accountNumber) {
+        Totals totals = accounts.get(accountNumber);
+        if (totals == null) {
+            BigDecimal zero = MinorUnitsAdder.display(BigDecimal.ZERO);
+            return new AccountBalance(accountNumber, zero, zero, zero, 0);
+        }
+        BigDecimal credits = totals.credits.sum();
+        BigDecimal debits = totals.debits.sum();
+        return new AccountBalance(accountNumber, MinorUnitsAdder.display(credits.subtract(debits)),
+                MinorUnitsAdder.display(credits), MinorUnitsAdder.display(debits), totals.count.sum());
+    }
+
+    private void apply(Transaction transaction, int sign) {
+        Totals totals = accounts.computeIfAbsent(transaction.getAccountNumber(), account -> new Totals());
+        long minorUnits = Amount.of(transaction.getAmount()).minorUnits() * sign;
+        if ("CREDIT".equals(transaction.getType())) {
+            totals.credits.add(minorUnits);
+        } else if ("DEBIT".equals(transaction.getType())) {
+            totals.debits.add(minorUnits);
+        }
+        totals.count.add(sign);
+    }
+
+    private static final class Totals {
+        final MinorUnitsAdder credits = new MinorUnitsAdder();
+        final MinorUnitsAdder debits = new MinorUnitsAdder();
+        final LongAdder count = new LongAdder();
+    }
+}
@@ -0,0 +1,200 @@
+package com.robin.transaction.service;
+
+import com.robin.transaction.model.Transaction;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Parses CSV rows of the form {@code accountNumber,amount,type,description} straight from a byte buffer.
+ * <p>
+ * Fields are located in the buffer without copying the row. Amounts are accumulated digit by digit into
+ * an unscaled long and types are matched against the known type names, so neither allocates a String;
+ * only the account number and description are decoded. Fields may be quoted with {@code "}, with
+ * {@code ""} for a quote inside a quoted field. Rows cannot span lines.
+ * <p>
+ * Not thread-safe: each thread parses with its own instance.
+ */
+class CsvRowParser {
+
+    static final int COLUMNS = 4;
+
+    private static final byte[] DEBIT = "DEBIT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CREDIT = "CREDIT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEADER = "accountNumber".getBytes(StandardCharsets.US_ASCII);
+
+    // Unscaled amounts of up to 18 digits always fit a long
+    private static final int MAX_LONG_DIGITS = 18;
+
+    // Start and end of each column of the current row; ends are exclusive, quotes excluded
+    private final int[] starts = new int[COLUMNS];
+    private final int[] ends = new int[COLUMNS];
+    private final boolean[] quoted = new boolean[COLUMNS];
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Parses one row.
+     * @param buffer The buffer holding the row
+     * @param start Index of the first byte of the row
+     * @param end Index after the last byte of the row, excluding the line terminator
+     * @return The parsed transaction, with no id or timestamp
+     * @throws RowException if the row does not have the expected columns or its amount is not a number
+     */
+    Transaction parse(ByteBuffer buffer, int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        split(buffer, start, end);
+        return new Transaction(null, text(buffer, 0), amount(buffer), type(buffer), text(buffer, 3), null);
+    }
+
+    /**
+     * @return true if the row starts with the column name of the first column, so it is a header
+     */
+    static boolean isHeader(ByteBuffer buffer, int start, int end) {
+        if (end - start < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (Character.toLowerCase(buffer.get(start + i)) != Character.toLowerCase(HEADER[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void split(ByteBuffer buffer, int start, int end) {
+        int column = 0;
+        int position = start;
+        while (true) {
+            if (column == COLUMNS) {
+                throw new RowException("row", "Expected " + COLUMNS + " columns: accountNumber,amount,type,description");
+            }
+            quoted[column] = position < end && buffer.get(position) == '"';
+            if (quoted[column]) {
+                // Find the closing quote, skipping doubled quotes
+                int closing = position + 1;
+                while (closing < end && (buffer.get(closing) != '"'
+                        || closing + 1 < end && buffer.get(closing + 1) == '"')) {
+                    closing += buffer.get(closing) == '"' ? 2 : 1;
+                }
+                if (closing >= end) {
+                    throw new RowException("row", "Unterminated quoted field");
+                }
+                starts[column] = position + 1;
+                ends[column] = closing;
+                position = closing + 1;
+            } else {
+                starts[column] = position;
+                while (position < end && buffer.get(position) != ',') {
+                    position++;
+                }
+                ends[column] = position;
+            }
+            column++;
+            if (position >= end) {
+                break;
+            }
+            if (buffer.get(position) != ',') {
+                throw new RowException("row", "Expected a comma after a quoted field");
+            }
+            position++;
+        }
+        if (column != COLUMNS) {
+            throw new RowException("row", "Expected " + COLUMNS + " columns: accountNumber,amount,type,description");
+        }
+    }
+
+    private String text(ByteBuffer buffer, int column) {
+        int length = 0;
+        for (int i = starts[column]; i < ends[column]; i++) {
+            byte b = buffer.get(i);
+            if (length == scratch.length) {
+                scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            }
+            scratch[length++] = b;
+            if (quoted[column] && b == '"') {
+                // Skip the second quote of a doubled quote
+                i++;
+            }
+        }
+        return length == 0 ? null : new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private BigDecimal amount(ByteBuffer buffer) {
+        int start = starts[1];
+        int end = ends[1];
+        boolean negative = start < end && buffer.get(start) == '-';
+        if (start < end && (negative || buffer.get(start) == '+')) {
+            start++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b >= '0' && b <= '9') {
+                unscaled = unscaled * 10 + (b - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                throw new RowException("amount", "Amount must be a number");
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        if (digits > MAX_LONG_DIGITS) {
+            // Too long for the fast path; validation rejects amounts this large anyway
+            return new BigDecimal(text(buffer, 1));
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    private String type(ByteBuffer buffer) {
+        if (matches(buffer, 2, DEBIT)) {
+            return "DEBIT";
+        }
+        if (matches(buffer, 2, CREDIT)) {
+            return "CREDIT";
+        }
+        // Decoded only to be reported by validation
+        return text(buffer, 2);
+    }
+
+    private boolean matches(ByteBuffer buffer, int column, byte[] expected) {
+        if (ends[column] - starts[column] != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(starts[column] + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A row that cannot be parsed into a transaction.
+     */
+    static class RowException extends RuntimeException {
+
+        private final String field;
+
+        RowException(String field, String message) {
+            super(message);
+            this.field = field;
+        }
+
+        Map<String, String> errors() {
+            return Map.of(field, getMessage());
+        }
+    }
+}
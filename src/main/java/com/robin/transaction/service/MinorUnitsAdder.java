@@ -0,0 +1,37 @@
+package com.robin.transaction.service;
+
+import com.robin.transaction.model.Amount;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sum of fixed-point amounts that cannot overflow in practice.
+ * A single amount may be close to the long range, so the high and low 32 bits of each amount
+ * are added up separately and only combined, exactly, when the sum is read.
+ */
+final class MinorUnitsAdder {
+    private static final BigDecimal LOW_RANGE = BigDecimal.valueOf(1L << 32);
+
+    private final LongAdder high = new LongAdder();
+    private final LongAdder low = new LongAdder();
+
+    void add(long minorUnits) {
+        high.add(minorUnits >> 32);
+        low.add(minorUnits & 0xFFFFFFFFL);
+    }
+
+    BigDecimal sum() {
+        return BigDecimal.valueOf(high.sum()).multiply(LOW_RANGE)
+                .add(BigDecimal.valueOf(low.sum()))
+                .movePointLeft(Amount.SCALE);
+    }
+
+    /**
+     * Drops the trailing zeros of the fixed-point scale, keeping at least two decimal places.
+     */
+    static BigDecimal display(BigDecimal amount) {
+        BigDecimal stripped = amount.stripTrailingZeros();
+        return stripped.scale() < 2 ? stripped.setScale(2) : stripped;
+    }
+}
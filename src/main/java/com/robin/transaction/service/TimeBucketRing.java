@@ -0,0 +1,200 @@
+package com.robin.transaction.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Fixed number of consecutive time buckets ending at the current one, keyed by transaction timestamp.
+ * <p>
+ * Slot {@code index mod length} holds bucket {@code index}, the number of bucket widths since the epoch.
+ * A slot is reused for a newer bucket once the bucket it holds has fallen out of the ring, so memory is
+ * fixed and a query reads one slot per bucket. Changes to buckets older than the ring are dropped.
+ * The bucket after the current one is held aside until it becomes current, so transactions dated slightly
+ * in the future, as with clock skew, do not push retained buckets out early. Additions to later buckets are
+ * dropped too, so bucket memory stays fixed whatever the timestamps. Their keys are kept instead, until
+ * the item is removed, so its removal is dropped as well rather than subtracted from a bucket it was
+ * never added to.
+ * <p>
+ * A slot only moves on to newer buckets, and each move to a bucket runs inside the pending map's
+ * compute for that bucket, so a change made to the bucket while it was pending is never lost. The
+ * buckets themselves must be safe for concurrent changes.
+ *
+ * @param <B> The bucket type
+ */
+final class TimeBucketRing<B> {
+
+    private final long width;
+    private final AtomicReferenceArray<Held<B>> slots;
+    private final Supplier<B> newBucket;
+
+    // The bucket after the current one, moved into its slot once it becomes current
+    private final Map<Long, Held<B>> pending = new ConcurrentHashMap<>();
+
+    // Keys of the items whose addition was dropped for being dated after the next bucket
+    private final Set<String> droppedAhead = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param width Width of a bucket in seconds
+     * @param length Number of buckets kept
+     * @param newBucket Creates an empty bucket
+     */
+    TimeBucketRing(long width, int length, Supplier<B> newBucket) {
+        if (width < 1 || length < 1) {
+            throw new IllegalArgumentException("Bucket width and count must be positive");
+        }
+        this.width = width;
+        this.slots = new AtomicReferenceArray<>(length);
+        this.newBucket = newBucket;
+    }
+
+    /**
+     * @return Width of a bucket in seconds
+     */
+    long width() {
+        return width;
+    }
+
+    /**
+     * @return Number of buckets kept
+     */
+    int length() {
+        return slots.length();
+    }
+
+    /**
+     * Adds an item to the bucket holding an instant, unless it is older than the ring or after the next
+     * bucket; in the latter case its key is kept, so its removal is dropped too.
+     * @param key Identifies the item, as passed again to {@link #subtract}
+     * @param second The instant, in epoch seconds
+     * @param now The current time, in epoch seconds
+     * @param change The change to make to the bucket
+     */
+    void add(String key, long second, long now, Consumer<B> change) {
+        if (Math.floorDiv(second, width) > Math.floorDiv(now, width) + 1) {
+            droppedAhead.add(key);
+            return;
+        }
+        apply(second, now, change);
+    }
+
+    /**
+     * Removes an item from the bucket holding an instant, unless the bucket has left the ring or the item's
+     * addition was dropped.
+     * @param key Identifies the item, as passed to {@link #add}
+     * @param second The instant, in epoch seconds
+     * @param now The current time, in epoch seconds
+     * @param change The change to make to the bucket
+     */
+    void subtract(String key, long second, long now, Consumer<B> change) {
+        if (!droppedAhead.isEmpty() && droppedAhead.remove(key)) {
+            return;
+        }
+        apply(second, now, change);
+    }
+
+    /**
+     * Changes the bucket holding an instant, unless it is older than the ring or after the next bucket.
+     */
+    private void apply(long second, long now, Consumer<B> change) {
+        long index = Math.floorDiv(second, width);
+        long current = Math.floorDiv(now, width);
+        int length = slots.length();
+        if (index <= current - length || index > current + 1) {
+            return;
+        }
+        int slot = (int) Math.floorMod(index, (long) length);
+        if (index > current) {
+            pending.compute(index, (key, waiting) -> {
+                Held<B> held = slots.get(slot);
+                if (held != null && held.index >= index) {
+                    // The bucket became current meanwhile, or has already left the ring
+                    if (held.index == index) {
+                        change.accept(held.bucket);
+                    }
+                    return waiting;
+                }
+                Held<B> bucket = waiting != null ? waiting : new Held<>(index, newBucket.get());
+                change.accept(bucket.bucket);
+                return bucket;
+            });
+            return;
+        }
+        Held<B> held = advance(slot, index);
+        if (held != null) {
+            change.accept(held.bucket);
+        }
+    }
+
+    /**
+     * Visits the buckets held for the instants in a range, oldest first.
+     * @param firstSecond First instant of the range, in epoch seconds
+     * @param lastSecond Last instant of the range, inclusive, in epoch seconds
+     * @param now The current time, in epoch seconds
+     * @param visitor Called with each bucket and its start, in epoch seconds
+     */
+    void forEach(long firstSecond, long lastSecond, long now, ObjLongConsumer<B> visitor) {
+        long first = Math.floorDiv(firstSecond, width);
+        long last = Math.floorDiv(lastSecond, width);
+        long current = Math.floorDiv(now, width);
+        for (long index = Math.max(first, current - slots.length() + 1); index <= Math.min(last, current); index++) {
+            Held<B> held = slots.get((int) Math.floorMod(index, (long) slots.length()));
+            if (held == null || held.index != index) {
+                // Dated after the current bucket when it was changed, and not moved into its slot yet
+                held = pending.get(index);
+            }
+            if (held != null) {
+                visitor.accept(held.bucket, index * width);
+            }
+        }
+        if (last > current && !pending.isEmpty()) {
+            List<Held<B>> future = new ArrayList<>();
+            for (Held<B> held : pending.values()) {
+                if (held.index > current && held.index >= first && held.index <= last) {
+                    future.add(held);
+                }
+            }
+            future.sort(Comparator.comparingLong(Held::index));
+            future.forEach(held -> visitor.accept(held.bucket, held.index * width));
+        }
+    }
+
+    /**
+     * @return The bucket for an index, moving it into its slot if the slot holds an older bucket,
+     *         or null if the slot has moved past it
+     */
+    private Held<B> advance(int slot, long index) {
+        while (true) {
+            Held<B> held = slots.get(slot);
+            if (held != null && held.index >= index) {
+                return held.index == index ? held : null;
+            }
+            List<Held<B>> installed = new ArrayList<>(1);
+            pending.compute(index, (key, waiting) -> {
+                Held<B> next = waiting != null ? waiting : new Held<>(index, newBucket.get());
+                if (!slots.compareAndSet(slot, held, next)) {
+                    return waiting;
+                }
+                installed.add(next);
+                return null;
+            });
+            if (!installed.isEmpty()) {
+                if (!pending.isEmpty()) {
+                    // Drop buckets that were pending but left the ring without ever becoming current
+                    pending.keySet().removeIf(key -> key <= index - slots.length());
+                }
+                return installed.get(0);
+            }
+        }
+    }
+
+    private record Held<B>(long index, B bucket) {
+    }
+}
@@ -0,0 +1,272 @@
+package com.robin.transaction.service;
+
+import com.robin.transaction.model.AccountVolume;
+import com.robin.transaction.model.Amount;
+import com.robin.transaction.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate top accounts by transaction volume over a recent window, maintained as transactions
+ * are stored and removed.
+ * <p>
+ * The volume of an account is the sum of its amounts, whatever their type. Transactions are bucketed
+ * by timestamp in a {@link TimeBucketRing} of short buckets, and each bucket keeps a weighted
+ * Space-Saving summary: a counter for each of at most {@code capacity} accounts. An account that is not
+ * counted in a full summary takes over the counter with the smallest volume and records that volume as
+ * its possible overcount. Memory therefore depends on the number of buckets and the capacity, not on the
+ * number of accounts, and every account with more than 1/capacity of a bucket's volume is counted.
+ * <p>
+ * A removal is subtracted if the account is still counted in the transaction's bucket, and otherwise
+ * ignored. A query merges the summaries of the buckets in the window, charging an account missing from
+ * a full summary that summary's smallest volume, and keeps the largest accounts in a heap bounded by the
+ * number requested. While transactions are only added, each reported volume is at least the true volume
+ * and exceeds it by at most the reported error; removals of accounts that are no longer counted loosen
+ * these bounds. Volumes are long counts of {@link Amount} minor units, and sums saturate at the long
+ * range instead of overflowing, so a huge volume is reported as the largest one representable.
+ * <p>
+ * Changes are applied as the store makes them, as described on {@code TransactionServiceImpl.added}.
+ * Changes to one bucket are serialized on that bucket's summary.
+ */
+class TopAccounts {
+
+    private final TimeBucketRing<Summary> ring;
+
+    // Current time in epoch seconds
+    private final LongSupplier clock;
+
+    private final int capacity;
+
+    /**
+     * @param bucketSeconds Width of a bucket in seconds
+     * @param buckets Number of buckets kept, which bounds the window
+     * @param capacity Number of accounts counted per bucket
+     */
+    TopAccounts(long bucketSeconds, int buckets, int capacity) {
+        // Transaction timestamps are local date-times stored as if they were UTC, so read the clock the same way
+        this(bucketSeconds, buckets, capacity, () -> LocalDateTime.now().toEpochSecond(ZoneOffset.UTC));
+    }
+
+    TopAccounts(long bucketSeconds, int buckets, int capacity, LongSupplier clock) {
+        if (bucketSeconds < 1 || buckets < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Top accounts bucket width, buckets and capacity must be positive");
+        }
+        this.ring = new TimeBucketRing<>(bucketSeconds, buckets, () -> new Summary(capacity));
+        this.clock = clock;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param transaction A transaction the store has just added
+     */
+    void add(Transaction transaction) {
+        long volume = volume(transaction);
+        ring.add(transaction.getId(), transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC), clock.getAsLong(),
+                summary -> summary.add(transaction.getAccountNumber(), volume));
+    }
+
+    /**
+     * @param transaction A transaction the store has just removed or replaced
+     */
+    void subtract(Transaction transaction) {
+        long volume = volume(transaction);
+        ring.subtract(transaction.getId(), transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC),
+                clock.getAsLong(), summary -> summary.subtract(transaction.getAccountNumber(), volume));
+    }
+
+    /**
+     * @return The longest window that can be queried
+     */
+    Duration maxWindow() {
+        return Duration.ofSeconds(ring.width() * ring.length());
+    }
+
+    /**
+     * @return The largest number of accounts that can be requested
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the accounts with the largest volume in the buckets covering a window that ends now.
+     * @param window Length of the window, rounded up to whole buckets
+     * @param size Maximum number of accounts to return
+     * @return The accounts, largest volume first
+     */
+    List<AccountVolume> get(Duration window, int size) {
+        long now = clock.getAsLong();
+        long width = ring.width();
+        long buckets = (window.getSeconds() + width - 1) / width;
+        long firstSecond = (Math.floorDiv(now, width) - buckets + 1) * width;
+
+        // Volume, error and the smallest volumes already charged, per account
+        Map<String, long[]> totals = new HashMap<>();
+        long[] floors = new long[1];
+        ring.forEach(firstSecond, now, now,
+                (summary, start) -> floors[0] = saturatedAdd(floors[0], summary.addTo(totals)));
+
+        // Keep the largest accounts in a min-heap of at most size entries
+        Comparator<Map.Entry<String, long[]>> byVolume = Comparator.comparingLong(entry -> entry.getValue()[0]);
+        PriorityQueue<Map.Entry<String, long[]>> top = new PriorityQueue<>(byVolume);
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            long[] total = entry.getValue();
+            // Charge the smallest volume of each full summary the account is missing from
+            long missing = floors[0] - total[2];
+            total[0] = saturatedAdd(total[0], missing);
+            total[1] = saturatedAdd(total[1], missing);
+            if (total[0] <= 0) {
+                continue;
+            }
+            top.add(entry);
+            if (top.size() > size) {
+                top.poll();
+            }
+        }
+        List<Map.Entry<String, long[]>> largest = new ArrayList<>(top);
+        largest.sort(byVolume.reversed());
+        return largest.stream()
+                .map(entry -> new AccountVolume(entry.getKey(),
+                        display(entry.getValue()[0]), display(entry.getValue()[1])))
+                .toList();
+    }
+
+    private static long volume(Transaction transaction) {
+        long minorUnits = Amount.of(transaction.getAmount()).minorUnits();
+        return minorUnits == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(minorUnits);
+    }
+
+    /**
+     * @return The sum, or the nearest end of the long range if it overflows
+     */
+    static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        // The sum overflowed if its sign differs from the signs of both operands
+        if (((a ^ sum) & (b ^ sum)) < 0) {
+            return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return sum;
+    }
+
+    private static BigDecimal display(long minorUnits) {
+        return MinorUnitsAdder.display(BigDecimal.valueOf(minorUnits, Amount.SCALE));
+    }
+
+    /**
+     * Weighted Space-Saving summary of one bucket: counters in a min-heap by volume, indexed by account.
+     */
+    private static final class Summary {
+        private final Map<String, Counter> counters = new HashMap<>();
+        private final Counter[] heap;
+        private int size;
+
+        Summary(int capacity) {
+            this.heap = new Counter[capacity];
+        }
+
+        synchronized void add(String account, long volume) {
+            Counter counter = counters.get(account);
+            if (counter == null && size < heap.length) {
+                counter = new Counter(account, size);
+                heap[size++] = counter;
+                counters.put(account, counter);
+                counter.volume = volume;
+                siftUp(counter.position);
+                return;
+            }
+            if (counter == null) {
+                // Take over the smallest counter; the new account may have been part of its volume
+                counter = heap[0];
+                counters.remove(counter.account);
+                counter.account = account;
+                counter.error = counter.volume;
+                counters.put(account, counter);
+            }
+            counter.volume = saturatedAdd(counter.volume, volume);
+            siftDown(counter.position);
+        }
+
+        synchronized void subtract(String account, long volume) {
+            Counter counter = counters.get(account);
+            if (counter != null) {
+                counter.volume = saturatedAdd(counter.volume, -volume);
+                siftUp(counter.position);
+            }
+        }
+
+        /**
+         * Adds the counters to per-account totals of volume, error and the smallest volumes charged.
+         * @return The volume charged to accounts missing from this summary
+         */
+        synchronized long addTo(Map<String, long[]> totals) {
+            long floor = size == heap.length ? Math.max(heap[0].volume, 0) : 0;
+            for (int i = 0; i < size; i++) {
+                Counter counter = heap[i];
+                long[] total = totals.computeIfAbsent(counter.account, account -> new long[3]);
+                total[0] = saturatedAdd(total[0], counter.volume);
+                total[1] = saturatedAdd(total[1], counter.error);
+                total[2] = saturatedAdd(total[2], floor);
+            }
+            return floor;
+        }
+
+        private void siftUp(int position) {
+            Counter counter = heap[position];
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (heap[parent].volume <= counter.volume) {
+                    break;
+                }
+                place(heap[parent], position);
+                position = parent;
+            }
+            place(counter, position);
+        }
+
+        private void siftDown(int position) {
+            Counter counter = heap[position];
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1].volume < heap[child].volume) {
+                    child++;
+                }
+                if (counter.volume <= heap[child].volume) {
+                    break;
+                }
+                place(heap[child], position);
+                position = child;
+            }
+            place(counter, position);
+        }
+
+        private void place(Counter counter, int position) {
+            heap[position] = counter;
+            counter.position = position;
+        }
+    }
+
+    private static final class Counter {
+        String account;
+        long volume;
+        long error;
+        int position;
+
+        Counter(String account, int position) {
+            this.account = account;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.robin.transaction.service;
+
+import com.robin.transaction.config.ImportProperties;
+import com.robin.transaction.model.BatchItemResult;
+import com.robin.transaction.model.ImportReport;
+import com.robin.transaction.model.IngestLineResult;
+import com.robin.transaction.model.Transaction;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Imports transactions from CSV files in the configured import directory.
+ * <p>
+ * The file is split at line boundaries into chunks of about the configured size. The chunks are
+ * memory-mapped and parsed in parallel on a fork/join pool by {@link CsvRowParser}, and the parsed
+ * rows are created in batches through {@link TransactionService#createTransactions(List)}, so they
+ * pass the same validation and duplicate detection as transactions created through the API.
+ * Duplicates in different chunks are resolved in whichever order the chunks reach the store.
+ */
+@Service
+public class TransactionCsvImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionCsvImporter.class);
+
+    // Bytes read at a time when looking for the line break that ends a chunk
+    private static final int BOUNDARY_PROBE_BYTES = 8192;
+
+    // Chunks are mapped whole, and a mapping cannot exceed 2 GB
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final Function<List<Transaction>, CompletableFuture<List<BatchItemResult>>> createBatch;
+    private final Path directory;
+    private final long chunkBytes;
+    private final int batchSize;
+    private final int maxReportedRejects;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for TransactionCsvImporter.
+     * @param transactionService The service creating the imported transactions
+     * @param importProperties Import directory, chunk and batch sizes
+     */
+    @Autowired
+    public TransactionCsvImporter(TransactionService transactionService, ImportProperties importProperties) {
+        this(transactionService::createTransactions, Path.of(importProperties.getDirectory()),
+                importProperties.getChunkBytes(), importProperties.getBatchSize(),
+                importProperties.getMaxReportedRejects(), importProperties.getParallelism());
+    }
+
+    TransactionCsvImporter(Function<List<Transaction>, CompletableFuture<List<BatchItemResult>>> createBatch,
+                           Path directory, long chunkBytes, int batchSize, int maxReportedRejects, int parallelism) {
+        if (chunkBytes < 1 || chunkBytes > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("Import chunk size must be 1 byte to 1 GB");
+        }
+        if (batchSize < 1 || batchSize > TransactionService.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Import batch size must be 1 to " + TransactionService.MAX_BATCH_SIZE);
+        }
+        this.createBatch = createBatch;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.chunkBytes = chunkBytes;
+        this.batchSize = batchSize;
+        this.maxReportedRejects = maxReportedRejects;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Imports a CSV file with the columns accountNumber,amount,type,description and an optional header row.
+     * @param fileName Name of the file, relative to the import directory
+     * @return The import totals, throughput and the first rejected rows
+     * @throws IllegalArgumentException if the file is not a regular file inside the import directory
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importFile(String fileName) throws IOException {
+        Path file = resolve(fileName);
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel);
+            logger.info("Importing {} ({} bytes) in {} chunks", file, channel.size(), chunks.size());
+            if (!chunks.isEmpty()) {
+                pool.invoke(new ImportTask(channel, chunks, 0, chunks.size()));
+            }
+
+            // Number rows across the file now that every chunk has counted its lines
+            long[] firstLine = new long[chunks.size()];
+            for (int i = 1; i < chunks.size(); i++) {
+                firstLine[i] = firstLine[i - 1] + chunks.get(i - 1).lines;
+            }
+            List<IngestLineResult> rejected = new ArrayList<>();
+            Totals totals = new Totals();
+            for (Chunk chunk : chunks) {
+                chunk.addTo(totals);
+                chunk.rejected.forEach(reject -> rejected.add(new IngestLineResult(
+                        firstLine[chunk.index] + reject.line(), reject.status(), reject.errors())));
+            }
+            rejected.sort(Comparator.comparingLong(IngestLineResult::line));
+            List<IngestLineResult> reported = List.copyOf(
+                    rejected.subList(0, Math.min(rejected.size(), maxReportedRejects)));
+
+            long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+            long rows = totals.created + totals.duplicates + totals.invalid;
+            ImportReport report = new ImportReport(fileName, rows, totals.created, totals.duplicates, totals.invalid,
+                    elapsedMillis, rows * 1000 / elapsedMillis, reported);
+            logger.info("Imported {}: {} rows, {} created, {} duplicates, {} invalid in {} ms ({} rows/s)",
+                    file, rows, totals.created, totals.duplicates, totals.invalid, elapsedMillis, report.rowsPerSecond());
+            return report;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Stops the import threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private Path resolve(String fileName) throws IOException {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("Import file name cannot be empty");
+        }
+        Path file = directory.resolve(fileName).normalize();
+        // Compare real paths too, so a link inside the directory cannot point outside it
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)
+                || !file.toRealPath().startsWith(directory.toRealPath())) {
+            throw new IllegalArgumentException("Import file not found in the import directory: " + fileName);
+        }
+        return file;
+    }
+
+    /**
+     * Splits the file into chunks that end right after a line break, or at the end of the file.
+     */
+    private List<Chunk> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_BYTES);
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkBytes >= size ? size : nextLine(channel, start + chunkBytes, size, probe);
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Import file has a line longer than 2 GB");
+            }
+            chunks.add(new Chunk(chunks.size(), start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return The position after the first line break at or after a position, or the file size if there is none
+     */
+    private static long nextLine(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Imports a range of chunks, splitting it until a single chunk is left.
+     */
+    private final class ImportTask extends RecursiveAction {
+        private final FileChannel channel;
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+
+        ImportTask(FileChannel channel, List<Chunk> chunks, int from, int to) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ImportTask(channel, chunks, from, middle), new ImportTask(channel, chunks, middle, to));
+                return;
+            }
+            try {
+                importChunk(channel, chunks.get(from));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void importChunk(FileChannel channel, Chunk chunk) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.end - chunk.start);
+        CsvRowParser parser = new CsvRowParser();
+        List<Transaction> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+        int limit = buffer.limit();
+        int lineStart = 0;
+        long line = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            line++;
+            boolean header = chunk.index == 0 && line == 1 && CsvRowParser.isHeader(buffer, lineStart, lineEnd);
+            boolean blank = lineEnd == lineStart || lineEnd == lineStart + 1 && buffer.get(lineStart) == '\r';
+            if (!header && !blank) {
+                try {
+                    batch.add(parser.parse(buffer, lineStart, lineEnd));
+                    batchLines.add(line);
+                } catch (CsvRowParser.RowException e) {
+                    chunk.invalid++;
+                    chunk.reject(new IngestLineResult(line, BatchItemResult.Status.INVALID, e.errors()));
+                }
+                if (batch.size() == batchSize) {
+                    create(chunk, batch, batchLines);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        create(chunk, batch, batchLines);
+        chunk.lines = line;
+    }
+
+    private void create(Chunk chunk, List<Transaction> batch, List<Long> batchLines) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<BatchItemResult> results = createBatch.apply(batch).join();
+        for (int i = 0; i < results.size(); i++) {
+            BatchItemResult result = results.get(i);
+            switch (result.status()) {
+                case CREATED -> chunk.created++;
+                case DUPLICATE -> chunk.duplicates++;
+                case INVALID -> chunk.invalid++;
+            }
+            if (result.status() != BatchItemResult.Status.CREATED) {
+                chunk.reject(new IngestLineResult(batchLines.get(i), result.status(), result.errors()));
+            }
+        }
+        batch.clear();
+        batchLines.clear();
+    }
+
+    /**
+     * A range of the file ending right after a line break, with the counts of the rows imported from it.
+     * Each chunk is imported by one task, so its counts are not shared.
+     */
+    private final class Chunk {
+        final int index;
+        final long start;
+        final long end;
+        final List<IngestLineResult> rejected = new ArrayList<>();
+        long lines;
+        long created;
+        long duplicates;
+        long invalid;
+
+        Chunk(int index, long start, long end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+
+        // Keeps the first rejected rows, with chunk-relative line numbers, up to the report limit
+        void reject(IngestLineResult result) {
+            if (rejected.size() < maxReportedRejects) {
+                rejected.add(result);
+            }
+        }
+
+        void addTo(Totals totals) {
+            totals.created += created;
+            totals.duplicates += duplicates;
+            totals.invalid += invalid;
+        }
+    }
+
+    private static final class Totals {
+        long created;
+        long duplicates;
+        long invalid;
+    }
+}
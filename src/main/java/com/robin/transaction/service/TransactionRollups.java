@@ -0,0 +1,135 @@
+package com.robin.transaction.service;
+
+import com.robin.transaction.model.Amount;
+import com.robin.transaction.model.RollupBucket;
+import com.robin.transaction.model.RollupGranularity;
+import com.robin.transaction.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Count and sum of the stored transactions by type per minute, hour and day, maintained as
+ * transactions are stored and removed.
+ * <p>
+ * Transactions are bucketed by their timestamp, and each granularity keeps a {@link TimeBucketRing}
+ * of a fixed number of buckets ending at the current one, so memory is fixed and a query reads one
+ * slot per bucket, whatever the number of transactions. Transactions older than the ring, or dated
+ * more than one bucket ahead of the current one, are not counted, and not subtracted when removed.
+ * <p>
+ * Changes are applied as the store makes them, as described on {@code TransactionServiceImpl.added},
+ * and each change adds to striped {@link LongAdder}s. A transaction is subtracted from the same bucket it was added to, unless that
+ * bucket has left the ring in between.
+ */
+class TransactionRollups {
+
+    private final Map<RollupGranularity, TimeBucketRing<Bucket>> rings = new EnumMap<>(RollupGranularity.class);
+
+    // Current time in epoch seconds
+    private final LongSupplier clock;
+
+    /**
+     * @param minuteBuckets Number of minute buckets kept
+     * @param hourBuckets Number of hour buckets kept
+     * @param dayBuckets Number of day buckets kept
+     */
+    TransactionRollups(int minuteBuckets, int hourBuckets, int dayBuckets) {
+        // Transaction timestamps are local date-times stored as if they were UTC, so read the clock the same way
+        this(minuteBuckets, hourBuckets, dayBuckets, () -> LocalDateTime.now().toEpochSecond(ZoneOffset.UTC));
+    }
+
+    TransactionRollups(int minuteBuckets, int hourBuckets, int dayBuckets, LongSupplier clock) {
+        if (minuteBuckets < 1 || hourBuckets < 1 || dayBuckets < 1) {
+            throw new IllegalArgumentException("Rollup bucket counts must be positive");
+        }
+        ring(RollupGranularity.MINUTE, minuteBuckets);
+        ring(RollupGranularity.HOUR, hourBuckets);
+        ring(RollupGranularity.DAY, dayBuckets);
+        this.clock = clock;
+    }
+
+    /**
+     * @param transaction A transaction the store has just added
+     */
+    void add(Transaction transaction) {
+        apply(transaction, 1);
+    }
+
+    /**
+     * @param transaction A transaction the store has just removed or replaced
+     */
+    void subtract(Transaction transaction) {
+        apply(transaction, -1);
+    }
+
+    /**
+     * Returns the non-empty buckets overlapping a time range, oldest first.
+     * @param granularity The bucket width
+     * @param from Start of the range, inclusive, or null for the oldest bucket kept
+     * @param to End of the range, exclusive, or null for no end
+     * @return The buckets holding at least one transaction
+     */
+    List<RollupBucket> get(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        long first = from == null ? Long.MIN_VALUE : from.toEpochSecond(ZoneOffset.UTC);
+        // The last second before the end
+        long last = to == null ? Long.MAX_VALUE : to.toEpochSecond(ZoneOffset.UTC) - (to.getNano() == 0 ? 1 : 0);
+        List<RollupBucket> buckets = new ArrayList<>();
+        rings.get(granularity).forEach(first, last, clock.getAsLong(), (bucket, start) -> {
+            if (bucket.count.sum() != 0) {
+                buckets.add(bucket.toRollupBucket(LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC)));
+            }
+        });
+        return buckets;
+    }
+
+    private void ring(RollupGranularity granularity, int buckets) {
+        rings.put(granularity, new TimeBucketRing<>(granularity.seconds(), buckets, Bucket::new));
+    }
+
+    private void apply(Transaction transaction, int sign) {
+        long second = transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+        long minorUnits = Amount.of(transaction.getAmount()).minorUnits() * sign;
+        boolean credit = "CREDIT".equals(transaction.getType());
+        boolean debit = "DEBIT".equals(transaction.getType());
+        long now = clock.getAsLong();
+        Consumer<Bucket> change = bucket -> bucket.add(credit, debit, minorUnits, sign);
+        for (TimeBucketRing<Bucket> ring : rings.values()) {
+            if (sign > 0) {
+                ring.add(transaction.getId(), second, now, change);
+            } else {
+                ring.subtract(transaction.getId(), second, now, change);
+            }
+        }
+    }
+
+    private static final class Bucket {
+        final LongAdder count = new LongAdder();
+        final LongAdder debitCount = new LongAdder();
+        final MinorUnitsAdder debitSum = new MinorUnitsAdder();
+        final LongAdder creditCount = new LongAdder();
+        final MinorUnitsAdder creditSum = new MinorUnitsAdder();
+
+        void add(boolean credit, boolean debit, long minorUnits, int sign) {
+            if (credit) {
+                creditCount.add(sign);
+                creditSum.add(minorUnits);
+            } else if (debit) {
+                debitCount.add(sign);
+                debitSum.add(minorUnits);
+            }
+            count.add(sign);
+        }
+
+        RollupBucket toRollupBucket(LocalDateTime start) {
+            return new RollupBucket(start, count.sum(), debitCount.sum(), MinorUnitsAdder.display(debitSum.sum()),
+                    creditCount.sum(), MinorUnitsAdder.display(creditSum.sum()));
+        }
+    }
+}
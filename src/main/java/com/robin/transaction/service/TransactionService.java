@@ -1,16 +1,58 @@
 package com.robin.transaction.service;
 
+import com.robin.transaction.model.AccountBalance;
+import com.robin.transaction.model.AccountVolume;
+import com.robin.transaction.model.BatchItemResult;
+import com.robin.transaction.model.CursorPage;
+import com.robin.transaction.model.DedupFilterStats;
+import com.robin.transaction.model.DescriptionIndexStats;
+import com.robin.transaction.model.MultiGetResult;
+import com.robin.transaction.model.RollupBucket;
+import com.robin.transaction.model.RollupGranularity;
 import com.robin.transaction.model.Transaction;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface TransactionService {
+
+    /**
+     * Largest number of transactions accepted by {@link #createTransactions(List)}.
+     */
+    int MAX_BATCH_SIZE = 10_000;
+
     CompletableFuture<Transaction> createTransaction(Transaction transaction);
+    CompletableFuture<List<BatchItemResult>> createTransactions(List<Transaction> transactions);
     CompletableFuture<Transaction> updateTransaction(String id, Transaction transaction);
     CompletableFuture<Void> deleteTransaction(String id);
     CompletableFuture<Transaction> getTransaction(String id);
+    CompletableFuture<MultiGetResult> getTransactionsByIds(List<String> ids);
     CompletableFuture<Page<Transaction>> getAllTransactions(Pageable pageable);
+    CompletableFuture<Page<Transaction>> getAllTransactions(LocalDateTime from, LocalDateTime to, Pageable pageable);
+    CompletableFuture<Page<Transaction>> getAllTransactions(LocalDateTime from, LocalDateTime to, Pageable pageable,
+                                                            boolean countTotal);
+    Stream<Transaction> streamTransactions(LocalDateTime from, LocalDateTime to);
+    CompletableFuture<CursorPage<Transaction>> getTransactions(String cursor, int size);
+    CompletableFuture<CursorPage<Transaction>> getTransactions(LocalDateTime from, LocalDateTime to,
+                                                              String cursor, int size);
+    CompletableFuture<Page<Transaction>> getTransactionsByAccount(String accountNumber, Pageable pageable);
+    CompletableFuture<CursorPage<Transaction>> getTransactionsByAccount(String accountNumber,
+                                                                       LocalDateTime from, LocalDateTime to,
+                                                                       String cursor, int size);
+    CompletableFuture<CursorPage<Transaction>> getTransactionsByAmount(BigDecimal minAmount, BigDecimal maxAmount,
+                                                                      LocalDateTime from, LocalDateTime to,
+                                                                      String cursor, int size);
+    CompletableFuture<CursorPage<Transaction>> searchTransactions(String query, boolean matchAll, String cursor, int size);
+    CompletableFuture<AccountBalance> getAccountBalance(String accountNumber);
+    CompletableFuture<List<AccountVolume>> getTopAccounts(Duration window, int size);
+    CompletableFuture<List<RollupBucket>> getRollups(RollupGranularity granularity, LocalDateTime from, LocalDateTime to);
+    CompletableFuture<DedupFilterStats> getDedupFilterStats();
+    CompletableFuture<DescriptionIndexStats> getDescriptionIndexStats();
 } 
\ No newline at end of file
@@ -1,13 +1,30 @@
 package com.robin.transaction.service;
 
+import com.robin.transaction.config.RollupProperties;
+import com.robin.transaction.config.TopAccountsProperties;
 import com.robin.transaction.exception.DuplicateTransactionException;
 import com.robin.transaction.exception.TransactionNotFoundException;
+import com.robin.transaction.model.AccountBalance;
+import com.robin.transaction.model.AccountVolume;
+import com.robin.transaction.model.Amount;
+import com.robin.transaction.model.BatchItemResult;
+import com.robin.transaction.model.CursorPage;
+import com.robin.transaction.model.DedupFilterStats;
+import com.robin.transaction.model.DescriptionIndexStats;
+import com.robin.transaction.model.DescriptionMatch;
+import com.robin.transaction.model.MultiGetResult;
+import com.robin.transaction.model.RollupBucket;
+import com.robin.transaction.model.RollupGranularity;
 import com.robin.transaction.model.Transaction;
+import com.robin.transaction.model.TransactionOrderKey;
+import com.robin.transaction.store.HeapTransactionStore;
+import com.robin.transaction.store.TransactionStore;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -18,38 +35,96 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the TransactionService interface.
- * Provides thread-safe transaction management with in-memory storage and caching.
+ * Provides thread-safe transaction management with caching on top of a {@link TransactionStore},
+ * which holds the transactions, their indexes and the duplicate detection index, and keeps
+ * running per-account balances in step with the store.
  */
 @Service
 public class TransactionServiceImpl implements TransactionService {
 
     private static final Logger logger = LoggerFactory.getLogger(TransactionServiceImpl.class);
+
+    // Largest number of ids accepted in one multi-get request
+    static final int MAX_MGET_SIZE = 1_000;
+
+    // Longest description search query accepted
+    static final int MAX_QUERY_LENGTH = 1_000;
     
-    // Primary storage for transactions using id as key
-    private final Map<String, Transaction> transactionStore = new ConcurrentHashMap<>();
-    
-    // Secondary storage for duplicate detection using composite key
-    private final Set<String> uniqueTransactions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    // Storage for transactions with time-ordered, per-account and duplicate detection indexes
+    private final TransactionStore transactionStore;
     
     // Validator for transaction data
     private final Validator validator;
 
+    // Number of changes applied to the store, to tell whether a cached range count is still current
+    private final LongAdder changes = new LongAdder();
+
+    // Transaction count of the last time range paged through by offset
+    private volatile RangeCount rangeCount;
+
+    // Credit, debit and count totals per account, updated after each change to the store
+    private final AccountBalances accountBalances = new AccountBalances();
+
+    // Count and sum by type per minute, hour and day, updated after each change to the store
+    private final TransactionRollups rollups;
+
+    // Approximate volume per account over a recent window, updated after each change to the store
+    private final TopAccounts topAccounts;
+
     /**
      * Constructor for TransactionServiceImpl.
      * @param validator Jakarta Validation validator instance
      */
     public TransactionServiceImpl(Validator validator) {
+        this(validator, new HeapTransactionStore());
+    }
+
+    /**
+     * Constructor for TransactionServiceImpl.
+     * @param validator Jakarta Validation validator instance
+     * @param transactionStore Storage engine for transactions
+     */
+    public TransactionServiceImpl(Validator validator, TransactionStore transactionStore) {
+        this(validator, transactionStore, new RollupProperties(), new TopAccountsProperties());
+    }
+
+    /**
+     * Constructor for TransactionServiceImpl.
+     * @param validator Jakarta Validation validator instance
+     * @param transactionStore Storage engine for transactions
+     * @param rollupProperties Number of time buckets kept per granularity
+     * @param topAccountsProperties Window buckets and accounts counted per bucket for the top accounts
+     */
+    @Autowired
+    public TransactionServiceImpl(Validator validator, TransactionStore transactionStore,
+                                  RollupProperties rollupProperties, TopAccountsProperties topAccountsProperties) {
         this.validator = validator;
+        this.transactionStore = transactionStore;
+        this.rollups = new TransactionRollups(rollupProperties.getMinuteBuckets(),
+                rollupProperties.getHourBuckets(), rollupProperties.getDayBuckets());
+        this.topAccounts = new TopAccounts(topAccountsProperties.getBucketSeconds(),
+                topAccountsProperties.getBuckets(), topAccountsProperties.getCapacity());
+        // Start from the transactions the store recovered
+        transactionStore.scan(null).forEach(this::added);
     }
 
     /**
      * Creates a new transaction with validation and duplicate checking.
+     * The duplicate check and the insert are one atomic store operation, so of several
+     * concurrent identical requests exactly one succeeds.
      * @param transaction The transaction to create
      * @return CompletableFuture containing the created transaction
      * @throws IllegalArgumentException if transaction is null
@@ -71,29 +146,124 @@ public class TransactionServiceImpl implements TransactionService {
         }
 
         logger.debug("Attempting to create transaction for account: {}", transaction.getAccountNumber());
-        
-        // Check for duplicate transactions
-        String key = generateTransactionKey(transaction);
-        if (uniqueTransactions.contains(key)) {
-            logger.warn("Duplicate transaction attempt detected for account: {}, amount: {}, type: {}", 
-                transaction.getAccountNumber(), transaction.getAmount(), transaction.getType());
-            throw new DuplicateTransactionException("A similar transaction already exists for this account");
-        }
 
-        // Generate UUID if not provided
+        // Generate UUID and timestamp if not provided
         if (transaction.getId() == null) {
             transaction.setId(UUID.randomUUID().toString());
         }
+        if (transaction.getTimestamp() == null) {
+            transaction.setTimestamp(LocalDateTime.now());
+        }
         
-        // Store transaction in both maps
-        transactionStore.put(transaction.getId(), transaction);
-        uniqueTransactions.add(key);
+        // Store the transaction unless its id is taken or a duplicate is already stored
+        if (!transactionStore.putIfAbsent(transaction)) {
+            if (transactionStore.get(transaction.getId()) != null) {
+                logger.warn("Transaction ID already exists: {}", transaction.getId());
+                throw new DuplicateTransactionException("A transaction with this ID already exists");
+            }
+            logger.warn("Duplicate transaction attempt detected for account: {}, amount: {}, type: {}", 
+                transaction.getAccountNumber(), transaction.getAmount(), transaction.getType());
+            throw new DuplicateTransactionException("A similar transaction already exists for this account");
+        }
+        added(transaction);
         
         logger.info("Successfully created transaction with ID: {} for account: {}", 
             transaction.getId(), transaction.getAccountNumber());
         return CompletableFuture.completedFuture(transaction);
     }
 
+    /**
+     * Creates a batch of transactions.
+     * The transactions are validated in parallel, and the valid ones are passed to the store in
+     * one call, which checks them for duplicates of stored transactions and of each other in one
+     * pass and, when journaled, waits for durability once for the whole batch.
+     * @param transactions The transactions to create
+     * @return CompletableFuture containing the outcome of each transaction, in batch order
+     * @throws IllegalArgumentException if the batch is null, empty or larger than
+     *         {@value TransactionService#MAX_BATCH_SIZE}
+     */
+    @Override
+    @Async
+    public CompletableFuture<List<BatchItemResult>> createTransactions(List<Transaction> transactions) {
+        if (transactions == null || transactions.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be empty");
+        }
+        if (transactions.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch cannot contain more than " + MAX_BATCH_SIZE + " transactions");
+        }
+        logger.debug("Attempting to create batch of {} transactions", transactions.size());
+
+        // Validate in parallel; a null result means the transaction is valid
+        List<Map<String, String>> errors = IntStream.range(0, transactions.size()).parallel()
+                .mapToObj(i -> validateBatchItem(transactions.get(i)))
+                .toList();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Transaction> valid = new ArrayList<>(transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            if (errors.get(i) == null) {
+                Transaction transaction = transactions.get(i);
+                if (transaction.getId() == null) {
+                    transaction.setId(UUID.randomUUID().toString());
+                }
+                if (transaction.getTimestamp() == null) {
+                    transaction.setTimestamp(now);
+                }
+                valid.add(transaction);
+            }
+        }
+
+        // Store the valid transactions unless they are duplicates
+        boolean[] stored = transactionStore.putAllIfAbsent(valid);
+        List<BatchItemResult> results = new ArrayList<>(transactions.size());
+        int created = 0;
+        for (int i = 0, v = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (errors.get(i) != null) {
+                results.add(BatchItemResult.invalid(transaction, errors.get(i)));
+            } else if (stored[v++]) {
+                added(transaction);
+                results.add(BatchItemResult.created(transaction));
+                created++;
+            } else {
+                results.add(BatchItemResult.duplicate(transaction));
+            }
+        }
+
+        logger.info("Created {} of a batch of {} transactions", created, transactions.size());
+        return CompletableFuture.completedFuture(results);
+    }
+
+    /**
+     * Validates one transaction of a batch.
+     * @return The validation errors by field, or null if the transaction is valid
+     */
+    private Map<String, String> validateBatchItem(Transaction transaction) {
+        if (transaction == null) {
+            return Map.of("transaction", "Transaction cannot be null");
+        }
+        Set<ConstraintViolation<Transaction>> violations = validator.validate(transaction);
+        if (!violations.isEmpty()) {
+            return violations.stream().collect(Collectors.toMap(
+                    violation -> violation.getPropertyPath().toString(),
+                    ConstraintViolation::getMessage,
+                    (first, second) -> first));
+        }
+        if (transaction.getId() != null && !isUuid(transaction.getId())) {
+            return Map.of("id", "Transaction ID must be a lowercase UUID");
+        }
+        return null;
+    }
+
+    private static boolean isUuid(String id) {
+        try {
+            // The store only accepts the canonical lowercase form
+            return id.length() == 36 && UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     /**
      * Updates an existing transaction with validation and duplicate checking.
      * @param id The ID of the transaction to update
@@ -120,17 +290,21 @@ public class TransactionServiceImpl implements TransactionService {
             throw new ConstraintViolationException(violations);
         }
 
-        // Check if transaction exists
-        if (!transactionStore.containsKey(id)) {
-            logger.warn("Transaction not found for update with ID: {}", id);
-            throw new TransactionNotFoundException("Transaction not found with ID: " + id);
-        }
-
-        // Update transaction
+        // Update transaction if it exists, retrying if it was changed concurrently
         transaction.setId(id);
-        String key = generateTransactionKey(transaction);
-        transactionStore.put(id, transaction);
-        uniqueTransactions.add(key);
+        if (transaction.getTimestamp() == null) {
+            transaction.setTimestamp(LocalDateTime.now());
+        }
+        Transaction current;
+        do {
+            current = transactionStore.get(id);
+            if (current == null) {
+                logger.warn("Transaction not found for update with ID: {}", id);
+                throw new TransactionNotFoundException("Transaction not found with ID: " + id);
+            }
+        } while (!transactionStore.replace(id, current, transaction));
+        removed(current);
+        added(transaction);
 
         logger.info("Successfully updated transaction with ID: {}", id);
         return CompletableFuture.completedFuture(transaction);
@@ -152,16 +326,13 @@ public class TransactionServiceImpl implements TransactionService {
     public CompletableFuture<Void> deleteTransaction(String id) {
         logger.debug("Attempting to delete transaction with ID: {}", id);
         
-        // Remove from primary store
-        Transaction transaction = transactionStore.remove(id);
-        if (transaction == null) {
+        // Remove from the store and all its indexes
+        Transaction removed = transactionStore.remove(id);
+        if (removed == null) {
             logger.warn("Transaction not found for deletion with ID: {}", id);
             throw new TransactionNotFoundException("Transaction not found with id: " + id);
         }
-
-        // Remove from account store
-        String key = generateTransactionKey(transaction);
-        uniqueTransactions.remove(key);
+        removed(removed);
         
         logger.info("Successfully deleted transaction with ID: {}", id);
         return CompletableFuture.completedFuture(null);
@@ -191,6 +362,41 @@ public class TransactionServiceImpl implements TransactionService {
         return CompletableFuture.completedFuture(transaction);
     }
 
+    /**
+     * Retrieves many transactions by id in one call.
+     * The ids are resolved in one pass over the store, which holds every transaction and is the
+     * source the per-id cache is filled from. Unknown ids are reported as missing instead of failing the call.
+     * @param ids The ids of the transactions to retrieve; repeated ids are looked up once
+     * @return CompletableFuture containing the found transactions and the missing ids
+     * @throws IllegalArgumentException if ids is null, empty, larger than {@value #MAX_MGET_SIZE} or contains null
+     */
+    @Override
+    @Async
+    public CompletableFuture<MultiGetResult> getTransactionsByIds(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Transaction IDs cannot be empty");
+        }
+        if (ids.size() > MAX_MGET_SIZE) {
+            throw new IllegalArgumentException("Cannot retrieve more than " + MAX_MGET_SIZE + " transactions at once");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Transaction ID cannot be null");
+        }
+
+        List<Transaction> found = new ArrayList<>(ids.size());
+        List<String> missing = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            Transaction transaction = transactionStore.get(id);
+            if (transaction == null) {
+                missing.add(id);
+            } else {
+                found.add(transaction);
+            }
+        }
+        logger.debug("Retrieved {} transactions by id, {} missing", found.size(), missing.size());
+        return CompletableFuture.completedFuture(new MultiGetResult(found, missing));
+    }
+
     /**
      * Retrieves all transactions with pagination.
      * @param pageable Pagination information
@@ -199,35 +405,494 @@ public class TransactionServiceImpl implements TransactionService {
     @Override
     @Async
     public CompletableFuture<Page<Transaction>> getAllTransactions(Pageable pageable) {
-        logger.debug("Retrieving all transactions with page: {}, size: {}", 
-            pageable.getPageNumber(), pageable.getPageSize());
-        
-        // Get all transactions and apply pagination
-        List<Transaction> transactions = new ArrayList<>(transactionStore.values());
-        
-        // Sort transactions by timestamp (most recent first)
-        transactions.sort((t1, t2) -> t2.getTimestamp().compareTo(t1.getTimestamp()));
-        
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), transactions.size());
-        
-        List<Transaction> pageContent = transactions.subList(start, end);
-        Page<Transaction> page = new PageImpl<>(pageContent, pageable, transactions.size());
-        
-        logger.debug("Retrieved {} transactions out of total {}", pageContent.size(), transactions.size());
+        return getAllTransactions(null, null, pageable);
+    }
+
+    /**
+     * Retrieves the transactions in a time range with pagination, most recent first, with the exact total.
+     * @see #getAllTransactions(LocalDateTime, LocalDateTime, Pageable, boolean)
+     */
+    @Override
+    @Async
+    public CompletableFuture<Page<Transaction>> getAllTransactions(LocalDateTime from, LocalDateTime to,
+                                                                   Pageable pageable) {
+        return getAllTransactions(from, to, pageable, true);
+    }
+
+    /**
+     * Retrieves the transactions in a time range with pagination, most recent first.
+     * The time-ordered index is entered at the end of the range and left at its start, so
+     * transactions outside the range are never read; without a range the total is the store count.
+     * Each page still walks past the transactions of the pages before it. The exact total of a range
+     * takes a walk of the whole range, unless the page is its last one; it is reused by the other pages
+     * of the range until the store changes. Without it, the total only tells whether more pages follow.
+     * {@link #getTransactions(LocalDateTime, LocalDateTime, String, int)} pages without either cost.
+     * @param from Inclusive start of the time range, or null for no lower bound
+     * @param to Exclusive end of the time range, or null for no upper bound
+     * @param pageable Pagination information
+     * @param countTotal Whether to count the whole range for the page total
+     * @return CompletableFuture containing a page of the transactions in the range
+     * @throws IllegalArgumentException if from is after to
+     */
+    @Override
+    @Async
+    public CompletableFuture<Page<Transaction>> getAllTransactions(LocalDateTime from, LocalDateTime to,
+                                                                   Pageable pageable, boolean countTotal) {
+        logger.debug("Retrieving transactions from: {} to: {} with page: {}, size: {}",
+            from, to, pageable.getPageNumber(), pageable.getPageSize());
+
+        // Walk the time-ordered index (most recent first) instead of copying and sorting the store,
+        // reading one transaction past the page to tell whether more follow
+        List<Transaction> read = streamTransactions(from, to)
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1L)
+                .toList();
+        boolean more = read.size() > pageable.getPageSize();
+        List<Transaction> pageContent = more ? read.subList(0, pageable.getPageSize()) : read;
+        long total;
+        if (from == null && to == null) {
+            total = transactionStore.count();
+        } else if (!more && (!pageContent.isEmpty() || pageable.getOffset() == 0)) {
+            // The last page of the range tells its size without counting
+            total = pageable.getOffset() + pageContent.size();
+        } else if (countTotal) {
+            total = countRange(from, to);
+        } else {
+            total = pageable.getOffset() + pageContent.size() + (more ? 1 : 0);
+        }
+        Page<Transaction> page = new PageImpl<>(pageContent, pageable, total);
+
+        logger.debug("Retrieved {} transactions out of total {}", pageContent.size(), total);
         return CompletableFuture.completedFuture(page);
     }
 
     /**
-     * Generates a unique key for a transaction based on account number, amount, and type.
-     * Used for duplicate detection.
-     * @param transaction The transaction to generate key for
-     * @return A string key combining account number, amount, and type
+     * Streams transactions, most recent first, optionally limited to a time range.
+     * The stream reads the time-ordered index lazily, seeking directly to the end of the range,
+     * so it holds no more than one transaction at a time however many are stored.
+     * @param from Inclusive start of the time range, or null for no lower bound
+     * @param to Exclusive end of the time range, or null for no upper bound
+     * @return A lazily evaluated stream of transactions
+     * @throws IllegalArgumentException if from is after to
+     */
+    @Override
+    public Stream<Transaction> streamTransactions(LocalDateTime from, LocalDateTime to) {
+        return scanRange(null, from, to);
+    }
+
+    /**
+     * Streams the transactions in a time range after an index position, most recent first.
+     * The scan seeks to whichever of the position and the end of the range comes later in
+     * index order and stops at the first transaction before the start of the range.
+     * @throws IllegalArgumentException if from is after to
+     */
+    private Stream<Transaction> scanRange(TransactionOrderKey after, LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Time range start cannot be after its end");
+        }
+        Stream<Transaction> transactions = transactionStore.scan(startAfter(after, to));
+        return from == null ? transactions
+                : transactions.takeWhile(transaction -> !transaction.getTimestamp().isBefore(from));
+    }
+
+    /**
+     * @return Whichever of an index position and the end of a time range comes later in index order, or null for neither
+     */
+    private static TransactionOrderKey startAfter(TransactionOrderKey after, LocalDateTime to) {
+        if (to == null) {
+            return after;
+        }
+        TransactionOrderKey end = TransactionOrderKey.olderThan(to);
+        return after == null || end.compareTo(after) > 0 ? end : after;
+    }
+
+    /**
+     * Retrieves transactions by keyset pagination, most recent first.
+     * Each page seeks directly to the position after the cursor, so its cost
+     * does not depend on how deep into the result set it is.
+     * @param cursor Cursor returned with the previous page, or null/blank for the first page
+     * @param size Maximum number of transactions to return
+     * @return CompletableFuture containing the page and the cursor of the next page
+     * @throws IllegalArgumentException if size is not positive or the cursor is malformed
+     */
+    @Override
+    @Async
+    public CompletableFuture<CursorPage<Transaction>> getTransactions(String cursor, int size) {
+        return getTransactions(null, null, cursor, size);
+    }
+
+    /**
+     * Retrieves the transactions in a time range by keyset pagination, most recent first.
+     * The first page seeks directly to the end of the range and every page stops at its start,
+     * so only the transactions of the page are read, however long the history around the range.
+     * @param from Inclusive start of the time range, or null for no lower bound
+     * @param to Exclusive end of the time range, or null for no upper bound
+     * @param cursor Cursor returned with the previous page, or null/blank for the first page
+     * @param size Maximum number of transactions to return
+     * @return CompletableFuture containing the page and the cursor of the next page
+     * @throws IllegalArgumentException if from is after to, size is not positive or the cursor is malformed
+     */
+    @Override
+    @Async
+    public CompletableFuture<CursorPage<Transaction>> getTransactions(LocalDateTime from, LocalDateTime to,
+                                                                     String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        logger.debug("Retrieving transactions from: {} to: {} after cursor: {}, size: {}", from, to, cursor, size);
+
+        TransactionOrderKey after = cursor == null || cursor.isBlank() ? null : TransactionOrderKey.fromCursor(cursor);
+
+        // Read one extra entry to find out whether there is a next page
+        List<Transaction> content = new ArrayList<>(scanRange(after, from, to).limit(size + 1L).toList());
+        String next = null;
+        if (content.size() > size) {
+            content.remove(size);
+            next = TransactionOrderKey.of(content.get(size - 1)).toCursor();
+        }
+        return CompletableFuture.completedFuture(new CursorPage<>(content, next));
+    }
+
+    /**
+     * Retrieves the transactions of one account with pagination, most recent first.
+     * Served from the per-account index, so the cost does not depend on the number of other accounts.
+     * @param accountNumber The account to list transactions for
+     * @param pageable Pagination information
+     * @return CompletableFuture containing a page of the account's transactions
+     * @throws IllegalArgumentException if accountNumber is null
+     */
+    @Override
+    @Async
+    public CompletableFuture<Page<Transaction>> getTransactionsByAccount(String accountNumber, Pageable pageable) {
+        if (accountNumber == null) {
+            throw new IllegalArgumentException("Account number cannot be null");
+        }
+        logger.debug("Retrieving transactions for account: {} with page: {}, size: {}",
+            accountNumber, pageable.getPageNumber(), pageable.getPageSize());
+
+        long total = transactionStore.countAccount(accountNumber);
+        List<Transaction> pageContent = transactionStore.scanAccount(accountNumber, null)
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .toList();
+        return CompletableFuture.completedFuture(new PageImpl<>(pageContent, pageable, total));
+    }
+
+    /**
+     * Retrieves the transactions of one account, optionally limited to a time range, by keyset
+     * pagination, most recent first.
+     * Each page seeks into the per-account index, so its cost depends neither on the other accounts
+     * nor on how deep into the account's history it is.
+     * @param accountNumber The account to list transactions for
+     * @param from Inclusive start of the time range, or null for no lower bound
+     * @param to Exclusive end of the time range, or null for no upper bound
+     * @param cursor Cursor returned with the previous page, or null/blank for the first page
+     * @param size Maximum number of transactions to return
+     * @return CompletableFuture containing the page and the cursor of the next page
+     * @throws IllegalArgumentException if accountNumber is null, the range is empty, size is not positive
+     *         or the cursor is malformed
+     */
+    @Override
+    @Async
+    public CompletableFuture<CursorPage<Transaction>> getTransactionsByAccount(String accountNumber,
+                                                                              LocalDateTime from, LocalDateTime to,
+                                                                              String cursor, int size) {
+        if (accountNumber == null) {
+            throw new IllegalArgumentException("Account number cannot be null");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Time range start cannot be after its end");
+        }
+        logger.debug("Retrieving transactions for account: {} from: {} to: {} after cursor: {}, size: {}",
+            accountNumber, from, to, cursor, size);
+
+        TransactionOrderKey after = cursor == null || cursor.isBlank() ? null : TransactionOrderKey.fromCursor(cursor);
+        Stream<Transaction> transactions = transactionStore.scanAccount(accountNumber, startAfter(after, to));
+        if (from != null) {
+            transactions = transactions.takeWhile(transaction -> !transaction.getTimestamp().isBefore(from));
+        }
+
+        // Read one extra entry to find out whether there is a next page
+        List<Transaction> content = new ArrayList<>(transactions.limit(size + 1L).toList());
+        String next = null;
+        if (content.size() > size) {
+            content.remove(size);
+            next = TransactionOrderKey.of(content.get(size - 1)).toCursor();
+        }
+        return CompletableFuture.completedFuture(new CursorPage<>(content, next));
+    }
+
+    /**
+     * Retrieves the transactions with an amount in a range, optionally also in a time range,
+     * by keyset pagination, most recent first.
+     * <p>
+     * Both the time-ordered and the amount index can answer the query; the other condition is then a filter.
+     * Rather than estimating which range is smaller, both indexes are walked in step: when one runs out, its
+     * range is the smaller one and its matches are the result, and the time-ordered walk stops as soon as it
+     * has a full page. So the cost is bounded by the smaller of the two ranges, and by the position of the
+     * page in the time range, however many transactions are stored.
+     * @param minAmount Inclusive lower bound of the amount, or null for none
+     * @param maxAmount Inclusive upper bound of the amount, or null for none
+     * @param from Inclusive start of the time range, or null for no lower bound
+     * @param to Exclusive end of the time range, or null for no upper bound
+     * @param cursor Cursor returned with the previous page, or null/blank for the first page
+     * @param size Maximum number of transactions to return
+     * @return CompletableFuture containing the page and the cursor of the next page
+     * @throws IllegalArgumentException if a range is empty, size is not positive or the cursor is malformed
+     */
+    @Override
+    @Async
+    public CompletableFuture<CursorPage<Transaction>> getTransactionsByAmount(
+            BigDecimal minAmount, BigDecimal maxAmount, LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+            throw new IllegalArgumentException("Minimum amount cannot be greater than maximum amount");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Time range start cannot be after its end");
+        }
+
+        TransactionOrderKey start = startAfter(
+                cursor == null || cursor.isBlank() ? null : TransactionOrderKey.fromCursor(cursor), to);
+        long minMinorUnits = minAmount == null ? Long.MIN_VALUE : toMinorUnits(minAmount, RoundingMode.CEILING);
+        long maxMinorUnits = maxAmount == null ? Long.MAX_VALUE : toMinorUnits(maxAmount, RoundingMode.FLOOR);
+
+        Iterator<Transaction> byTime = transactionStore.scan(start).iterator();
+        Iterator<Transaction> byAmount = transactionStore.scanAmount(minMinorUnits, maxMinorUnits).iterator();
+        List<Transaction> timeMatches = new ArrayList<>();
+        // The amount index returns matches out of time order, so only the first size + 1 of them are kept
+        PriorityQueue<Transaction> amountMatches = new PriorityQueue<>(
+                Comparator.<Transaction, TransactionOrderKey>comparing(TransactionOrderKey::of).reversed());
+        List<Transaction> content;
+        while (true) {
+            Transaction next = byTime.hasNext() ? byTime.next() : null;
+            if (next == null || from != null && next.getTimestamp().isBefore(from)) {
+                logger.debug("Served amount range query from the time-ordered index");
+                content = timeMatches;
+                break;
+            }
+            if (inRange(next.getAmount(), minAmount, maxAmount)) {
+                timeMatches.add(next);
+                if (timeMatches.size() > size) {
+                    content = timeMatches;
+                    break;
+                }
+            }
+            if (!byAmount.hasNext()) {
+                logger.debug("Served amount range query from the amount index");
+                content = new ArrayList<>(amountMatches);
+                content.sort(Comparator.comparing(TransactionOrderKey::of));
+                break;
+            }
+            Transaction candidate = byAmount.next();
+            if ((start == null || TransactionOrderKey.of(candidate).compareTo(start) > 0)
+                    && (from == null || !candidate.getTimestamp().isBefore(from))) {
+                amountMatches.add(candidate);
+                if (amountMatches.size() > size + 1) {
+                    amountMatches.poll();
+                }
+            }
+        }
+
+        String next = null;
+        if (content.size() > size) {
+            content = content.subList(0, size);
+            next = TransactionOrderKey.of(content.get(size - 1)).toCursor();
+        }
+        return CompletableFuture.completedFuture(new CursorPage<>(List.copyOf(content), next));
+    }
+
+    private static long toMinorUnits(BigDecimal amount, RoundingMode rounding) {
+        BigDecimal minorUnits = amount.movePointRight(Amount.SCALE).setScale(0, rounding);
+        // Bounds beyond what can be stored match everything or nothing on that side
+        return minorUnits.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0 ? Long.MAX_VALUE
+                : minorUnits.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) < 0 ? Long.MIN_VALUE
+                : minorUnits.longValue();
+    }
+
+    private static boolean inRange(BigDecimal amount, BigDecimal minAmount, BigDecimal maxAmount) {
+        return (minAmount == null || amount.compareTo(minAmount) >= 0)
+                && (maxAmount == null || amount.compareTo(maxAmount) <= 0);
+    }
+
+    /**
+     * Searches transaction descriptions, most recently stored or changed first, by keyset pagination.
+     * Words are matched whole and ignoring case, through the store's inverted index, so the cost depends
+     * on how often the query words occur rather than on the number of transactions.
+     * @param query The words to search for
+     * @param matchAll true for descriptions containing every word, false for any word
+     * @param cursor Cursor returned with the previous page, or null/blank for the first page
+     * @param size Maximum number of transactions to return
+     * @return CompletableFuture containing the page and the cursor of the next page
+     * @throws IllegalArgumentException if the query is blank or too long, size is not positive or the cursor is malformed
+     */
+    @Override
+    @Async
+    public CompletableFuture<CursorPage<Transaction>> searchTransactions(String query, boolean matchAll,
+                                                                        String cursor, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query cannot be empty");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query cannot be longer than " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        long before = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                before = Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+            }
+        }
+        logger.debug("Searching descriptions for: {} (all: {}) before: {}, size: {}", query, matchAll, before, size);
+
+        // Read one extra match to find out whether there is a next page
+        List<DescriptionMatch> matches = transactionStore.searchDescriptions(query, matchAll, before)
+                .limit(size + 1L)
+                .toList();
+        String next = matches.size() > size ? Long.toString(matches.get(size - 1).position()) : null;
+        List<Transaction> content = matches.stream()
+                .limit(size)
+                .map(DescriptionMatch::transaction)
+                .toList();
+        return CompletableFuture.completedFuture(new CursorPage<>(content, next));
+    }
+
+    /**
+     * Retrieves the running totals of an account.
+     * The totals are maintained as transactions are created, updated and deleted,
+     * so the cost does not depend on the number of transactions of the account.
+     * @param accountNumber The account
+     * @return CompletableFuture containing the account's balance, credit and debit totals and
+     *         transaction count, all zero if it has no transactions
+     * @throws IllegalArgumentException if accountNumber is null
+     */
+    @Override
+    @Async
+    public CompletableFuture<AccountBalance> getAccountBalance(String accountNumber) {
+        if (accountNumber == null) {
+            throw new IllegalArgumentException("Account number cannot be null");
+        }
+        return CompletableFuture.completedFuture(accountBalances.get(accountNumber));
+    }
+
+    /**
+     * Retrieves the accounts with the largest transaction volume over a recent window.
+     * Volumes are estimated from fixed-size per-bucket summaries maintained as transactions are
+     * created, updated and deleted, so the cost depends on the window and the summary size,
+     * not on the number of transactions or accounts.
+     * @param window Length of the window ending now, rounded up to whole buckets
+     * @param size Maximum number of accounts to return
+     * @return CompletableFuture containing the accounts, largest volume first, with the possible overcount of each
+     * @throws IllegalArgumentException if window is not positive or longer than the configured buckets,
+     *                                  or size is not positive or larger than the accounts counted per bucket
+     */
+    @Override
+    @Async
+    public CompletableFuture<List<AccountVolume>> getTopAccounts(Duration window, int size) {
+        if (window == null || window.isNegative() || window.isZero()
+                || window.compareTo(topAccounts.maxWindow()) > 0) {
+            throw new IllegalArgumentException("Window must be positive and at most " + topAccounts.maxWindow());
+        }
+        if (size < 1 || size > topAccounts.capacity()) {
+            throw new IllegalArgumentException("Size must be between 1 and " + topAccounts.capacity());
+        }
+        return CompletableFuture.completedFuture(topAccounts.get(window, size));
+    }
+
+    /**
+     * Retrieves the count and sum by type of the transactions per time bucket.
+     * The buckets are maintained as transactions are created, updated and deleted,
+     * so the cost depends on the number of buckets, not the number of transactions.
+     * Only the most recent buckets of each granularity are kept, as configured.
+     * @param granularity The bucket width
+     * @param from Start of the time range, inclusive, or null for the oldest bucket kept
+     * @param to End of the time range, exclusive, or null for no end
+     * @return CompletableFuture containing the non-empty buckets overlapping the range, oldest first
+     * @throws IllegalArgumentException if granularity is null or from is after to
+     */
+    @Override
+    @Async
+    public CompletableFuture<List<RollupBucket>> getRollups(RollupGranularity granularity,
+                                                           LocalDateTime from, LocalDateTime to) {
+        if (granularity == null) {
+            throw new IllegalArgumentException("Granularity cannot be null");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Time range start cannot be after its end");
+        }
+        return CompletableFuture.completedFuture(rollups.get(granularity, from, to));
+    }
+
+    /**
+     * Retrieves the counters of the Bloom filters in front of the duplicate check.
+     * @return CompletableFuture containing the filter counters
+     */
+    @Override
+    @Async
+    public CompletableFuture<DedupFilterStats> getDedupFilterStats() {
+        return CompletableFuture.completedFuture(transactionStore.dedupFilterStats());
+    }
+
+    /**
+     * Retrieves the size and estimated memory of the full-text index of descriptions.
+     * @return CompletableFuture containing the index size
+     */
+    @Override
+    @Async
+    public CompletableFuture<DescriptionIndexStats> getDescriptionIndexStats() {
+        return CompletableFuture.completedFuture(transactionStore.descriptionIndexStats());
+    }
+
+    /**
+     * Updates the running totals with a transaction the store has just added.
+     * <p>
+     * The running totals rely on this and {@link #removed} being called after the store has made each
+     * change, with the exact transaction the store added, replaced or removed, so once concurrent writes
+     * have completed the totals equal a full recomputation. A total read while writes to it are in flight
+     * may include some of them only.
+     */
+    private void added(Transaction transaction) {
+        changes.increment();
+        accountBalances.add(transaction);
+        rollups.add(transaction);
+        topAccounts.add(transaction);
+    }
+
+    /**
+     * Updates the running totals with a transaction the store has just removed or replaced.
      */
-    private String generateTransactionKey(Transaction transaction) {
-        return String.format("%s-%s-%s", 
-            transaction.getAccountNumber(), 
-            transaction.getAmount(), 
-            transaction.getType());
+    private void removed(Transaction transaction) {
+        changes.increment();
+        accountBalances.subtract(transaction);
+        rollups.subtract(transaction);
+        topAccounts.subtract(transaction);
+    }
+
+    /**
+     * Counts the transactions in a time range, reusing the last count while the store has not changed.
+     */
+    private long countRange(LocalDateTime from, LocalDateTime to) {
+        // Read the version before counting, so a change made during the count invalidates it
+        long version = changes.sum();
+        RangeCount cached = rangeCount;
+        if (cached != null && cached.version() == version
+                && Objects.equals(cached.from(), from) && Objects.equals(cached.to(), to)) {
+            return cached.count();
+        }
+        long count = streamTransactions(from, to).count();
+        rangeCount = new RangeCount(from, to, version, count);
+        return count;
+    }
+
+    private record RangeCount(LocalDateTime from, LocalDateTime to, long version, long count) {
     }
 } 
\ No newline at end of file
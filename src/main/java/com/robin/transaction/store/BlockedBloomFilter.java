@@ -0,0 +1,97 @@
+package com.robin.transaction.store;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent blocked Bloom filter of dedup keys.
+ * <p>
+ * Each key maps to one 512-bit block (one cache line) and sets all of its bits inside that block,
+ * so a lookup touches a single cache line. Bits are only ever set, with atomic ORs, so lookups and
+ * inserts never lock. Keys cannot be removed; a filter is dropped as a whole with its dedup bucket.
+ */
+final class BlockedBloomFilter {
+
+    private static final int BLOCK_WORDS = 8;
+    private static final int BLOCK_BITS = BLOCK_WORDS * Long.SIZE;
+
+    private final AtomicLongArray words;
+    private final int blocks;
+    private final int hashes;
+
+    /**
+     * @param bytes Filter size, rounded down to whole 64-byte blocks (at least one)
+     * @param hashes Number of bits set per key
+     */
+    BlockedBloomFilter(long bytes, int hashes) {
+        this.blocks = (int) Math.clamp(bytes / (BLOCK_WORDS * Long.BYTES), 1, Integer.MAX_VALUE / BLOCK_WORDS);
+        this.words = new AtomicLongArray(blocks * BLOCK_WORDS);
+        this.hashes = hashes;
+    }
+
+    /**
+     * Size a filter needs to hold a number of keys at a target false-positive probability,
+     * {@code -n ln(fpp) / ln(2)^2} bits.
+     * @param keys Expected number of keys
+     * @param fpp Target false-positive probability, between 0 and 1
+     * @return The size in bytes
+     */
+    static long bytesFor(long keys, double fpp) {
+        if (!(fpp > 0 && fpp < 1)) {
+            throw new IllegalArgumentException("False-positive probability must be between 0 and 1");
+        }
+        return (long) Math.ceil(-keys * Math.log(fpp) / (Math.log(2) * Math.log(2)) / Byte.SIZE);
+    }
+
+    /**
+     * Number of bits to set per key that minimizes the false-positive probability of a filter,
+     * {@code (m / n) ln(2)} for m bits and n keys.
+     * @param bytes Filter size
+     * @param keys Expected number of keys
+     * @return The number of hash functions
+     */
+    static int hashesFor(long bytes, long keys) {
+        return (int) Math.clamp(Math.round((double) bytes * Byte.SIZE / Math.max(keys, 1) * Math.log(2)), 1, 16);
+    }
+
+    /**
+     * @param key The dedup key
+     * @return false if the key was never added, true if it may have been
+     */
+    boolean mightContain(DedupKey key) {
+        long hash = key.hash64();
+        int base = block(hash);
+        int position = (int) hash;
+        int step = (int) hash >>> 9 | 1;
+        for (int i = 0; i < hashes; i++, position += step) {
+            int bit = position & (BLOCK_BITS - 1);
+            if ((words.get(base + (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param key The dedup key to add
+     */
+    void add(DedupKey key) {
+        long hash = key.hash64();
+        int base = block(hash);
+        int position = (int) hash;
+        int step = (int) hash >>> 9 | 1;
+        for (int i = 0; i < hashes; i++, position += step) {
+            int bit = position & (BLOCK_BITS - 1);
+            int word = base + (bit >>> 6);
+            long mask = 1L << bit;
+            // Skip the atomic write when the bit is already set, which is common once the filter fills up
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, bits) -> current | bits);
+            }
+        }
+    }
+
+    private int block(long hash) {
+        // Multiply-shift range reduction on the high bits, which the in-block positions do not use
+        return (int) (((hash >>> 32) * blocks) >>> 32) * BLOCK_WORDS;
+    }
+}
@@ -0,0 +1,285 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.DedupFilterStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-windowed duplicate detection index of a store.
+ * <p>
+ * Two transactions are only duplicates if both fall inside the window, by transaction timestamp.
+ * The window is split into buckets, held in a ring. Each bucket counts the stored transactions per
+ * dedup key whose timestamps fall into its time slice. When time moves on, a bucket slot is reused
+ * by swapping in a new bucket, so expired keys are dropped in O(1) and memory stays bounded by the
+ * traffic of one window. Timestamps in the future count as now.
+ * <p>
+ * Stores update the index inside the compute operation of the affected id, so the counts match the
+ * stored rows. Claims of the same key are serialized by a lock striped by key; claims of different
+ * accounts, amounts or types do not contend.
+ * <p>
+ * Each bucket can have a {@link BlockedBloomFilter} of its keys in front of the exact counts. Most
+ * transactions are unique, so most claims are answered by the filters alone; the counts are only
+ * probed when a filter reports a possible hit. Removed keys stay in the filters until their bucket
+ * expires and only cost an extra exact probe. Each filter is sized for the expected keys of one bucket
+ * at the target false-positive probability; the filter memory caps that size, missing the target when
+ * it applies.
+ */
+class DedupIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DedupIndex.class);
+
+    /**
+     * Default duplicate detection window.
+     */
+    static final Duration DEFAULT_WINDOW = Duration.ofMinutes(5);
+
+    /**
+     * Default number of buckets the window is split into.
+     */
+    static final int DEFAULT_BUCKETS = 10;
+
+    /**
+     * Default expected number of transactions per window, which sizes the Bloom filters.
+     */
+    static final long DEFAULT_EXPECTED_KEYS = 1_000_000;
+
+    /**
+     * Default memory cap of the Bloom filters of all buckets of the window.
+     */
+    static final long DEFAULT_FILTER_BYTES = 4L * 1024 * 1024;
+
+    /**
+     * Default target false-positive probability of the Bloom filters.
+     */
+    static final double DEFAULT_FILTER_FPP = 0.01;
+
+    private static final int LOCK_STRIPES = 64;
+
+    // Results of a probe of the live buckets
+    private static final int ABSENT = 0;
+    private static final int FILTER_HIT = 1;
+    private static final int PRESENT = 2;
+
+    private final long bucketMillis;
+    private final int liveBuckets;
+    private final AtomicReferenceArray<Bucket> ring;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final LongSupplier clock;
+    private final long filterBytes;
+    private final int filterHashes;
+
+    // Claims checked, claims the filters reported as possible hits, and possible hits that were not duplicates
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder filterHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    DedupIndex() {
+        this(DEFAULT_WINDOW, DEFAULT_BUCKETS, DEFAULT_EXPECTED_KEYS, DEFAULT_FILTER_BYTES, DEFAULT_FILTER_FPP);
+    }
+
+    /**
+     * @param window How far back duplicates are detected
+     * @param buckets Number of buckets the window is split into; more buckets expire keys closer to the window
+     * @param expectedKeys Expected number of transactions per window, which sizes the Bloom filters
+     * @param filterBytes Memory cap of the Bloom filters of the whole window, or 0 to always probe the exact counts
+     * @param filterFpp Target false-positive probability of the Bloom filters
+     */
+    DedupIndex(Duration window, int buckets, long expectedKeys, long filterBytes, double filterFpp) {
+        // Transaction timestamps are local date-times stored as if they were UTC, so read the clock the same way
+        this(window, buckets, expectedKeys, filterBytes, filterFpp,
+                () -> LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+
+    DedupIndex(Duration window, int buckets, long expectedKeys, long filterBytes, double filterFpp,
+               LongSupplier clock) {
+        if (window.toMillis() < 1 || buckets < 1) {
+            throw new IllegalArgumentException("Dedup window and bucket count must be positive");
+        }
+        if (expectedKeys < 1) {
+            throw new IllegalArgumentException("Expected dedup keys must be positive");
+        }
+        if (filterBytes < 0) {
+            throw new IllegalArgumentException("Dedup filter size cannot be negative");
+        }
+        this.liveBuckets = buckets;
+        this.bucketMillis = Math.max(1, window.toMillis() / buckets);
+        this.ring = new AtomicReferenceArray<>(buckets + 1);
+        this.clock = clock;
+        long keysPerBucket = Math.ceilDiv(expectedKeys, buckets);
+        long targetBytes = BlockedBloomFilter.bytesFor(keysPerBucket, filterFpp);
+        // The ring holds one bucket more than the window, which is being replaced as time moves on
+        long capBytes = filterBytes / (buckets + 1);
+        if (filterBytes > 0 && targetBytes > capBytes) {
+            logger.warn("Dedup Bloom filters need {} bytes per bucket for {} keys at a false-positive probability "
+                    + "of {}, but the filter memory caps them at {} bytes", targetBytes, keysPerBucket, filterFpp,
+                    capBytes);
+        }
+        this.filterBytes = Math.min(targetBytes, capBytes);
+        this.filterHashes = filterBytes == 0 ? 0 : BlockedBloomFilter.hashesFor(this.filterBytes, keysPerBucket);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Atomically registers a key unless a transaction with the same key is stored inside the window.
+     * Transactions older than the window are never duplicates and are not registered.
+     * @param key The dedup key
+     * @param epochMilli The transaction timestamp
+     * @return true if the transaction is not a duplicate, false if the key is already registered
+     */
+    boolean claim(DedupKey key, long epochMilli) {
+        long now = currentEpoch();
+        long epoch = Math.min(Math.floorDiv(epochMilli, bucketMillis), now);
+        if (epoch <= now - liveBuckets) {
+            return true;
+        }
+        // Repeated duplicates are rejected without taking the lock
+        lookups.increment();
+        int found = probe(key, now);
+        if (found != ABSENT && filterHashes != 0) {
+            filterHits.increment();
+            if (found == FILTER_HIT) {
+                falsePositives.increment();
+            }
+        }
+        if (found == PRESENT) {
+            return false;
+        }
+        synchronized (locks[Math.floorMod(key.hashCode(), LOCK_STRIPES)]) {
+            if (probe(key, now) == PRESENT) {
+                return false;
+            }
+            Bucket bucket = bucket(epoch, now, true);
+            if (bucket != null) {
+                bucket.register(key);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Registers a key without checking for duplicates.
+     * @param key The dedup key, or null to do nothing
+     * @param epochMilli The transaction timestamp
+     */
+    void add(DedupKey key, long epochMilli) {
+        if (key == null) {
+            return;
+        }
+        long now = currentEpoch();
+        Bucket bucket = bucket(Math.min(Math.floorDiv(epochMilli, bucketMillis), now), now, true);
+        if (bucket != null) {
+            bucket.register(key);
+        }
+    }
+
+    /**
+     * Unregisters a key of a removed or changed transaction.
+     * @param key The dedup key, or null to do nothing
+     * @param epochMilli The transaction timestamp
+     */
+    void release(DedupKey key, long epochMilli) {
+        if (key == null) {
+            return;
+        }
+        long now = currentEpoch();
+        Bucket bucket = bucket(Math.min(Math.floorDiv(epochMilli, bucketMillis), now), now, false);
+        if (bucket != null) {
+            bucket.counts.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * @return Counters of the claims and of how the Bloom filters answered them
+     */
+    DedupFilterStats stats() {
+        return new DedupFilterStats(lookups.sum(), filterHits.sum(), falsePositives.sum());
+    }
+
+    /**
+     * Looks a key up in the live buckets, probing the exact counts only where the filter reports a possible hit.
+     * @return ABSENT if no filter reported a possible hit, FILTER_HIT if one did but the key is not registered,
+     *         or PRESENT if the key is registered
+     */
+    private int probe(DedupKey key, long now) {
+        int found = ABSENT;
+        for (int i = 0; i < liveBuckets; i++) {
+            Bucket bucket = ring.get(slot(now - i));
+            if (bucket != null && bucket.epoch == now - i && bucket.mightContain(key)) {
+                if (bucket.counts.containsKey(key)) {
+                    return PRESENT;
+                }
+                found = FILTER_HIT;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the bucket of a time slice, replacing the expired bucket in its slot if requested.
+     * @return The bucket, or null if the slice has expired or has no bucket
+     */
+    private Bucket bucket(long epoch, long now, boolean create) {
+        if (epoch <= now - liveBuckets) {
+            return null;
+        }
+        int slot = slot(epoch);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch >= epoch) {
+                return bucket.epoch == epoch ? bucket : null;
+            }
+            if (!create) {
+                return null;
+            }
+            Bucket created = new Bucket(epoch, filterHashes == 0 ? null : new BlockedBloomFilter(filterBytes, filterHashes));
+            if (ring.compareAndSet(slot, bucket, created)) {
+                return created;
+            }
+        }
+    }
+
+    private long currentEpoch() {
+        return Math.floorDiv(clock.getAsLong(), bucketMillis);
+    }
+
+    private int slot(long epoch) {
+        return (int) Math.floorMod(epoch, (long) ring.length());
+    }
+
+    /**
+     * Dedup key counts of the transactions in one time slice, behind an optional Bloom filter of the keys.
+     */
+    private static final class Bucket {
+        final long epoch;
+        final BlockedBloomFilter filter;
+        final Map<DedupKey, Integer> counts = new ConcurrentHashMap<>();
+
+        Bucket(long epoch, BlockedBloomFilter filter) {
+            this.epoch = epoch;
+            this.filter = filter;
+        }
+
+        boolean mightContain(DedupKey key) {
+            return filter == null || filter.mightContain(key);
+        }
+
+        void register(DedupKey key) {
+            // Set the filter bits first, so a key found in the counts is never filtered out
+            if (filter != null) {
+                filter.add(key);
+            }
+            counts.merge(key, 1, Integer::sum);
+        }
+    }
+}
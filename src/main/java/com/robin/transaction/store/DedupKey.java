@@ -0,0 +1,82 @@
+package com.robin.transaction.store;
+
+import java.util.Objects;
+
+/**
+ * Duplicate detection key: account number, amount in fixed-point minor units and type.
+ * <p>
+ * The fields are kept as they are, without formatting them into a String, and the hash is
+ * computed once when the key is created. The amount is normalized to minor units, so amounts
+ * written with different scales ("10" and "10.00") have the same key. A separate 64-bit hash,
+ * mixed from all fields, drives the Bloom filters, which need more independent bits than the
+ * 32-bit hash code has.
+ */
+final class DedupKey {
+
+    private final String accountNumber;
+    private final long amountMinorUnits;
+    private final String type;
+    private final int hash;
+    private final long hash64;
+
+    DedupKey(String accountNumber, long amountMinorUnits, String type) {
+        this.accountNumber = accountNumber;
+        this.amountMinorUnits = amountMinorUnits;
+        this.type = type;
+        this.hash = (31 * Objects.hashCode(accountNumber) + Long.hashCode(amountMinorUnits)) * 31
+                + Objects.hashCode(type);
+        this.hash64 = hash64(accountNumber, amountMinorUnits, type);
+    }
+
+    /**
+     * @return A 64-bit hash of the key, each bit of which depends on every field
+     */
+    long hash64() {
+        return hash64;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof DedupKey key
+                && hash == key.hash
+                && amountMinorUnits == key.amountMinorUnits
+                && Objects.equals(accountNumber, key.accountNumber)
+                && Objects.equals(type, key.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return accountNumber + '-' + amountMinorUnits + '-' + type;
+    }
+
+    /**
+     * FNV-1a over the characters of the account and type, combined with the amount and spread over
+     * 64 bits by the finalizer of MurmurHash3.
+     */
+    private static long hash64(String accountNumber, long amountMinorUnits, String type) {
+        long h = 0xCBF29CE484222325L;
+        h = fnv1a(h, accountNumber);
+        h = (h ^ '-') * 0x100000001B3L;
+        h = fnv1a(h, type);
+        h ^= amountMinorUnits * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE1A85EC3L;
+        return h ^ (h >>> 33);
+    }
+
+    private static long fnv1a(long h, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * 0x100000001B3L;
+            }
+        }
+        return h;
+    }
+}
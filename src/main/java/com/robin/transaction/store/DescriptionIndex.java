@@ -0,0 +1,667 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.DescriptionIndexStats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index of transaction descriptions, for full-text search.
+ * <p>
+ * Descriptions are split into lower-case words of letters and digits. The index is split into shards by
+ * id, each a separate index with its own documents, lock and compaction. Each description indexed in a
+ * shard gets the shard's next document number, and each word keeps the numbers of the documents
+ * containing it as a posting list of varint-encoded gaps, so a posting usually takes one or two bytes.
+ * Postings are cut into blocks whose first document is stored whole, so a list can be read backwards a
+ * block at a time. Replacing or removing a description marks its document dead; dead documents are
+ * skipped by searches, and once they outnumber the live ones of a shard its live documents are
+ * renumbered from zero and its postings rewritten, so memory follows the number of live descriptions
+ * and a compaction holds up only one shard. Each document also keeps a position, drawn from a counter
+ * shared by the shards, that only grows and survives renumbering, which searches report and resume from.
+ * <p>
+ * A search walks the posting lists of its terms in each shard downwards from the resume position and
+ * stops as soon as it has enough matches, so a page decodes only the blocks around it, and merges the
+ * shards' matches by position.
+ * <p>
+ * Stores update the index inside the compute operation of the affected id, so the document of an id
+ * follows its stored row. Writers never wait for a lock: an update is tokenized by the caller and queued
+ * on its shard, and whichever thread next finds the shard unlocked applies the queued updates in order.
+ * Searches apply the queued updates before reading, so they see every update made before they started,
+ * and decode postings under the shard's read lock.
+ */
+final class DescriptionIndex {
+
+    /**
+     * Longest word indexed; longer words are cut to this length.
+     */
+    static final int MAX_TERM_LENGTH = 64;
+
+    private static final int DEFAULT_SHARDS = 16;
+
+    // Dead documents of a shard are dropped from its postings once there are at least this many and more than live ones
+    private static final int MIN_COMPACTION_DEAD = 1024;
+
+    // Matches found by the first search of a stream, doubled for each further search up to the maximum
+    private static final int FIRST_BATCH = 32;
+    private static final int MAX_BATCH = 1024;
+
+    // Approximate heap cost of the objects behind each posting list, document and id on a 64-bit JVM
+    private static final int TERM_OVERHEAD_BYTES = 120;
+    private static final int DOCUMENT_BYTES = 3 * Long.BYTES;
+    private static final int ID_ENTRY_BYTES = 48;
+
+    private final Shard[] shards;
+
+    // Position of the next indexed document in any shard
+    private final AtomicLong nextPosition = new AtomicLong();
+
+    DescriptionIndex() {
+        this(DEFAULT_SHARDS);
+    }
+
+    /**
+     * @param shards Number of independently locked and compacted shards
+     */
+    DescriptionIndex(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Description index shards must be positive");
+        }
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Indexes the description of an id, replacing its previous description.
+     * @param description The description, or null for none
+     */
+    void add(long hi, long lo, String description) {
+        shard(hi, lo).update(new Update(hi, lo, tokenize(description)));
+    }
+
+    /**
+     * Removes the description of an id from the index.
+     */
+    void remove(long hi, long lo) {
+        shard(hi, lo).update(new Update(hi, lo, List.of()));
+    }
+
+    /**
+     * Streams the live documents matching a query, most recently indexed first. The matches are found
+     * by searches of growing size as the stream is consumed.
+     * @param terms Search terms, already tokenized
+     * @param matchAll true for documents containing every term, false for any term
+     * @param before Only documents positioned below this are returned
+     * @return The matching documents
+     */
+    Stream<Hit> stream(Collection<String> terms, boolean matchAll, long before) {
+        return Stream.iterate(search(terms, matchAll, before, FIRST_BATCH), Objects::nonNull,
+                        hits -> hits.more() ? search(terms, matchAll, hits.positions()[hits.positions().length - 1],
+                                Math.min(hits.positions().length * 2, MAX_BATCH)) : null)
+                .flatMap(Hits::stream);
+    }
+
+    /**
+     * Finds the live documents matching a query, most recently indexed first.
+     * @param terms Search terms, already tokenized
+     * @param matchAll true for documents containing every term, false for any term
+     * @param before Only documents positioned below this are returned
+     * @param limit Maximum number of documents to return
+     * @return The matching documents and their ids
+     */
+    Hits search(Collection<String> terms, boolean matchAll, long before, int limit) {
+        if (shards.length == 1) {
+            return shards[0].search(terms, matchAll, before, limit);
+        }
+        // Each shard returns its own first matches, so the first matches overall are among them
+        Hits[] found = new Hits[shards.length];
+        int total = 0;
+        boolean more = false;
+        for (int i = 0; i < shards.length; i++) {
+            found[i] = shards[i].search(terms, matchAll, before, limit);
+            total += found[i].positions().length;
+            more |= found[i].more();
+        }
+        int count = Math.min(total, limit);
+        long[] position = new long[count];
+        long[] hi = new long[count];
+        long[] lo = new long[count];
+        int[] next = new int[shards.length];
+        for (int m = 0; m < count; m++) {
+            int from = -1;
+            for (int i = 0; i < shards.length; i++) {
+                if (next[i] < found[i].positions().length
+                        && (from < 0 || found[i].positions()[next[i]] > found[from].positions()[next[from]])) {
+                    from = i;
+                }
+            }
+            position[m] = found[from].positions()[next[from]];
+            hi[m] = found[from].idHi()[next[from]];
+            lo[m] = found[from].idLo()[next[from]];
+            next[from]++;
+        }
+        return new Hits(position, hi, lo, more || total > limit);
+    }
+
+    /**
+     * @return Size counters and the estimated heap use of the index
+     */
+    DescriptionIndexStats stats() {
+        Set<String> terms = new HashSet<>();
+        long[] totals = new long[5];
+        for (Shard shard : shards) {
+            shard.addStats(terms, totals);
+        }
+        long liveDocuments = totals[0];
+        long estimatedBytes = totals[4];
+        return new DescriptionIndexStats(liveDocuments, totals[1], terms.size(), totals[2], totals[3],
+                estimatedBytes, liveDocuments == 0 ? 0 : estimatedBytes / liveDocuments);
+    }
+
+    /**
+     * Splits text into its distinct lower-case words of letters and digits, in order of first appearance.
+     * @param text The text, or null
+     * @return The words, cut to {@value #MAX_TERM_LENGTH} characters
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); ) {
+            int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.appendCodePoint(Character.toLowerCase(codePoint));
+                }
+            } else if (!term.isEmpty()) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return List.copyOf(terms);
+    }
+
+    /**
+     * @return true if the words of a description contain every term, or any term
+     */
+    static boolean matches(String description, Collection<String> terms, boolean matchAll) {
+        List<String> words = tokenize(description);
+        return matchAll ? words.containsAll(terms) : terms.stream().anyMatch(words::contains);
+    }
+
+    private Shard shard(long hi, long lo) {
+        long hash = (hi ^ lo) * 0x9E3779B97F4A7C15L;
+        return shards[(int) Math.floorMod(hash ^ (hash >>> 32), (long) shards.length)];
+    }
+
+    /**
+     * A queued change to the document of an id.
+     * @param terms The words of the new description, or empty to remove the document
+     */
+    private record Update(long hi, long lo, List<String> terms) {
+    }
+
+    /**
+     * The documents of the ids hashed to one shard, with their postings.
+     */
+    private final class Shard {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        // Updates not applied yet, in the order they were made
+        private final Queue<Update> updates = new ConcurrentLinkedQueue<>();
+
+        // Guarded by lock
+        private final Map<String, Postings> postings = new HashMap<>();
+        private BitSet live = new BitSet();
+        private long[] idHi = new long[64];
+        private long[] idLo = new long[64];
+        private long[] positions = new long[64];
+        private int documents;
+        private int liveDocuments;
+        private long postingCount;
+        private int termChars;
+
+        // Current document of each indexed id
+        private final Id128HashIndex<Integer> documentOfId = new Id128HashIndex<>(16);
+
+        /**
+         * Queues an update and applies the queued updates unless another thread holds the lock.
+         */
+        void update(Update update) {
+            updates.add(update);
+            drain();
+        }
+
+        Hits search(Collection<String> terms, boolean matchAll, long before, int limit) {
+            lockForRead();
+            try {
+                List<Descending> lists = new ArrayList<>(terms.size());
+                for (String term : terms) {
+                    Postings list = postings.get(term);
+                    if (list == null && matchAll) {
+                        return Hits.NONE;
+                    }
+                    if (list != null) {
+                        lists.add(new Descending(list));
+                    }
+                }
+                if (lists.isEmpty()) {
+                    return Hits.NONE;
+                }
+                // Documents are positioned in number order, so this is the first document not below the position
+                int bound = Arrays.binarySearch(positions, 0, documents, before);
+                bound = bound < 0 ? -bound - 1 : bound;
+                int[] matches = new int[Math.min(limit, bound)];
+                int count = matchAll ? intersect(lists, bound, matches) : union(lists, bound, matches);
+                long[] position = new long[count];
+                long[] hi = new long[count];
+                long[] lo = new long[count];
+                for (int i = 0; i < count; i++) {
+                    position[i] = positions[matches[i]];
+                    hi[i] = idHi[matches[i]];
+                    lo[i] = idLo[matches[i]];
+                }
+                return new Hits(position, hi, lo, count == limit);
+            } finally {
+                unlockRead();
+            }
+        }
+
+        /**
+         * Adds the shard's words to a set, and its live documents, dead documents, postings, posting bytes
+         * and estimated bytes to running totals.
+         */
+        void addStats(Set<String> terms, long[] totals) {
+            lockForRead();
+            try {
+                long postingBytes = 0;
+                long blockBytes = 0;
+                for (Postings list : postings.values()) {
+                    postingBytes += list.bytes.length;
+                    blockBytes += 2L * Integer.BYTES * list.blockFirst.length;
+                }
+                terms.addAll(postings.keySet());
+                totals[0] += liveDocuments;
+                totals[1] += documents - liveDocuments;
+                totals[2] += postingCount;
+                totals[3] += postingBytes;
+                totals[4] += postingBytes + blockBytes
+                        + (long) postings.size() * TERM_OVERHEAD_BYTES + termChars
+                        + (long) idHi.length * DOCUMENT_BYTES + live.size() / 8
+                        + (long) liveDocuments * ID_ENTRY_BYTES;
+            } finally {
+                unlockRead();
+            }
+        }
+
+        /**
+         * Applies the queued updates while any are left and no other thread holds the lock. A thread
+         * that releases the lock drains again, so an update queued while the lock was held is not left
+         * behind.
+         */
+        private void drain() {
+            while (!updates.isEmpty() && lock.writeLock().tryLock()) {
+                try {
+                    applyQueued();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+
+        /**
+         * Takes the read lock once every update queued so far has been applied.
+         */
+        private void lockForRead() {
+            if (updates.isEmpty()) {
+                lock.readLock().lock();
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                applyQueued();
+                lock.readLock().lock();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void unlockRead() {
+            lock.readLock().unlock();
+            drain();
+        }
+
+        /**
+         * Applies the queued updates in order. Called with the write lock held.
+         */
+        private void applyQueued() {
+            Update update;
+            while ((update = updates.poll()) != null) {
+                apply(update);
+            }
+        }
+
+        private void apply(Update update) {
+            kill(update.hi(), update.lo());
+            if (update.terms().isEmpty()) {
+                return;
+            }
+            int document = documents++;
+            if (document == idHi.length) {
+                resize(document * 2);
+            }
+            idHi[document] = update.hi();
+            idLo[document] = update.lo();
+            // Positions are drawn under the lock, so they grow with the document numbers of the shard
+            positions[document] = nextPosition.getAndIncrement();
+            live.set(document);
+            liveDocuments++;
+            documentOfId.compute(update.hi(), update.lo(), current -> document);
+            for (String term : update.terms()) {
+                postings.computeIfAbsent(term, t -> {
+                    termChars += t.length();
+                    return new Postings();
+                }).append(document);
+                postingCount++;
+            }
+        }
+
+        /**
+         * Marks the current document of an id dead. Called with the write lock held.
+         */
+        private void kill(long hi, long lo) {
+            Integer[] previous = new Integer[1];
+            documentOfId.compute(hi, lo, current -> {
+                previous[0] = current;
+                return null;
+            });
+            if (previous[0] == null) {
+                return;
+            }
+            live.clear(previous[0]);
+            liveDocuments--;
+            int dead = documents - liveDocuments;
+            if (dead >= MIN_COMPACTION_DEAD && dead > liveDocuments) {
+                compact();
+            }
+        }
+
+        /**
+         * Drops the dead documents, renumbering the live ones from zero in the same order, and rewrites every
+         * posting list of the shard with the new numbers. Called with the write lock held.
+         */
+        private void compact() {
+            int[] renumbered = new int[documents];
+            int next = 0;
+            for (int document = 0; document < documents; document++) {
+                renumbered[document] = live.get(document) ? next++ : -1;
+            }
+            postingCount = 0;
+            int[] block = new int[Postings.BLOCK];
+            Iterator<Map.Entry<String, Postings>> entries = postings.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Postings> entry = entries.next();
+                Postings list = entry.getValue();
+                Postings compacted = new Postings();
+                for (int b = 0; b < list.blocks(); b++) {
+                    int size = list.decode(b, block);
+                    for (int i = 0; i < size; i++) {
+                        if (renumbered[block[i]] >= 0) {
+                            compacted.append(renumbered[block[i]]);
+                            postingCount++;
+                        }
+                    }
+                }
+                if (compacted.count == 0) {
+                    termChars -= entry.getKey().length();
+                    entries.remove();
+                } else {
+                    compacted.trim();
+                    entry.setValue(compacted);
+                }
+            }
+            // New numbers are never above the old ones, so the documents can be moved down in place
+            for (int document = 0; document < documents; document++) {
+                int target = renumbered[document];
+                if (target >= 0) {
+                    idHi[target] = idHi[document];
+                    idLo[target] = idLo[document];
+                    positions[target] = positions[document];
+                    documentOfId.compute(idHi[target], idLo[target], current -> target);
+                }
+            }
+            documents = next;
+            live = new BitSet(next);
+            live.set(0, next);
+            resize(Math.max(64, next * 2));
+        }
+
+        private void resize(int capacity) {
+            idHi = Arrays.copyOf(idHi, capacity);
+            idLo = Arrays.copyOf(idLo, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+
+        /**
+         * Collects the live documents below a bound found in every list, highest first.
+         * @return The number of documents collected, at most the length of matches
+         */
+        private int intersect(List<Descending> lists, int bound, int[] matches) {
+            // Lead with the shortest list, so the work is bounded by the rarest term
+            lists.sort(Comparator.comparingInt(list -> list.postings.count));
+            Descending lead = lists.get(0);
+            int count = 0;
+            int below = bound;
+            candidates:
+            while (count < matches.length) {
+                int document = lead.below(below);
+                if (document < 0) {
+                    break;
+                }
+                for (int l = 1; l < lists.size(); l++) {
+                    int other = lists.get(l).below(document + 1);
+                    if (other < 0) {
+                        break candidates;
+                    }
+                    if (other < document) {
+                        // No document between the two is in both lists
+                        below = other + 1;
+                        continue candidates;
+                    }
+                }
+                if (live.get(document)) {
+                    matches[count++] = document;
+                }
+                below = document;
+            }
+            return count;
+        }
+
+        /**
+         * Collects the live documents below a bound found in any list, highest first.
+         * @return The number of documents collected, at most the length of matches
+         */
+        private int union(List<Descending> lists, int bound, int[] matches) {
+            int[] current = new int[lists.size()];
+            for (int l = 0; l < current.length; l++) {
+                current[l] = lists.get(l).below(bound);
+            }
+            int count = 0;
+            while (count < matches.length) {
+                int document = -1;
+                for (int candidate : current) {
+                    document = Math.max(document, candidate);
+                }
+                if (document < 0) {
+                    break;
+                }
+                if (live.get(document)) {
+                    matches[count++] = document;
+                }
+                for (int l = 0; l < current.length; l++) {
+                    if (current[l] == document) {
+                        current[l] = lists.get(l).below(document);
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A matching document: its position and id.
+     */
+    record Hit(long position, long idHi, long idLo) {
+    }
+
+    /**
+     * Matching documents, most recently indexed first, with their ids.
+     * @param more Whether the search stopped at its limit, so more documents may match
+     */
+    record Hits(long[] positions, long[] idHi, long[] idLo, boolean more) {
+        static final Hits NONE = new Hits(new long[0], new long[0], new long[0], false);
+
+        Stream<Hit> stream() {
+            return IntStream.range(0, positions.length).mapToObj(i -> new Hit(positions[i], idHi[i], idLo[i]));
+        }
+    }
+
+    /**
+     * Ascending document numbers of one term, as varint-encoded gaps in blocks of {@value #BLOCK}.
+     * The first document of each block is encoded as a gap from -1, so a block decodes on its own.
+     */
+    private static final class Postings {
+        static final int BLOCK = 128;
+
+        byte[] bytes = new byte[4];
+        int length;
+        int count;
+        int last = -1;
+
+        // First document and byte offset of each block
+        int[] blockFirst = new int[1];
+        int[] blockOffset = new int[1];
+
+        void append(int document) {
+            if (count % BLOCK == 0) {
+                int block = count / BLOCK;
+                if (block == blockFirst.length) {
+                    blockFirst = Arrays.copyOf(blockFirst, block * 2);
+                    blockOffset = Arrays.copyOf(blockOffset, block * 2);
+                }
+                blockFirst[block] = document;
+                blockOffset[block] = length;
+                last = -1;
+            }
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 3 / 2, length + 5));
+            }
+            int gap = document - last;
+            while ((gap & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            bytes[length++] = (byte) gap;
+            last = document;
+            count++;
+        }
+
+        int blocks() {
+            return (count + BLOCK - 1) / BLOCK;
+        }
+
+        /**
+         * Decodes one block.
+         * @return The number of documents written to documents
+         */
+        int decode(int block, int[] documents) {
+            int size = Math.min(BLOCK, count - block * BLOCK);
+            int document = -1;
+            int position = blockOffset[block];
+            for (int i = 0; i < size; i++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                document += gap;
+                documents[i] = document;
+            }
+            return size;
+        }
+
+        void trim() {
+            bytes = Arrays.copyOf(bytes, length);
+            blockFirst = Arrays.copyOf(blockFirst, blocks());
+            blockOffset = Arrays.copyOf(blockOffset, blocks());
+        }
+    }
+
+    /**
+     * Reads a posting list downwards, decoding one block at a time. The bounds passed to
+     * {@link #below(int)} must not increase.
+     */
+    private static final class Descending {
+        final Postings postings;
+        private final int[] block = new int[Postings.BLOCK];
+        private int decoded = -1;
+        private int index;
+
+        Descending(Postings postings) {
+            this.postings = postings;
+        }
+
+        /**
+         * @return The largest document below the bound, or -1 if there is none
+         */
+        int below(int bound) {
+            // Last block starting below the bound, at or before the block decoded last
+            int low = 0;
+            int high = decoded < 0 ? postings.blocks() - 1 : decoded;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (postings.blockFirst[middle] < bound) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (high < 0) {
+                return -1;
+            }
+            if (high != decoded) {
+                index = postings.decode(high, block) - 1;
+                decoded = high;
+            }
+            // The first document of the block is below the bound, so this stops inside the block
+            while (block[index] >= bound) {
+                index--;
+            }
+            return block[index];
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.DedupFilterStats;
+import com.robin.transaction.model.DescriptionIndexStats;
+import com.robin.transaction.model.DescriptionMatch;
+import com.robin.transaction.model.Transaction;
+import com.robin.transaction.model.TransactionOrderKey;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Transaction store keeping transactions on the heap.
+ * Transactions are held as compact {@link StoredTransaction} records in a primitive
+ * open-addressing index keyed by the two longs of the id, and materialized into new
+ * {@link Transaction} objects when read. Index and dedup updates for an id run inside the
+ * compute operation of the primary index, so they are serialized with the primary update.
+ */
+public class HeapTransactionStore implements TransactionStore {
+
+    private static final int INDEX_SEGMENTS = 64;
+
+    // Primary storage for transactions using the id bits as key
+    private final Id128HashIndex<StoredTransaction> transactions = new Id128HashIndex<>(INDEX_SEGMENTS);
+
+    // Time-ordered index (most recent first)
+    private final ConcurrentSkipListSet<StoredTransaction> orderedIndex = new ConcurrentSkipListSet<>(StoredTransaction.ORDER);
+
+    // Per-account time-ordered index
+    private final Map<String, ConcurrentSkipListSet<StoredTransaction>> accountIndex = new ConcurrentHashMap<>();
+
+    // Amount-ordered index
+    private final ConcurrentSkipListSet<StoredTransaction> amountIndex =
+            new ConcurrentSkipListSet<>(StoredTransaction.AMOUNT_ORDER);
+
+    // Full-text index of descriptions
+    private final DescriptionIndex descriptionIndex = new DescriptionIndex();
+
+    // Time-windowed duplicate detection index
+    private final DedupIndex dedupIndex;
+
+    /**
+     * Constructor for HeapTransactionStore with the default duplicate detection window.
+     */
+    public HeapTransactionStore() {
+        this.dedupIndex = new DedupIndex();
+    }
+
+    /**
+     * Constructor for HeapTransactionStore.
+     * @param dedupWindow How far back, by transaction timestamp, duplicates are detected
+     * @param dedupBuckets Number of buckets the window is split into
+     * @param dedupExpectedKeys Expected number of transactions per window, which sizes the Bloom filters
+     * @param dedupFilterBytes Memory cap of the Bloom filters in front of the duplicate check, or 0 for none
+     * @param dedupFilterFpp Target false-positive probability of the Bloom filters
+     */
+    public HeapTransactionStore(Duration dedupWindow, int dedupBuckets, long dedupExpectedKeys, long dedupFilterBytes,
+                                double dedupFilterFpp) {
+        this.dedupIndex = new DedupIndex(dedupWindow, dedupBuckets, dedupExpectedKeys, dedupFilterBytes,
+                dedupFilterFpp);
+    }
+
+    @Override
+    public Transaction get(String id) {
+        UUID uuid = RowOrder.parseId(id);
+        return uuid == null ? null
+                : materialize(transactions.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+    }
+
+    @Override
+    public Transaction put(Transaction transaction) {
+        StoredTransaction stored = StoredTransaction.of(transaction);
+        StoredTransaction[] previous = new StoredTransaction[1];
+        transactions.compute(stored.idHi(), stored.idLo(), existing -> {
+            previous[0] = existing;
+            return rekey(existing, stored);
+        });
+        return materialize(previous[0]);
+    }
+
+    @Override
+    public boolean putIfAbsent(Transaction transaction) {
+        StoredTransaction stored = StoredTransaction.of(transaction);
+        DedupKey key = stored.dedupKey();
+        boolean[] inserted = new boolean[1];
+        transactions.compute(stored.idHi(), stored.idLo(), existing -> {
+            if (existing != null || !dedupIndex.claim(key, stored.epochMilli())) {
+                return existing;
+            }
+            inserted[0] = true;
+            return index(null, stored);
+        });
+        return inserted[0];
+    }
+
+    @Override
+    public boolean replace(String id, Transaction expected, Transaction replacement) {
+        UUID uuid = RowOrder.parseId(id);
+        if (uuid == null) {
+            return false;
+        }
+        StoredTransaction stored = StoredTransaction.of(replacement);
+        boolean[] replaced = new boolean[1];
+        transactions.compute(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), existing -> {
+            if (existing == null || !existing.toTransaction().equals(expected)) {
+                return existing;
+            }
+            replaced[0] = true;
+            return rekey(existing, stored);
+        });
+        return replaced[0];
+    }
+
+    @Override
+    public Transaction remove(String id) {
+        UUID uuid = RowOrder.parseId(id);
+        if (uuid == null) {
+            return null;
+        }
+        StoredTransaction[] previous = new StoredTransaction[1];
+        transactions.compute(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), existing -> {
+            previous[0] = existing;
+            return existing == null ? null : rekey(existing, null);
+        });
+        return materialize(previous[0]);
+    }
+
+    @Override
+    public Stream<Transaction> scan(TransactionOrderKey after) {
+        return tail(orderedIndex, after).stream().map(StoredTransaction::toTransaction);
+    }
+
+    @Override
+    public Stream<Transaction> scanAccount(String accountNumber, TransactionOrderKey after) {
+        ConcurrentSkipListSet<StoredTransaction> account = accountIndex.get(accountNumber);
+        return account == null ? Stream.empty()
+                : tail(account, after).stream().map(StoredTransaction::toTransaction);
+    }
+
+    @Override
+    public Stream<Transaction> scanAmount(long minMinorUnits, long maxMinorUnits) {
+        if (minMinorUnits > maxMinorUnits) {
+            return Stream.empty();
+        }
+        return amountIndex.subSet(StoredTransaction.amountProbe(minMinorUnits, true), false,
+                        StoredTransaction.amountProbe(maxMinorUnits, false), false)
+                .stream().map(StoredTransaction::toTransaction);
+    }
+
+    @Override
+    public Stream<DescriptionMatch> searchDescriptions(String query, boolean matchAll, long before) {
+        List<String> terms = DescriptionIndex.tokenize(query);
+        if (terms.isEmpty()) {
+            return Stream.empty();
+        }
+        // Skip matches changed since the search, which no longer match or are found under their new position
+        return descriptionIndex.stream(terms, matchAll, before)
+                .map(hit -> {
+                    StoredTransaction stored = transactions.get(hit.idHi(), hit.idLo());
+                    return stored == null || !DescriptionIndex.matches(stored.description(), terms, matchAll) ? null
+                            : new DescriptionMatch(hit.position(), stored.toTransaction());
+                })
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public long count() {
+        return transactions.size();
+    }
+
+    @Override
+    public long countAccount(String accountNumber) {
+        ConcurrentSkipListSet<StoredTransaction> account = accountIndex.get(accountNumber);
+        return account == null ? 0 : account.size();
+    }
+
+    @Override
+    public DedupFilterStats dedupFilterStats() {
+        return dedupIndex.stats();
+    }
+
+    @Override
+    public DescriptionIndexStats descriptionIndexStats() {
+        return descriptionIndex.stats();
+    }
+
+    private static Transaction materialize(StoredTransaction stored) {
+        return stored == null ? null : stored.toTransaction();
+    }
+
+    private static NavigableSet<StoredTransaction> tail(ConcurrentSkipListSet<StoredTransaction> index,
+                                                        TransactionOrderKey after) {
+        return after == null ? index : index.tailSet(StoredTransaction.probe(after), false);
+    }
+
+    /**
+     * Moves a transaction's dedup key and index entries from its previous to its current state.
+     * @param previous The transaction currently stored, or null if none
+     * @param current The transaction to store, or null to remove
+     * @return The value to keep in the primary index
+     */
+    private StoredTransaction rekey(StoredTransaction previous, StoredTransaction current) {
+        if (previous != null) {
+            dedupIndex.release(previous.dedupKey(), previous.epochMilli());
+        }
+        if (current != null) {
+            dedupIndex.add(current.dedupKey(), current.epochMilli());
+        }
+        return index(previous, current);
+    }
+
+    /**
+     * Moves a transaction's entries in the ordered, account, amount and description indexes from its previous to its current position.
+     * @param previous The transaction currently stored, or null if none
+     * @param current The transaction to store, or null to remove
+     * @return The value to keep in the primary index
+     */
+    private StoredTransaction index(StoredTransaction previous, StoredTransaction current) {
+        if (previous != null) {
+            orderedIndex.remove(previous);
+            amountIndex.remove(previous);
+            accountIndex.computeIfPresent(previous.accountNumber(), (account, entries) -> {
+                entries.remove(previous);
+                return entries.isEmpty() ? null : entries;
+            });
+        }
+        if (current == null) {
+            if (previous != null) {
+                descriptionIndex.remove(previous.idHi(), previous.idLo());
+            }
+        } else if (previous == null || !Objects.equals(previous.description(), current.description())) {
+            descriptionIndex.add(current.idHi(), current.idLo(), current.description());
+        }
+        if (current != null) {
+            orderedIndex.add(current);
+            amountIndex.add(current);
+            accountIndex.compute(current.accountNumber(), (account, entries) -> {
+                if (entries == null) {
+                    entries = new ConcurrentSkipListSet<>(StoredTransaction.ORDER);
+                }
+                entries.add(current);
+                return entries;
+            });
+        }
+        return current;
+    }
+}
@@ -0,0 +1,210 @@
+package com.robin.transaction.store;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent hash index keyed by 128-bit ids held as two primitive longs.
+ * <p>
+ * The index is split into segments, each an open-addressing table with linear probing
+ * and backward-shift deletion, so no boxed keys, entry objects or tombstones are kept.
+ * Lookups read optimistically without locking and only fall back to the segment read lock
+ * when a concurrent write was detected. Writes to the same segment are serialized by its
+ * write lock, which also serializes {@link #compute} callbacks for the same id.
+ *
+ * @param <V> The value type
+ */
+class Id128HashIndex<V> {
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+
+    /**
+     * @param segmentCount Number of independently locked segments, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    Id128HashIndex(int segmentCount) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(segmentCount, 2) - 1);
+        this.segments = new Segment[1 << bits];
+        this.segmentShift = 64 - bits;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    /**
+     * Looks up the value of an id.
+     * @return The value, or null if the id is not present
+     */
+    V get(long hi, long lo) {
+        long hash = hash(hi, lo);
+        Segment<V> segment = segmentFor(hash);
+        long stamp = segment.lock.tryOptimisticRead();
+        V value = segment.find(hi, lo, hash);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                value = segment.find(hi, lo, hash);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Atomically computes the value of an id under the segment write lock.
+     * @param remapping Receives the current value (null if absent) and returns the new value (null to remove)
+     * @return The new value
+     */
+    V compute(long hi, long lo, UnaryOperator<V> remapping) {
+        long hash = hash(hi, lo);
+        Segment<V> segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            V current = segment.find(hi, lo, hash);
+            V updated = remapping.apply(current);
+            if (updated != null) {
+                segment.put(hi, lo, hash, updated);
+            } else if (current != null) {
+                segment.remove(hi, lo, hash);
+            }
+            return updated;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return The number of ids in the index
+     */
+    long size() {
+        long size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> segmentShift)];
+    }
+
+    private static long hash(long hi, long lo) {
+        long h = hi ^ Long.rotateLeft(lo, 32);
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Open-addressing table. Keys and values are published together in one {@link Table},
+     * so an optimistic reader always sees arrays of matching size.
+     */
+    private static final class Segment<V> {
+        final StampedLock lock = new StampedLock();
+        Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+        volatile int size;
+
+        @SuppressWarnings("unchecked")
+        V find(long hi, long lo, long hash) {
+            Table t = table;
+            int mask = t.values.length - 1;
+            int slot = (int) hash & mask;
+            // Bounded by the capacity, so a torn optimistic read cannot loop forever
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = t.values[slot];
+                if (value == null) {
+                    return null;
+                }
+                if (t.keys[slot << 1] == hi && t.keys[(slot << 1) + 1] == lo) {
+                    return (V) value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        void put(long hi, long lo, long hash, Object value) {
+            Table t = table;
+            int mask = t.values.length - 1;
+            int slot = (int) hash & mask;
+            while (t.values[slot] != null) {
+                if (t.keys[slot << 1] == hi && t.keys[(slot << 1) + 1] == lo) {
+                    t.values[slot] = value;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            t.keys[slot << 1] = hi;
+            t.keys[(slot << 1) + 1] = lo;
+            t.values[slot] = value;
+            size++;
+            if (size > t.values.length - (t.values.length >>> 2)) {
+                resize();
+            }
+        }
+
+        void remove(long hi, long lo, long hash) {
+            Table t = table;
+            int mask = t.values.length - 1;
+            int slot = (int) hash & mask;
+            while (t.values[slot] != null) {
+                if (t.keys[slot << 1] == hi && t.keys[(slot << 1) + 1] == lo) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (t.values[slot] == null) {
+                return;
+            }
+            // Backward-shift deletion: move later entries of the probe run into the gap
+            int gap = slot;
+            int next = (gap + 1) & mask;
+            while (t.values[next] != null) {
+                int home = (int) hash(t.keys[next << 1], t.keys[(next << 1) + 1]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    t.keys[gap << 1] = t.keys[next << 1];
+                    t.keys[(gap << 1) + 1] = t.keys[(next << 1) + 1];
+                    t.values[gap] = t.values[next];
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            t.values[gap] = null;
+            size--;
+        }
+
+        private void resize() {
+            Table old = table;
+            Table resized = new Table(old.values.length << 1);
+            int mask = resized.values.length - 1;
+            for (int i = 0; i < old.values.length; i++) {
+                if (old.values[i] != null) {
+                    long hi = old.keys[i << 1];
+                    long lo = old.keys[(i << 1) + 1];
+                    int slot = (int) hash(hi, lo) & mask;
+                    while (resized.values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    resized.keys[slot << 1] = hi;
+                    resized.keys[(slot << 1) + 1] = lo;
+                    resized.values[slot] = old.values[i];
+                }
+            }
+            table = resized;
+        }
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            this.keys = new long[capacity << 1];
+            this.values = new Object[capacity];
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.DedupFilterStats;
+import com.robin.transaction.model.DescriptionIndexStats;
+import com.robin.transaction.model.DescriptionMatch;
+import com.robin.transaction.model.Transaction;
+import com.robin.transaction.model.TransactionOrderKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Transaction store that records every change in a {@link WriteAheadLog} before acknowledging it.
+ * <p>
+ * Each change is written to the log and made durable before it is applied to the wrapped store, so
+ * readers only see changes the log holds. A lock striped by id is held from writing the record until
+ * the change is applied, so the log order of changes to the same id matches the order they were applied.
+ * If the wrapped store then rejects the change, a record putting the id back to the state the store
+ * holds is logged after it, so replay does not bring the change back. A change whose record could not
+ * be made durable is never applied; like one cut short by a crash, it may still be replayed if its
+ * bytes reached the disk. Writers of different stripes still share one group commit.
+ * <p>
+ * {@link #snapshot()} writes a {@link SnapshotFile} while writers continue. It first rotates the log
+ * while holding every lock, so each change logged before the rotation has been applied and each change
+ * not yet visible when the scan starts is in the new segment or later ones. The
+ * snapshot may hold a mix of older and newer states, but replaying those segments on top of it
+ * yields the current state, because replayed records are upserts and removes applied in log order.
+ * On construction the latest snapshot is loaded and only the log tail written after it is replayed.
+ */
+public class JournaledTransactionStore implements TransactionStore, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournaledTransactionStore.class);
+
+    private static final int LOCK_STRIPES = 64;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final TransactionStore delegate;
+    private final Path directory;
+    private final WriteAheadLog log;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final ScheduledExecutorService snapshotScheduler;
+
+    /**
+     * Creates a journaled store without periodic snapshots.
+     * @param delegate The store holding the transactions, expected to be empty
+     * @param directory Directory holding the snapshots and log segments
+     * @param flushInterval Maximum time to wait for more records before forcing a batch
+     * @param batchSize Maximum number of records per force
+     * @throws UncheckedIOException if the snapshot or log cannot be loaded
+     */
+    public JournaledTransactionStore(TransactionStore delegate, Path directory, Duration flushInterval, int batchSize) {
+        this(delegate, directory, flushInterval, batchSize, Duration.ZERO);
+    }
+
+    /**
+     * @param delegate The store holding the transactions, expected to be empty
+     * @param directory Directory holding the snapshots and log segments
+     * @param flushInterval Maximum time to wait for more records before forcing a batch
+     * @param batchSize Maximum number of records per force
+     * @param snapshotInterval Time between periodic snapshots, or zero to disable them
+     * @throws UncheckedIOException if the snapshot or log cannot be loaded
+     */
+    public JournaledTransactionStore(TransactionStore delegate, Path directory, Duration flushInterval, int batchSize,
+                                     Duration snapshotInterval) {
+        this.delegate = delegate;
+        this.directory = directory;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        try {
+            Files.createDirectories(directory);
+            long firstSegment = 0;
+            List<Long> snapshots = WriteAheadLog.numberedFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (!snapshots.isEmpty()) {
+                firstSegment = snapshots.get(snapshots.size() - 1);
+                long started = System.nanoTime();
+                long rows = SnapshotFile.read(snapshotPath(firstSegment), delegate::put);
+                logger.info("Loaded {} transactions from snapshot {} in {} ms", rows, firstSegment,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+            this.log = WriteAheadLog.open(directory, firstSegment, this::apply, flushInterval, batchSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover transactions from " + directory, e);
+        }
+        if (snapshotInterval.isPositive()) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::scheduledSnapshot,
+                    snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            snapshotScheduler = null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the store, blocking writers only while the log is rotated, then deletes the
+     * log segments and snapshots it supersedes.
+     * @return The number of transactions in the snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized long snapshot() throws IOException {
+        CompletableFuture<Long> rotated;
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            rotated = log.rotate();
+        } finally {
+            for (ReentrantLock lock : locks) {
+                lock.unlock();
+            }
+        }
+        long segment = rotated.join();
+        long started = System.nanoTime();
+        long rows = SnapshotFile.write(snapshotPath(segment), delegate.scan(null));
+        logger.info("Wrote snapshot {} with {} transactions in {} ms", segment, rows,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        for (long older : WriteAheadLog.numberedFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (older < segment) {
+                Files.deleteIfExists(snapshotPath(older));
+            }
+        }
+        log.deleteSegmentsBefore(segment);
+        return rows;
+    }
+
+    @Override
+    public Transaction get(String id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public Transaction put(Transaction transaction) {
+        RowOrder.requireId(transaction.getId());
+        ReentrantLock lock = lockFor(transaction.getId());
+        lock.lock();
+        try {
+            boolean exists = delegate.get(transaction.getId()) != null;
+            journal(List.of(exists ? WalRecord.update(transaction) : WalRecord.create(transaction)));
+            try {
+                return delegate.put(transaction);
+            } catch (RuntimeException e) {
+                recover(e, () -> correct(List.of(transaction.getId())));
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(Transaction transaction) {
+        RowOrder.requireId(transaction.getId());
+        ReentrantLock lock = lockFor(transaction.getId());
+        lock.lock();
+        try {
+            if (delegate.get(transaction.getId()) != null) {
+                return false;
+            }
+            journal(List.of(WalRecord.create(transaction)));
+            boolean stored;
+            try {
+                stored = delegate.putIfAbsent(transaction);
+            } catch (RuntimeException e) {
+                recover(e, () -> correct(List.of(transaction.getId())));
+                throw e;
+            }
+            if (!stored) {
+                // A duplicate by content, which the log cannot tell before the store does
+                correct(List.of(transaction.getId()));
+            }
+            return stored;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Logs the batch and waits once for its records to become durable before storing it, so the batch
+     * shares group commits instead of waiting for one per transaction; the records of transactions the
+     * store rejects are then corrected together. The locks of all ids in the batch are taken in stripe
+     * order, so batches cannot deadlock with each other.
+     */
+    @Override
+    public boolean[] putAllIfAbsent(List<Transaction> transactions) {
+        transactions.forEach(transaction -> RowOrder.requireId(transaction.getId()));
+        BitSet stripes = new BitSet(LOCK_STRIPES);
+        transactions.forEach(transaction -> stripes.set(stripe(transaction.getId())));
+        stripes.stream().forEach(stripe -> locks[stripe].lock());
+        try {
+            boolean[] stored = new boolean[transactions.size()];
+            boolean[] logged = new boolean[transactions.size()];
+            List<WalRecord> records = new ArrayList<>();
+            for (int i = 0; i < logged.length; i++) {
+                Transaction transaction = transactions.get(i);
+                logged[i] = delegate.get(transaction.getId()) == null;
+                if (logged[i]) {
+                    records.add(WalRecord.create(transaction));
+                }
+            }
+            journal(records);
+            try {
+                for (int i = 0; i < stored.length; i++) {
+                    stored[i] = delegate.putIfAbsent(transactions.get(i));
+                }
+            } catch (RuntimeException e) {
+                recover(e, () -> correct(rejected(transactions, logged, stored)));
+                throw e;
+            }
+            correct(rejected(transactions, logged, stored));
+            return stored;
+        } finally {
+            stripes.stream().forEach(stripe -> locks[stripe].unlock());
+        }
+    }
+
+    @Override
+    public boolean replace(String id, Transaction expected, Transaction replacement) {
+        if (RowOrder.parseId(id) == null) {
+            return false;
+        }
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Transaction current = delegate.get(id);
+            if (current == null || !current.equals(expected)) {
+                return false;
+            }
+            journal(List.of(WalRecord.update(replacement)));
+            boolean replaced;
+            try {
+                replaced = delegate.replace(id, expected, replacement);
+            } catch (RuntimeException e) {
+                recover(e, () -> correct(List.of(id)));
+                throw e;
+            }
+            if (!replaced) {
+                correct(List.of(id));
+            }
+            return replaced;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Transaction remove(String id) {
+        if (RowOrder.parseId(id) == null) {
+            return null;
+        }
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            if (delegate.get(id) == null) {
+                return null;
+            }
+            journal(List.of(WalRecord.delete(id)));
+            try {
+                return delegate.remove(id);
+            } catch (RuntimeException e) {
+                recover(e, () -> correct(List.of(id)));
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Stream<Transaction> scan(TransactionOrderKey after) {
+        return delegate.scan(after);
+    }
+
+    @Override
+    public Stream<Transaction> scanAccount(String accountNumber, TransactionOrderKey after) {
+        return delegate.scanAccount(accountNumber, after);
+    }
+
+    @Override
+    public Stream<Transaction> scanAmount(long minMinorUnits, long maxMinorUnits) {
+        return delegate.scanAmount(minMinorUnits, maxMinorUnits);
+    }
+
+    @Override
+    public Stream<DescriptionMatch> searchDescriptions(String query, boolean matchAll, long before) {
+        return delegate.searchDescriptions(query, matchAll, before);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public long countAccount(String accountNumber) {
+        return delegate.countAccount(accountNumber);
+    }
+
+    @Override
+    public DedupFilterStats dedupFilterStats() {
+        return delegate.dedupFilterStats();
+    }
+
+    @Override
+    public DescriptionIndexStats descriptionIndexStats() {
+        return delegate.descriptionIndexStats();
+    }
+
+    /**
+     * Stops periodic snapshots, flushes pending log records and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+            try {
+                snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.close();
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Periodic snapshot failed", e);
+        }
+    }
+
+    private Path snapshotPath(long segment) {
+        return directory.resolve(String.format("%s%019d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+    }
+
+    private void apply(WalRecord record) {
+        try {
+            switch (record.type()) {
+                case CREATE, UPDATE -> delegate.put(record.transaction());
+                case DELETE -> delegate.remove(record.id());
+            }
+        } catch (IllegalArgumentException e) {
+            // Rejected when it was made too, and followed by the record correcting it
+            logger.warn("Skipping write-ahead log record the store rejects: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Appends records of changes not yet made to the wrapped store and waits until they are durable.
+     * Called while holding the locks of their ids.
+     */
+    private void journal(List<WalRecord> records) {
+        CompletableFuture<Long> durable = null;
+        for (WalRecord record : records) {
+            durable = log.append(record);
+        }
+        // Records become durable in append order, so the last one covers them all
+        if (durable != null) {
+            awaitDurable(durable);
+        }
+    }
+
+    /**
+     * Logs the state the wrapped store holds for ids whose logged change it did not make, so replay
+     * ends in that state too. Called while holding the locks of the ids.
+     */
+    private void correct(Collection<String> ids) {
+        List<WalRecord> records = new ArrayList<>();
+        for (String id : ids) {
+            Transaction current = delegate.get(id);
+            records.add(current == null ? WalRecord.delete(id) : WalRecord.update(current));
+        }
+        journal(records);
+    }
+
+    /**
+     * @return The distinct ids of the batch transactions that were logged but not stored
+     */
+    private static Set<String> rejected(List<Transaction> transactions, boolean[] logged, boolean[] stored) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (int i = 0; i < logged.length; i++) {
+            if (logged[i] && !stored[i]) {
+                ids.add(transactions.get(i).getId());
+            }
+        }
+        return ids;
+    }
+
+    private static void recover(RuntimeException failure, Runnable recovery) {
+        try {
+            recovery.run();
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private ReentrantLock lockFor(String id) {
+        return locks[stripe(id)];
+    }
+
+    // Hash the id bits, like the wrapped stores' indexes, rather than the string
+    private int stripe(String id) {
+        return Math.floorMod(RowOrder.parseId(id).hashCode(), locks.length);
+    }
+
+    private static void awaitDurable(CompletableFuture<Long> durable) {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.robin.transaction.store;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Byte arena in direct memory, used for variable-length row data.
+ * Space is handed out from fixed-size chunks with a bump pointer; an allocation never
+ * spans two chunks. Allocations are rounded up to a power of two, and freed blocks are kept
+ * in a free list per size, linked through their first bytes, and handed out again before the
+ * bump pointer moves on. The arena never returns memory to the system, so it holds at most
+ * the largest space that live values of each size have taken at once.
+ * Bytes are immutable while allocated, so readers need no locking.
+ */
+class OffHeapArena {
+
+    private static final int MAX_CHUNKS = 1 << 16;
+
+    // Smallest block, which holds the link of a free list
+    private static final int MIN_BLOCK_BYTES = Long.BYTES;
+
+    // End of a free list
+    private static final long NONE = -1;
+
+    private final int chunkBytes;
+    private final AtomicReferenceArray<ByteBuffer> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    // Guarded by this: current chunk and position inside it, and the first free block of each size
+    private int currentChunk = -1;
+    private int position;
+    private final long[] freeBlocks = new long[Integer.SIZE];
+
+    /**
+     * @param chunkBytes Size of each direct memory chunk
+     */
+    OffHeapArena(int chunkBytes) {
+        this.chunkBytes = chunkBytes;
+        Arrays.fill(freeBlocks, NONE);
+    }
+
+    /**
+     * @param length A number of bytes
+     * @return Whether that many bytes can be stored in one allocation
+     */
+    boolean fits(int length) {
+        return length >= 0 && blockBytes(length) <= chunkBytes;
+    }
+
+    /**
+     * Copies bytes into the arena.
+     * @param bytes The bytes to store, at most one chunk long once rounded up
+     * @return Address of the stored bytes
+     */
+    long write(byte[] bytes) {
+        if (bytes.length == 0) {
+            return 0;
+        }
+        if (!fits(bytes.length)) {
+            throw new IllegalArgumentException("Value of " + bytes.length + " bytes exceeds arena chunk size");
+        }
+        int sizeClass = sizeClass(bytes.length);
+        long address;
+        synchronized (this) {
+            address = freeBlocks[sizeClass];
+            if (address != NONE) {
+                freeBlocks[sizeClass] = buffer(address).getLong(offset(address));
+            } else {
+                int block = 1 << sizeClass;
+                if (currentChunk < 0 || position + block > chunkBytes) {
+                    if (currentChunk + 1 >= MAX_CHUNKS) {
+                        throw new IllegalStateException("Off-heap arena is full");
+                    }
+                    currentChunk++;
+                    position = 0;
+                    chunks.set(currentChunk, ByteBuffer.allocateDirect(chunkBytes));
+                }
+                address = ((long) currentChunk << 32) | position;
+                position += block;
+            }
+        }
+        buffer(address).put(offset(address), bytes);
+        return address;
+    }
+
+    /**
+     * Reads bytes previously stored with {@link #write(byte[])}.
+     * @param address The address returned by write
+     * @param length The number of bytes stored
+     * @return A copy of the stored bytes
+     */
+    byte[] read(long address, int length) {
+        byte[] bytes = new byte[length];
+        if (length > 0) {
+            buffer(address).get(offset(address), bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the block of a stored value to the arena for reuse. The value must no longer be read.
+     * @param address The address returned by write
+     * @param length The number of bytes stored
+     */
+    void free(long address, int length) {
+        if (length == 0) {
+            return;
+        }
+        int sizeClass = sizeClass(length);
+        synchronized (this) {
+            buffer(address).putLong(offset(address), freeBlocks[sizeClass]);
+            freeBlocks[sizeClass] = address;
+        }
+    }
+
+    private ByteBuffer buffer(long address) {
+        return chunks.get((int) (address >>> 32));
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private static long blockBytes(int length) {
+        return 1L << sizeClass(length);
+    }
+
+    private static int sizeClass(int length) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(length, MIN_BLOCK_BYTES) - 1);
+    }
+}
@@ -0,0 +1,212 @@
+package com.robin.transaction.store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Concurrent hash index from 128-bit ids to non-negative ints, held in direct memory.
+ * <p>
+ * Works like {@link Id128HashIndex}: independently locked segments, each an open-addressing table with
+ * linear probing and backward-shift deletion, read optimistically. Each slot holds the two id longs and
+ * the value plus one, so a zeroed slot is empty and the index keeps no objects per entry.
+ */
+final class OffHeapIdIndex {
+
+    /**
+     * Value passed to and returned from {@link #compute} for an absent id.
+     */
+    static final int ABSENT = -1;
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    // Slot layout
+    private static final int SLOT_BYTES = 24;
+    private static final int HI = 0;
+    private static final int LO = 8;
+    private static final int VALUE = 16;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    /**
+     * @param segmentCount Number of independently locked segments, rounded up to a power of two
+     */
+    OffHeapIdIndex(int segmentCount) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(segmentCount, 2) - 1);
+        this.segments = new Segment[1 << bits];
+        this.segmentShift = 64 - bits;
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Looks up the value of an id.
+     * @return The value, or {@link #ABSENT} if the id is not present
+     */
+    int get(long hi, long lo) {
+        long hash = hash(hi, lo);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.lock.tryOptimisticRead();
+        int value = segment.find(hi, lo, hash);
+        if (!segment.lock.validate(stamp)) {
+            stamp = segment.lock.readLock();
+            try {
+                value = segment.find(hi, lo, hash);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Atomically computes the value of an id under the segment write lock.
+     * @param remapping Receives the current value ({@link #ABSENT} if absent) and returns the new value
+     *                  ({@link #ABSENT} to remove)
+     * @return The new value
+     */
+    int compute(long hi, long lo, IntUnaryOperator remapping) {
+        long hash = hash(hi, lo);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int current = segment.find(hi, lo, hash);
+            int updated = remapping.applyAsInt(current);
+            if (updated != ABSENT) {
+                segment.put(hi, lo, hash, updated);
+            } else if (current != ABSENT) {
+                segment.remove(hi, lo, hash);
+            }
+            return updated;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return The number of ids in the index
+     */
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> segmentShift)];
+    }
+
+    private static long hash(long hi, long lo) {
+        long h = hi ^ Long.rotateLeft(lo, 32);
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Open-addressing table in one direct buffer, replaced whole on resize, so an optimistic reader
+     * always sees a table of consistent capacity.
+     */
+    private static final class Segment {
+        final StampedLock lock = new StampedLock();
+        ByteBuffer table = allocate(INITIAL_SEGMENT_CAPACITY);
+        volatile int size;
+
+        int find(long hi, long lo, long hash) {
+            ByteBuffer t = table;
+            int mask = t.capacity() / SLOT_BYTES - 1;
+            int slot = (int) hash & mask;
+            // Bounded by the capacity, so a torn optimistic read cannot loop forever
+            for (int probes = 0; probes <= mask; probes++) {
+                int offset = slot * SLOT_BYTES;
+                int value = t.getInt(offset + VALUE) - 1;
+                if (value == ABSENT) {
+                    return ABSENT;
+                }
+                if (t.getLong(offset + HI) == hi && t.getLong(offset + LO) == lo) {
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return ABSENT;
+        }
+
+        void put(long hi, long lo, long hash, int value) {
+            ByteBuffer t = table;
+            int capacity = t.capacity() / SLOT_BYTES;
+            int mask = capacity - 1;
+            int slot = (int) hash & mask;
+            while (t.getInt(slot * SLOT_BYTES + VALUE) != 0) {
+                int offset = slot * SLOT_BYTES;
+                if (t.getLong(offset + HI) == hi && t.getLong(offset + LO) == lo) {
+                    t.putInt(offset + VALUE, value + 1);
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int offset = slot * SLOT_BYTES;
+            t.putLong(offset + HI, hi);
+            t.putLong(offset + LO, lo);
+            t.putInt(offset + VALUE, value + 1);
+            size++;
+            if (size > capacity - (capacity >>> 2)) {
+                resize();
+            }
+        }
+
+        void remove(long hi, long lo, long hash) {
+            ByteBuffer t = table;
+            int mask = t.capacity() / SLOT_BYTES - 1;
+            int slot = (int) hash & mask;
+            while (t.getInt(slot * SLOT_BYTES + VALUE) != 0) {
+                int offset = slot * SLOT_BYTES;
+                if (t.getLong(offset + HI) == hi && t.getLong(offset + LO) == lo) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (t.getInt(slot * SLOT_BYTES + VALUE) == 0) {
+                return;
+            }
+            // Backward-shift deletion: move later entries of the probe run into the gap
+            int gap = slot;
+            int next = (gap + 1) & mask;
+            while (t.getInt(next * SLOT_BYTES + VALUE) != 0) {
+                int offset = next * SLOT_BYTES;
+                int home = (int) hash(t.getLong(offset + HI), t.getLong(offset + LO)) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    t.put(gap * SLOT_BYTES, t, offset, SLOT_BYTES);
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            t.putInt(gap * SLOT_BYTES + VALUE, 0);
+            size--;
+        }
+
+        private void resize() {
+            ByteBuffer old = table;
+            ByteBuffer resized = allocate(old.capacity() / SLOT_BYTES << 1);
+            int mask = resized.capacity() / SLOT_BYTES - 1;
+            for (int offset = 0; offset < old.capacity(); offset += SLOT_BYTES) {
+                if (old.getInt(offset + VALUE) != 0) {
+                    int slot = (int) hash(old.getLong(offset + HI), old.getLong(offset + LO)) & mask;
+                    while (resized.getInt(slot * SLOT_BYTES + VALUE) != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    resized.put(slot * SLOT_BYTES, old, offset, SLOT_BYTES);
+                }
+            }
+            table = resized;
+        }
+
+        private static ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.robin.transaction.store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Ordered index of rows, held in direct memory apart from a bounded set of recent entries.
+ * <p>
+ * An entry is a row number and version under a sort key: a major key, then the row order of
+ * {@link RowOrder}. New entries go to a pending skip list on the heap. Once it holds the configured
+ * number of entries it is written out as a sorted run of fixed-width entries in a direct buffer, and
+ * runs are merged while the newest is at least half the size of the one before it, so run sizes grow
+ * geometrically and each entry is copied a logarithmic number of times. Runs are immutable once
+ * published, and a range is read by merging the runs and the pending entries.
+ * <p>
+ * Entries are never removed one by one. An entry is dead once its row has moved on to another version,
+ * which readers check when they read the row; dead entries are dropped whenever runs are merged, and
+ * all runs are merged once they hold more than twice as many entries as there are live rows.
+ * <p>
+ * Adds share a lock that a flush takes only to swap in an empty pending list. Flushes are run by the
+ * writers that fill the pending list, outside any lock of the caller's.
+ */
+final class OffHeapSortedIndex {
+
+    // Entry layout
+    private static final int ENTRY_BYTES = 48;
+    private static final int MAJOR = 0;        // long, major key
+    private static final int EPOCH_SECOND = 8; // long, timestamp seconds (UTC)
+    private static final int ID_HI = 16;       // long, most significant id bits
+    private static final int ID_LO = 24;       // long, least significant id bits
+    private static final int NANO = 32;        // int, timestamp nanoseconds
+    private static final int ROW = 36;         // int, row number
+    private static final int VERSION = 40;     // int, row version the entry was written for
+
+    /**
+     * Tells whether a row still holds the version an entry was written for.
+     */
+    @FunctionalInterface
+    interface Liveness {
+        boolean isLive(int row, int version);
+    }
+
+    private final int maxPending;
+    private final Liveness liveness;
+    private final LongSupplier liveRows;
+
+    // Adds hold it shared; a flush holds it exclusively while it swaps the pending list
+    private final StampedLock pendingLock = new StampedLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile State state = new State(List.of(), null, new Pending());
+
+    /**
+     * @param maxPending Number of entries kept on the heap before they are written to a run
+     * @param liveness Tells whether an entry is live
+     * @param liveRows Current number of live rows, which bounds the live entries
+     */
+    OffHeapSortedIndex(int maxPending, Liveness liveness, LongSupplier liveRows) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("Pending index entries must be positive");
+        }
+        this.maxPending = maxPending;
+        this.liveness = liveness;
+        this.liveRows = liveRows;
+    }
+
+    /**
+     * Adds an entry. Call {@link #flushIfFull()} afterwards, outside any lock held while adding.
+     */
+    void add(Entry entry) {
+        long stamp = pendingLock.readLock();
+        try {
+            Pending pending = state.pending;
+            pending.entries.add(entry);
+            pending.size.incrementAndGet();
+        } finally {
+            pendingLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Writes the pending entries to a run if there are enough of them and no other thread is already
+     * doing so.
+     */
+    void flushIfFull() {
+        if (state.pending.size.get() < maxPending || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            State current = state;
+            if (current.pending.size.get() < maxPending) {
+                return;
+            }
+            long stamp = pendingLock.writeLock();
+            try {
+                current = new State(current.runs, current.pending, new Pending());
+                state = current;
+            } finally {
+                pendingLock.unlockWrite(stamp);
+            }
+            List<Run> runs = new ArrayList<>(current.runs);
+            long entries = 0;
+            for (Run run : runs) {
+                entries += run.size;
+            }
+            Run run = Run.write(List.of(current.flushing.entries.iterator()),
+                    current.flushing.size.get(), liveness);
+            if (entries + run.size > 2 * liveRows.getAsLong()) {
+                // Mostly dead entries: rewrite everything as one run
+                List<Iterator<Entry>> all = new ArrayList<>();
+                runs.forEach(r -> all.add(r.iterator(0)));
+                all.add(run.iterator(0));
+                run = Run.write(all, entries + run.size, liveness);
+                runs.clear();
+            }
+            while (!runs.isEmpty() && runs.get(runs.size() - 1).size <= 2L * run.size) {
+                Run previous = runs.remove(runs.size() - 1);
+                run = Run.write(List.of(previous.iterator(0), run.iterator(0)), previous.size + run.size, liveness);
+            }
+            if (run.size > 0) {
+                runs.add(run);
+            }
+            state = new State(List.copyOf(runs), null, current.pending);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Streams the entries strictly between two keys, in order, live or dead.
+     * @param after Lower bound, exclusive, or null for the first entry
+     * @param before Upper bound, exclusive, or null for no end
+     * @return The entries
+     */
+    Stream<Entry> range(Entry after, Entry before) {
+        State current = state;
+        List<Iterator<Entry>> sources = new ArrayList<>();
+        for (Run run : current.runs) {
+            sources.add(run.iterator(after == null ? 0 : run.higher(after)));
+        }
+        if (current.flushing != null) {
+            sources.add(tail(current.flushing.entries, after).iterator());
+        }
+        sources.add(tail(current.pending.entries, after).iterator());
+        Iterator<Entry> merged = new MergingIterator(sources, before);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static NavigableSet<Entry> tail(ConcurrentSkipListSet<Entry> entries, Entry after) {
+        return after == null ? entries : entries.tailSet(after, false);
+    }
+
+    /**
+     * Index entry: a row version under its sort key. Entries with the same key are told apart by row and
+     * version, so a new version of a row never collides with its dead entry.
+     */
+    record Entry(long major, long epochSecond, int nano, long idHi, long idLo, int row, int version)
+            implements Comparable<Entry> {
+
+        /**
+         * @return A key that sorts before every entry with the major key
+         */
+        static Entry first(long major) {
+            return new Entry(major, Long.MAX_VALUE, Integer.MAX_VALUE, 0, 0, Integer.MIN_VALUE, Integer.MIN_VALUE);
+        }
+
+        /**
+         * @return A key that sorts after every entry with the major key
+         */
+        static Entry last(long major) {
+            return new Entry(major, Long.MIN_VALUE, Integer.MIN_VALUE, -1, -1, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+
+        /**
+         * @return A key that sorts after every entry with the major key and row order key
+         */
+        static Entry after(long major, long epochSecond, int nano, long idHi, long idLo) {
+            return new Entry(major, epochSecond, nano, idHi, idLo, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return compare(major, epochSecond, nano, idHi, idLo, row, version, other);
+        }
+
+        static int compare(long major, long epochSecond, int nano, long idHi, long idLo, int row, int version,
+                           Entry other) {
+            int result = Long.compare(major, other.major);
+            if (result == 0) {
+                result = RowOrder.compare(epochSecond, nano, idHi, idLo,
+                        other.epochSecond, other.nano, other.idHi, other.idLo);
+            }
+            if (result == 0) {
+                result = Integer.compare(row, other.row);
+            }
+            if (result == 0) {
+                result = Integer.compare(version, other.version);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Published index contents: the runs, largest first, the pending entries being written to a run, if
+     * any, and the pending entries new adds go to.
+     */
+    private record State(List<Run> runs, Pending flushing, Pending pending) {
+    }
+
+    private static final class Pending {
+        final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+        final AtomicInteger size = new AtomicInteger();
+    }
+
+    /**
+     * Sorted entries in a direct buffer, immutable once written.
+     */
+    private static final class Run {
+        final ByteBuffer buffer;
+        final int size;
+
+        private Run(ByteBuffer buffer, int size) {
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        /**
+         * Writes the live entries of sorted sources to a new run.
+         * @param capacity Upper bound of the number of entries in the sources
+         */
+        static Run write(List<Iterator<Entry>> sources, long capacity, Liveness liveness) {
+            if (capacity * ENTRY_BYTES > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Off-heap index run is full");
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) capacity * ENTRY_BYTES).order(ByteOrder.nativeOrder());
+            int size = 0;
+            Iterator<Entry> merged = sources.size() == 1 ? sources.get(0) : new MergingIterator(sources, null);
+            while (merged.hasNext() && size < capacity) {
+                Entry entry = merged.next();
+                if (!liveness.isLive(entry.row(), entry.version())) {
+                    continue;
+                }
+                int offset = size++ * ENTRY_BYTES;
+                buffer.putLong(offset + MAJOR, entry.major());
+                buffer.putLong(offset + EPOCH_SECOND, entry.epochSecond());
+                buffer.putLong(offset + ID_HI, entry.idHi());
+                buffer.putLong(offset + ID_LO, entry.idLo());
+                buffer.putInt(offset + NANO, entry.nano());
+                buffer.putInt(offset + ROW, entry.row());
+                buffer.putInt(offset + VERSION, entry.version());
+            }
+            if (size < capacity) {
+                // Dead entries were dropped, so copy to a buffer of the exact size
+                ByteBuffer exact = ByteBuffer.allocateDirect(size * ENTRY_BYTES).order(ByteOrder.nativeOrder());
+                exact.put(0, buffer, 0, size * ENTRY_BYTES);
+                buffer = exact;
+            }
+            return new Run(buffer, size);
+        }
+
+        Entry get(int index) {
+            int offset = index * ENTRY_BYTES;
+            return new Entry(buffer.getLong(offset + MAJOR), buffer.getLong(offset + EPOCH_SECOND),
+                    buffer.getInt(offset + NANO), buffer.getLong(offset + ID_HI), buffer.getLong(offset + ID_LO),
+                    buffer.getInt(offset + ROW), buffer.getInt(offset + VERSION));
+        }
+
+        /**
+         * @return The index of the first entry above a key
+         */
+        int higher(Entry key) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int offset = middle * ENTRY_BYTES;
+                int result = Entry.compare(buffer.getLong(offset + MAJOR), buffer.getLong(offset + EPOCH_SECOND),
+                        buffer.getInt(offset + NANO), buffer.getLong(offset + ID_HI), buffer.getLong(offset + ID_LO),
+                        buffer.getInt(offset + ROW), buffer.getInt(offset + VERSION), key);
+                if (result <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        Iterator<Entry> iterator(int from) {
+            return new Iterator<>() {
+                private int index = from;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @Override
+                public Entry next() {
+                    if (index >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    return get(index++);
+                }
+            };
+        }
+    }
+
+    /**
+     * Merges sorted sources into one sorted sequence, up to an exclusive bound.
+     */
+    private static final class MergingIterator implements Iterator<Entry> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(Head::entry));
+        private final Entry before;
+
+        MergingIterator(List<Iterator<Entry>> sources, Entry before) {
+            this.before = before;
+            for (Iterator<Entry> source : sources) {
+                if (source.hasNext()) {
+                    heads.add(new Head(source.next(), source));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            Head head = heads.peek();
+            return head != null && (before == null || head.entry().compareTo(before) < 0);
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Head head = heads.poll();
+            if (head.source().hasNext()) {
+                heads.add(new Head(head.source().next(), head.source()));
+            }
+            return head.entry();
+        }
+
+        private record Head(Entry entry, Iterator<Entry> source) {
+        }
+    }
+}
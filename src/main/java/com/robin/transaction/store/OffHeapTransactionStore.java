@@ -0,0 +1,614 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.Amount;
+import com.robin.transaction.model.DedupFilterStats;
+import com.robin.transaction.model.DescriptionIndexStats;
+import com.robin.transaction.model.DescriptionMatch;
+import com.robin.transaction.model.Transaction;
+import com.robin.transaction.model.TransactionOrderKey;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Transaction store keeping rows and their indexes in direct memory, outside the garbage collected heap.
+ * <p>
+ * Rows are stored by column: each chunk of rows is one direct buffer holding a fixed-width region per
+ * field, for the id, timestamp, amount in minor units, scale and type plus references into an account
+ * dictionary and a description arena. Rows are copy-on-write: a put writes a new row and the old row is
+ * recycled. Each row carries a seqlock version that changes whenever the row is written or recycled, so
+ * readers never block writers and retry when they observe a row being rewritten.
+ * Rows are only materialized into {@link Transaction} objects when they are read.
+ * <p>
+ * The id index is an {@link OffHeapIdIndex}, and the time-ordered, account and amount indexes are
+ * {@link OffHeapSortedIndex}es whose entries name a row version, so the entries of a replaced or removed
+ * row are dead as soon as the row is recycled and are skipped until they are dropped. On the heap, this
+ * store keeps the account dictionary, the most recent index entries, the duplicate detection index
+ * for its window and the description index, which grows with the number of descriptions.
+ * <p>
+ * Ids must be UUIDs and amounts must fit a long count of {@link Amount} minor units; other values are rejected.
+ * Accounts and description bytes are only added to the dictionary and the arena once a write has passed
+ * its checks, so a rejected write takes no space. The arena reuses the space of replaced and removed
+ * descriptions; the dictionary keeps every account that has been stored.
+ */
+public class OffHeapTransactionStore implements TransactionStore {
+
+    // Columns: the bytes per row of the columns before each, so a column starts at that times the rows per chunk
+    private static final int ID_HI = 0;               // long, most significant id bits
+    private static final int ID_LO = 8;               // long, least significant id bits
+    private static final int EPOCH_SECOND = 16;       // long, timestamp seconds (UTC)
+    private static final int AMOUNT = 24;             // long, amount in minor units
+    private static final int DESCRIPTION = 32;        // long, arena address
+    private static final int VERSION = 40;            // int, odd while the row is being written
+    private static final int ACCOUNT = 44;            // int, account dictionary code
+    private static final int NANO = 48;               // int, timestamp nanoseconds
+    private static final int DESCRIPTION_LENGTH = 52; // short, -1 for no description
+    private static final int TYPE = 54;               // byte, index into TYPES
+    private static final int SCALE = 55;              // byte, amount scale
+    private static final int ROW_BYTES = 56;
+
+    // Version passed to read for rows looked up by id, whatever their version
+    private static final int ANY_VERSION = -1;
+
+    private static final int MAX_ROW_CHUNKS = 1 << 15;
+    private static final int INDEX_SEGMENTS = 64;
+    private static final int PENDING_INDEX_ENTRIES = 4096;
+    private static final List<String> TYPES = List.of("DEBIT", "CREDIT");
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final int rowsPerChunkShift;
+    private final int rowMask;
+    private final AtomicReferenceArray<ByteBuffer> rowChunks = new AtomicReferenceArray<>(MAX_ROW_CHUNKS);
+    private final OffHeapArena descriptions;
+
+    // Guarded by rowLock: row allocation high-water mark and recycled rows
+    private final Object rowLock = new Object();
+    private int nextRow;
+    private int[] freeRows = new int[64];
+    private int freeRowCount;
+
+    // Account dictionary, with the number of rows stored per account
+    private final Map<String, Account> accountsByNumber = new ConcurrentHashMap<>();
+    private volatile Account[] accounts = new Account[64];
+    private int accountCount;
+
+    // Primary index from id bits to row, time-ordered indexes (most recent first) and amount index
+    private final OffHeapIdIndex rows = new OffHeapIdIndex(INDEX_SEGMENTS);
+    private final OffHeapSortedIndex orderedIndex;
+    private final OffHeapSortedIndex accountIndex;
+    private final OffHeapSortedIndex amountIndex;
+
+    // Full-text index of descriptions, updated inside the compute operation of the affected id
+    private final DescriptionIndex descriptionIndex = new DescriptionIndex();
+
+    // Duplicate detection index, updated inside the compute operation of the affected id
+    private final DedupIndex dedupIndex;
+
+    /**
+     * Constructor for OffHeapTransactionStore with the default duplicate detection window.
+     * @param rowsPerChunk Number of rows per direct memory chunk, rounded up to a power of two
+     * @param arenaChunkBytes Size of each description arena chunk
+     */
+    public OffHeapTransactionStore(int rowsPerChunk, int arenaChunkBytes) {
+        this(rowsPerChunk, arenaChunkBytes, DedupIndex.DEFAULT_WINDOW, DedupIndex.DEFAULT_BUCKETS,
+                DedupIndex.DEFAULT_EXPECTED_KEYS, DedupIndex.DEFAULT_FILTER_BYTES, DedupIndex.DEFAULT_FILTER_FPP);
+    }
+
+    /**
+     * Constructor for OffHeapTransactionStore.
+     * @param rowsPerChunk Number of rows per direct memory chunk, rounded up to a power of two
+     * @param arenaChunkBytes Size of each description arena chunk
+     * @param dedupWindow How far back, by transaction timestamp, duplicates are detected
+     * @param dedupBuckets Number of buckets the window is split into
+     * @param dedupExpectedKeys Expected number of transactions per window, which sizes the Bloom filters
+     * @param dedupFilterBytes Memory cap of the Bloom filters in front of the duplicate check, or 0 for none
+     * @param dedupFilterFpp Target false-positive probability of the Bloom filters
+     */
+    public OffHeapTransactionStore(int rowsPerChunk, int arenaChunkBytes, Duration dedupWindow, int dedupBuckets,
+                                   long dedupExpectedKeys, long dedupFilterBytes, double dedupFilterFpp) {
+        this(rowsPerChunk, arenaChunkBytes, dedupWindow, dedupBuckets, dedupExpectedKeys, dedupFilterBytes,
+                dedupFilterFpp, PENDING_INDEX_ENTRIES);
+    }
+
+    /**
+     * @param pendingIndexEntries Number of entries each sorted index keeps on the heap before writing them out
+     */
+    OffHeapTransactionStore(int rowsPerChunk, int arenaChunkBytes, Duration dedupWindow, int dedupBuckets,
+                            long dedupExpectedKeys, long dedupFilterBytes, double dedupFilterFpp,
+                            int pendingIndexEntries) {
+        this.rowsPerChunkShift = 32 - Integer.numberOfLeadingZeros(Math.max(rowsPerChunk, 2) - 1);
+        this.rowMask = (1 << rowsPerChunkShift) - 1;
+        this.descriptions = new OffHeapArena(arenaChunkBytes);
+        this.dedupIndex = new DedupIndex(dedupWindow, dedupBuckets, dedupExpectedKeys, dedupFilterBytes,
+                dedupFilterFpp);
+        this.orderedIndex = new OffHeapSortedIndex(pendingIndexEntries, this::isLive, rows::size);
+        this.accountIndex = new OffHeapSortedIndex(pendingIndexEntries, this::isLive, rows::size);
+        this.amountIndex = new OffHeapSortedIndex(pendingIndexEntries, this::isLive, rows::size);
+    }
+
+    @Override
+    public Transaction get(String id) {
+        UUID uuid = RowOrder.parseId(id);
+        if (uuid == null) {
+            return null;
+        }
+        long hi = uuid.getMostSignificantBits();
+        long lo = uuid.getLeastSignificantBits();
+        // A row may be recycled between the lookup and the read; look it up again in that case
+        while (true) {
+            int row = rows.get(hi, lo);
+            if (row == OffHeapIdIndex.ABSENT) {
+                return null;
+            }
+            Transaction transaction = read(row, hi, lo, ANY_VERSION);
+            if (transaction != null) {
+                return transaction;
+            }
+        }
+    }
+
+    @Override
+    public Transaction put(Transaction transaction) {
+        UUID uuid = RowOrder.requireId(transaction.getId());
+        EncodedRow encoded = encode(transaction);
+        Transaction[] previous = new Transaction[1];
+        rows.compute(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), existing -> {
+            previous[0] = existing == OffHeapIdIndex.ABSENT ? null : readOwned(existing, uuid);
+            return rekey(existing, uuid, encoded);
+        });
+        flushIndexes();
+        return previous[0];
+    }
+
+    @Override
+    public boolean putIfAbsent(Transaction transaction) {
+        UUID uuid = RowOrder.requireId(transaction.getId());
+        EncodedRow encoded = encode(transaction);
+        DedupKey key = dedupKey(encoded);
+        boolean[] inserted = new boolean[1];
+        rows.compute(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), existing -> {
+            if (existing != OffHeapIdIndex.ABSENT
+                    || !dedupIndex.claim(key, epochMilli(encoded.epochSecond(), encoded.nano()))) {
+                return existing;
+            }
+            inserted[0] = true;
+            return write(OffHeapIdIndex.ABSENT, uuid, encoded);
+        });
+        flushIndexes();
+        return inserted[0];
+    }
+
+    @Override
+    public boolean replace(String id, Transaction expected, Transaction replacement) {
+        UUID uuid = RowOrder.parseId(id);
+        if (uuid == null) {
+            return false;
+        }
+        EncodedRow encoded = encode(replacement);
+        boolean[] replaced = new boolean[1];
+        rows.compute(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), existing -> {
+            if (existing == OffHeapIdIndex.ABSENT || !Objects.equals(readOwned(existing, uuid), expected)) {
+                return existing;
+            }
+            replaced[0] = true;
+            return rekey(existing, uuid, encoded);
+        });
+        flushIndexes();
+        return replaced[0];
+    }
+
+    @Override
+    public Transaction remove(String id) {
+        UUID uuid = RowOrder.parseId(id);
+        if (uuid == null) {
+            return null;
+        }
+        Transaction[] previous = new Transaction[1];
+        rows.compute(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), existing -> {
+            if (existing != OffHeapIdIndex.ABSENT) {
+                previous[0] = readOwned(existing, uuid);
+                release(existing);
+                descriptionIndex.remove(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+                free(existing);
+            }
+            return OffHeapIdIndex.ABSENT;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public Stream<Transaction> scan(TransactionOrderKey after) {
+        return materialize(orderedIndex.range(after == null ? null : after(0, after), null));
+    }
+
+    @Override
+    public Stream<Transaction> scanAccount(String accountNumber, TransactionOrderKey after) {
+        Account account = accountsByNumber.get(accountNumber);
+        if (account == null) {
+            return Stream.empty();
+        }
+        return materialize(accountIndex.range(
+                after == null ? OffHeapSortedIndex.Entry.first(account.code) : after(account.code, after),
+                OffHeapSortedIndex.Entry.first(account.code + 1L)));
+    }
+
+    @Override
+    public Stream<Transaction> scanAmount(long minMinorUnits, long maxMinorUnits) {
+        if (minMinorUnits > maxMinorUnits) {
+            return Stream.empty();
+        }
+        return materialize(amountIndex.range(OffHeapSortedIndex.Entry.first(minMinorUnits),
+                OffHeapSortedIndex.Entry.last(maxMinorUnits)));
+    }
+
+    @Override
+    public Stream<DescriptionMatch> searchDescriptions(String query, boolean matchAll, long before) {
+        List<String> terms = DescriptionIndex.tokenize(query);
+        if (terms.isEmpty()) {
+            return Stream.empty();
+        }
+        // Skip matches changed since the search, which no longer match or are found under their new position
+        return descriptionIndex.stream(terms, matchAll, before)
+                .map(hit -> {
+                    Transaction transaction = get(new UUID(hit.idHi(), hit.idLo()).toString());
+                    return transaction == null
+                            || !DescriptionIndex.matches(transaction.getDescription(), terms, matchAll) ? null
+                            : new DescriptionMatch(hit.position(), transaction);
+                })
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public long count() {
+        return rows.size();
+    }
+
+    @Override
+    public long countAccount(String accountNumber) {
+        Account account = accountsByNumber.get(accountNumber);
+        return account == null ? 0 : account.rows.sum();
+    }
+
+    @Override
+    public DedupFilterStats dedupFilterStats() {
+        return dedupIndex.stats();
+    }
+
+    @Override
+    public DescriptionIndexStats descriptionIndexStats() {
+        return descriptionIndex.stats();
+    }
+
+    /**
+     * @return The number of accounts in the dictionary
+     */
+    int accountCount() {
+        synchronized (accountsByNumber) {
+            return accountCount;
+        }
+    }
+
+    private Stream<Transaction> materialize(Stream<OffHeapSortedIndex.Entry> entries) {
+        return entries
+                .map(entry -> read(entry.row(), entry.idHi(), entry.idLo(), entry.version()))
+                .filter(Objects::nonNull);
+    }
+
+    private static OffHeapSortedIndex.Entry after(long major, TransactionOrderKey key) {
+        UUID id = RowOrder.requireId(key.id());
+        return OffHeapSortedIndex.Entry.after(major, RowOrder.epochSecond(key.timestamp()),
+                key.timestamp().getNano(), id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    /**
+     * Writes the recent entries of the sorted indexes out to direct memory once there are enough of them.
+     * Called after the compute operation of a write, so no id is locked meanwhile.
+     */
+    private void flushIndexes() {
+        orderedIndex.flushIfFull();
+        accountIndex.flushIfFull();
+        amountIndex.flushIfFull();
+    }
+
+    /**
+     * Writes a new row for an id, registering its account, and moves the index entries to it. Called inside
+     * a compute operation of the primary index, so writers of the same id are serialized.
+     * @param previous The id's current row, or {@link OffHeapIdIndex#ABSENT}
+     * @return The new row
+     */
+    private int write(int previous, UUID id, EncodedRow encoded) {
+        Account account = account(encoded.accountNumber());
+        long description = encoded.descriptionBytes() == null ? 0 : descriptions.write(encoded.descriptionBytes());
+        int row = allocate();
+        ByteBuffer chunk = chunk(row);
+        int versionAt = at(VERSION, row, Integer.BYTES);
+        int version = (int) INT.getOpaque(chunk, versionAt);
+        INT.setOpaque(chunk, versionAt, version + 1);
+        VarHandle.storeStoreFence();
+        chunk.putLong(at(ID_HI, row, Long.BYTES), id.getMostSignificantBits());
+        chunk.putLong(at(ID_LO, row, Long.BYTES), id.getLeastSignificantBits());
+        chunk.putLong(at(EPOCH_SECOND, row, Long.BYTES), encoded.epochSecond());
+        chunk.putLong(at(AMOUNT, row, Long.BYTES), encoded.amount());
+        chunk.putLong(at(DESCRIPTION, row, Long.BYTES), description);
+        chunk.putInt(at(ACCOUNT, row, Integer.BYTES), account.code);
+        chunk.putInt(at(NANO, row, Integer.BYTES), encoded.nano());
+        chunk.putShort(at(DESCRIPTION_LENGTH, row, Short.BYTES), encoded.descriptionLength());
+        chunk.put(at(TYPE, row, 1), encoded.type());
+        chunk.put(at(SCALE, row, 1), encoded.scale());
+        INT.setRelease(chunk, versionAt, version + 2);
+
+        if (previous != OffHeapIdIndex.ABSENT) {
+            free(previous);
+        }
+        long hi = id.getMostSignificantBits();
+        long lo = id.getLeastSignificantBits();
+        orderedIndex.add(new OffHeapSortedIndex.Entry(0, encoded.epochSecond(), encoded.nano(), hi, lo,
+                row, version + 2));
+        accountIndex.add(new OffHeapSortedIndex.Entry(account.code, encoded.epochSecond(), encoded.nano(), hi, lo,
+                row, version + 2));
+        amountIndex.add(new OffHeapSortedIndex.Entry(encoded.amount(), encoded.epochSecond(), encoded.nano(), hi, lo,
+                row, version + 2));
+        account.rows.increment();
+        descriptionIndex.add(hi, lo, encoded.descriptionText());
+        return row;
+    }
+
+    /**
+     * Recycles a row: moves it to a new version without an id or description, so index entries and
+     * readers of the old version see it gone, then returns its description bytes and the row for reuse.
+     * Called inside a compute operation of the row's id, so the row is not written concurrently.
+     */
+    private void free(int row) {
+        ByteBuffer chunk = chunk(row);
+        int versionAt = at(VERSION, row, Integer.BYTES);
+        int version = (int) INT.getOpaque(chunk, versionAt);
+        long description = chunk.getLong(at(DESCRIPTION, row, Long.BYTES));
+        short descriptionLength = chunk.getShort(at(DESCRIPTION_LENGTH, row, Short.BYTES));
+        accounts[chunk.getInt(at(ACCOUNT, row, Integer.BYTES))].rows.decrement();
+        INT.setOpaque(chunk, versionAt, version + 1);
+        VarHandle.storeStoreFence();
+        chunk.putLong(at(ID_HI, row, Long.BYTES), 0);
+        chunk.putLong(at(ID_LO, row, Long.BYTES), 0);
+        chunk.putShort(at(DESCRIPTION_LENGTH, row, Short.BYTES), (short) -1);
+        INT.setRelease(chunk, versionAt, version + 2);
+        if (descriptionLength >= 0) {
+            descriptions.free(description, descriptionLength);
+        }
+        synchronized (rowLock) {
+            if (freeRowCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, freeRows.length * 2);
+            }
+            freeRows[freeRowCount++] = row;
+        }
+    }
+
+    private boolean isLive(int row, int version) {
+        return (int) INT.getAcquire(chunk(row), at(VERSION, row, Integer.BYTES)) == version;
+    }
+
+    /**
+     * Moves the dedup key from an id's previous row to its new row, then writes the new row.
+     */
+    private int rekey(int previous, UUID id, EncodedRow encoded) {
+        if (previous != OffHeapIdIndex.ABSENT) {
+            release(previous);
+        }
+        dedupIndex.add(dedupKey(encoded), epochMilli(encoded.epochSecond(), encoded.nano()));
+        return write(previous, id, encoded);
+    }
+
+    /**
+     * Unregisters the dedup key of a stored row. Called inside a compute operation of the row's id,
+     * so the row is not written concurrently and can be read directly.
+     */
+    private void release(int row) {
+        ByteBuffer chunk = chunk(row);
+        dedupIndex.release(dedupKey(row), epochMilli(chunk.getLong(at(EPOCH_SECOND, row, Long.BYTES)),
+                chunk.getInt(at(NANO, row, Integer.BYTES))));
+    }
+
+    private static long epochMilli(long epochSecond, int nano) {
+        return epochSecond * 1000 + nano / 1_000_000;
+    }
+
+    private static DedupKey dedupKey(EncodedRow encoded) {
+        return new DedupKey(encoded.accountNumber(), encoded.amount(), TYPES.get(encoded.type()));
+    }
+
+    /**
+     * Builds the dedup key of a stored row. Called inside a compute operation of the row's id,
+     * so the row is not written concurrently and can be read directly.
+     */
+    private DedupKey dedupKey(int row) {
+        ByteBuffer chunk = chunk(row);
+        return new DedupKey(accounts[chunk.getInt(at(ACCOUNT, row, Integer.BYTES))].number,
+                chunk.getLong(at(AMOUNT, row, Long.BYTES)), TYPES.get(chunk.get(at(TYPE, row, 1))));
+    }
+
+    /**
+     * Reads the current row of an id inside the id's compute operation.
+     */
+    private Transaction readOwned(int row, UUID id) {
+        return read(row, id.getMostSignificantBits(), id.getLeastSignificantBits(), ANY_VERSION);
+    }
+
+    /**
+     * Reads a row with the seqlock protocol. The description is copied before the version is checked
+     * again, so its bytes are not reused for another row while they are read.
+     * @param version The version to read, or {@link #ANY_VERSION}
+     * @return The transaction stored in the row, or null if the row no longer holds the expected id and version
+     */
+    private Transaction read(int row, long idHi, long idLo, int version) {
+        ByteBuffer chunk = chunk(row);
+        int versionAt = at(VERSION, row, Integer.BYTES);
+        while (true) {
+            int current = (int) INT.getAcquire(chunk, versionAt);
+            if ((current & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (version != ANY_VERSION && current != version) {
+                return null;
+            }
+            long hi = chunk.getLong(at(ID_HI, row, Long.BYTES));
+            long lo = chunk.getLong(at(ID_LO, row, Long.BYTES));
+            long epochSecond = chunk.getLong(at(EPOCH_SECOND, row, Long.BYTES));
+            long amount = chunk.getLong(at(AMOUNT, row, Long.BYTES));
+            long description = chunk.getLong(at(DESCRIPTION, row, Long.BYTES));
+            int accountCode = chunk.getInt(at(ACCOUNT, row, Integer.BYTES));
+            int nano = chunk.getInt(at(NANO, row, Integer.BYTES));
+            short descriptionLength = chunk.getShort(at(DESCRIPTION_LENGTH, row, Short.BYTES));
+            byte type = chunk.get(at(TYPE, row, 1));
+            byte scale = chunk.get(at(SCALE, row, 1));
+            byte[] descriptionBytes = null;
+            if (descriptionLength >= 0) {
+                try {
+                    descriptionBytes = descriptions.read(description, descriptionLength);
+                } catch (RuntimeException e) {
+                    // A torn read of a row being rewritten, which the version shows
+                    if ((int) INT.getVolatile(chunk, versionAt) == current) {
+                        throw e;
+                    }
+                    continue;
+                }
+            }
+            VarHandle.loadLoadFence();
+            if ((int) INT.getVolatile(chunk, versionAt) != current) {
+                continue;
+            }
+            if (hi != idHi || lo != idLo) {
+                return null;
+            }
+            return new Transaction(
+                    new UUID(hi, lo).toString(),
+                    accounts[accountCode].number,
+                    new Amount(amount, scale).toBigDecimal(),
+                    TYPES.get(type),
+                    descriptionBytes == null ? null : new String(descriptionBytes, StandardCharsets.UTF_8),
+                    RowOrder.timestamp(epochSecond, nano));
+        }
+    }
+
+    /**
+     * Converts a transaction into row values. Neither the account nor the description is stored until the
+     * row is written.
+     * @throws IllegalArgumentException if a value cannot be represented in a row
+     */
+    private EncodedRow encode(Transaction transaction) {
+        Amount amount = Amount.of(transaction.getAmount());
+        int type = TYPES.indexOf(transaction.getType());
+        if (type < 0) {
+            throw new IllegalArgumentException("Type cannot be stored off-heap: " + transaction.getType());
+        }
+        if (transaction.getAccountNumber() == null) {
+            throw new IllegalArgumentException("Account number cannot be stored off-heap: null");
+        }
+        short descriptionLength = -1;
+        byte[] description = null;
+        if (transaction.getDescription() != null) {
+            description = transaction.getDescription().getBytes(StandardCharsets.UTF_8);
+            if (description.length > Short.MAX_VALUE || !descriptions.fits(description.length)) {
+                throw new IllegalArgumentException("Description cannot be stored off-heap");
+            }
+            descriptionLength = (short) description.length;
+        }
+        LocalDateTime timestamp = transaction.getTimestamp();
+        return new EncodedRow(
+                transaction.getAccountNumber(),
+                RowOrder.epochSecond(timestamp),
+                timestamp.getNano(),
+                (byte) type,
+                amount.scale(),
+                descriptionLength,
+                amount.minorUnits(),
+                description,
+                transaction.getDescription());
+    }
+
+    /**
+     * @return The dictionary entry of an account, registering the account if it is new
+     */
+    private Account account(String accountNumber) {
+        Account account = accountsByNumber.get(accountNumber);
+        return account != null ? account : accountsByNumber.computeIfAbsent(accountNumber, this::registerAccount);
+    }
+
+    // Called inside computeIfAbsent, so each account is registered once
+    private Account registerAccount(String accountNumber) {
+        synchronized (accountsByNumber) {
+            Account[] registered = accounts;
+            if (accountCount == registered.length) {
+                registered = Arrays.copyOf(registered, registered.length * 2);
+            }
+            Account account = new Account(accountNumber, accountCount);
+            registered[accountCount++] = account;
+            accounts = registered;
+            return account;
+        }
+    }
+
+    private int allocate() {
+        int row;
+        synchronized (rowLock) {
+            if (freeRowCount > 0) {
+                return freeRows[--freeRowCount];
+            }
+            row = nextRow++;
+        }
+        int chunkIndex = row >>> rowsPerChunkShift;
+        if (chunkIndex >= MAX_ROW_CHUNKS) {
+            throw new IllegalStateException("Off-heap transaction store is full");
+        }
+        if (rowChunks.get(chunkIndex) == null) {
+            ByteBuffer chunk = ByteBuffer.allocateDirect(ROW_BYTES << rowsPerChunkShift).order(ByteOrder.nativeOrder());
+            rowChunks.compareAndSet(chunkIndex, null, chunk);
+        }
+        return row;
+    }
+
+    private ByteBuffer chunk(int row) {
+        return rowChunks.get(row >>> rowsPerChunkShift);
+    }
+
+    /**
+     * @return The position of a row's value in the column, within the row's chunk
+     */
+    private int at(int column, int row, int width) {
+        return (column << rowsPerChunkShift) + (row & rowMask) * width;
+    }
+
+    /**
+     * Row values of a transaction, computed before the row is allocated, and its description for the description index.
+     */
+    private record EncodedRow(String accountNumber, long epochSecond, int nano, byte type, byte scale,
+                              short descriptionLength, long amount, byte[] descriptionBytes, String descriptionText) {
+    }
+
+    /**
+     * Dictionary entry of an account: its number, its code in rows and index entries, and its number of rows.
+     */
+    private static final class Account {
+        final String number;
+        final int code;
+        final LongAdder rows = new LongAdder();
+
+        Account(String number, int code) {
+            this.number = number;
+            this.code = code;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.robin.transaction.store;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Id and timestamp encoding shared by the store implementations.
+ * Ids are held as the two longs of a UUID and timestamps as UTC epoch seconds plus nanoseconds.
+ * Rows are ordered like {@link com.robin.transaction.model.TransactionOrderKey}: most recent first, then by id.
+ * Comparing the id bits unsigned matches the order of the canonical UUID strings.
+ */
+final class RowOrder {
+
+    private RowOrder() {
+    }
+
+    static int compare(long epochSecond, int nano, long idHi, long idLo,
+                       long otherEpochSecond, int otherNano, long otherIdHi, long otherIdLo) {
+        int result = Long.compare(otherEpochSecond, epochSecond);
+        if (result == 0) {
+            result = Integer.compare(otherNano, nano);
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(idHi, otherIdHi);
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(idLo, otherIdLo);
+        }
+        return result;
+    }
+
+    static long epochSecond(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime timestamp(long epochSecond, int nano) {
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    /**
+     * Parses a transaction id.
+     * @param id The id in canonical 36 character lowercase UUID form
+     * @return The parsed id, or null if the id is not a canonical UUID and so cannot be stored
+     */
+    static UUID parseId(String id) {
+        // Only the canonical form, so the stored id reads back unchanged
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c >= 'A' && c <= 'F') {
+                return null;
+            }
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a transaction id that is about to be stored.
+     * @throws IllegalArgumentException if the id is not a canonical lowercase UUID
+     */
+    static UUID requireId(String id) {
+        UUID uuid = parseId(id);
+        if (uuid == null) {
+            throw new IllegalArgumentException("Transaction ID must be a lowercase UUID: " + id);
+        }
+        return uuid;
+    }
+}
@@ -0,0 +1,246 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.Amount;
+import com.robin.transaction.model.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of all stored transactions.
+ * <p>
+ * The file starts with a magic number and is followed by blocks of
+ * {@code [int length][int crc32c][int rows][rows]}, terminated by a block of length zero and the
+ * total row count. Rows are fixed-width id, timestamp and amount fields followed by length-prefixed
+ * UTF-8 strings. Files are written under a temporary name and moved into place, so a snapshot that
+ * exists is complete. Loading maps the file and decodes the blocks in parallel.
+ */
+final class SnapshotFile {
+
+    private static final long MAGIC = 0x54584e534e415031L; // "TXNSNAP1"
+    private static final int BLOCK_HEADER_BYTES = 12;
+    private static final int BLOCK_BYTES = 1024 * 1024;
+    private static final long MAX_MAPPING_BYTES = 1L << 30;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot file.
+     * @param file The snapshot file to create or replace
+     * @param transactions The transactions to write
+     * @return The number of rows written
+     */
+    static long write(Path file, Stream<Transaction> transactions) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long rows;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            BlockWriter writer = new BlockWriter(channel);
+            transactions.forEach(writer::add);
+            rows = writer.finish();
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    /**
+     * Loads a snapshot file.
+     * @param file The snapshot file
+     * @param consumer Receives every row; called concurrently from several threads
+     * @return The number of rows read
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    static long read(Path file, Consumer<Transaction> consumer) throws IOException {
+        List<ByteBuffer> blocks = new ArrayList<>();
+        long rows;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_MAPPING_BYTES));
+            if (size < 8 || window.getLong(0) != MAGIC) {
+                throw new IOException("Not a transaction snapshot: " + file);
+            }
+            long position = 8;
+            while (true) {
+                if (position + BLOCK_HEADER_BYTES > windowStart + window.capacity()) {
+                    if (position + BLOCK_HEADER_BYTES > size) {
+                        throw new IOException("Truncated transaction snapshot: " + file);
+                    }
+                    windowStart = position;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                            Math.min(size - windowStart, MAX_MAPPING_BYTES));
+                }
+                int offset = (int) (position - windowStart);
+                int length = window.getInt(offset);
+                if (length < 0) {
+                    throw new IOException("Corrupt transaction snapshot: " + file);
+                }
+                if (length == 0) {
+                    rows = window.getLong(offset + 4);
+                    break;
+                }
+                if (position + BLOCK_HEADER_BYTES + length > windowStart + window.capacity()) {
+                    if (position + BLOCK_HEADER_BYTES + length > size) {
+                        throw new IOException("Truncated transaction snapshot: " + file);
+                    }
+                    windowStart = position;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                            Math.min(size - windowStart, MAX_MAPPING_BYTES));
+                    offset = 0;
+                }
+                // Each block keeps its mapping alive after the channel is closed
+                blocks.add(window.slice(offset, BLOCK_HEADER_BYTES + length));
+                position += BLOCK_HEADER_BYTES + length;
+            }
+        }
+        long decoded;
+        try {
+            decoded = blocks.parallelStream().mapToLong(block -> readBlock(block, consumer)).sum();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (decoded != rows) {
+            throw new IOException("Corrupt transaction snapshot " + file + ": expected " + rows + " rows, found " + decoded);
+        }
+        return rows;
+    }
+
+    private static long readBlock(ByteBuffer block, Consumer<Transaction> consumer) {
+        int length = block.getInt(0);
+        int checksum = block.getInt(4);
+        int rows = block.getInt(8);
+        ByteBuffer data = block.slice(BLOCK_HEADER_BYTES, length);
+        CRC32C crc = new CRC32C();
+        crc.update(data.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new UncheckedIOException(new IOException("Corrupt transaction snapshot block, checksum mismatch"));
+        }
+        for (int i = 0; i < rows; i++) {
+            UUID id = new UUID(data.getLong(), data.getLong());
+            long epochSecond = data.getLong();
+            int nano = data.getInt();
+            Amount amount = new Amount(data.getLong(), data.get());
+            String accountNumber = getString(data);
+            String type = getString(data);
+            String description = getString(data);
+            consumer.accept(new Transaction(id.toString(), accountNumber, amount.toBigDecimal(), type, description,
+                    RowOrder.timestamp(epochSecond, nano)));
+        }
+        return rows;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Packs rows into checksummed blocks.
+     */
+    private static final class BlockWriter {
+        private final FileChannel channel;
+        private final ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_BYTES + BLOCK_BYTES);
+        private int blockRows;
+        private long rows;
+
+        BlockWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            writeFully(ByteBuffer.allocate(8).putLong(0, MAGIC));
+            block.position(BLOCK_HEADER_BYTES);
+        }
+
+        void add(Transaction transaction) {
+            StoredTransaction row = StoredTransaction.of(transaction);
+            byte[] accountNumber = bytes(row.accountNumber());
+            byte[] type = bytes(row.type());
+            byte[] description = bytes(row.description());
+            int rowBytes = 8 + 8 + 8 + 4 + 8 + 1 + length(accountNumber) + length(type) + length(description);
+            if (block.remaining() < rowBytes) {
+                flushBlock();
+            }
+            block.putLong(row.idHi()).putLong(row.idLo())
+                    .putLong(row.epochSecond()).putInt(row.nano())
+                    .putLong(row.amountMinorUnits()).put(row.amountScale());
+            putBytes(accountNumber);
+            putBytes(type);
+            putBytes(description);
+            blockRows++;
+            rows++;
+        }
+
+        long finish() throws IOException {
+            flushBlock();
+            writeFully(ByteBuffer.allocate(BLOCK_HEADER_BYTES).putInt(0, 0).putLong(4, rows));
+            return rows;
+        }
+
+        private void flushBlock() {
+            if (blockRows == 0) {
+                return;
+            }
+            int length = block.position() - BLOCK_HEADER_BYTES;
+            CRC32C crc = new CRC32C();
+            crc.update(block.array(), BLOCK_HEADER_BYTES, length);
+            block.putInt(0, length).putInt(4, (int) crc.getValue()).putInt(8, blockRows);
+            try {
+                writeFully(block.flip());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            block.clear().position(BLOCK_HEADER_BYTES);
+            blockRows = 0;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void putBytes(byte[] value) {
+            if (value == null) {
+                block.putShort((short) -1);
+            } else {
+                block.putShort((short) value.length).put(value);
+            }
+        }
+
+        private static byte[] bytes(String value) {
+            if (value == null) {
+                return null;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Value too long for a snapshot row: " + bytes.length + " bytes");
+            }
+            return bytes;
+        }
+
+        private static int length(byte[] value) {
+            return 2 + (value == null ? 0 : value.length);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.Amount;
+import com.robin.transaction.model.Transaction;
+import com.robin.transaction.model.TransactionOrderKey;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Immutable, compact form of a transaction kept by {@link HeapTransactionStore}.
+ * The id is held as two longs, the amount as fixed-point minor units and the timestamp
+ * as epoch seconds plus nanoseconds, and the well-known types share one String instance.
+ * The record doubles as its own entry in the time-ordered indexes.
+ */
+record StoredTransaction(long idHi, long idLo, String accountNumber, long amountMinorUnits, byte amountScale,
+                         String type, String description, long epochSecond, int nano) {
+
+    /**
+     * Index order: most recent first, then by id.
+     */
+    static final Comparator<StoredTransaction> ORDER = (a, b) -> RowOrder.compare(
+            a.epochSecond, a.nano, a.idHi, a.idLo, b.epochSecond, b.nano, b.idHi, b.idLo);
+
+    /**
+     * Amount index order: by amount, then in index order.
+     */
+    static final Comparator<StoredTransaction> AMOUNT_ORDER = Comparator
+            .comparingLong(StoredTransaction::amountMinorUnits)
+            .thenComparing(ORDER);
+
+    /**
+     * Converts a transaction into its stored form.
+     * @throws IllegalArgumentException if the id is not a UUID or the amount cannot be
+     *                                  represented as fixed-point minor units
+     */
+    static StoredTransaction of(Transaction transaction) {
+        UUID id = RowOrder.requireId(transaction.getId());
+        Amount amount = Amount.of(transaction.getAmount());
+        return new StoredTransaction(
+                id.getMostSignificantBits(),
+                id.getLeastSignificantBits(),
+                transaction.getAccountNumber(),
+                amount.minorUnits(),
+                amount.scale(),
+                canonicalType(transaction.getType()),
+                transaction.getDescription(),
+                RowOrder.epochSecond(transaction.getTimestamp()),
+                transaction.getTimestamp().getNano());
+    }
+
+    /**
+     * Builds a search key positioned at an index key, for seeking in the ordered indexes.
+     * @throws IllegalArgumentException if the key's id is not a UUID
+     */
+    static StoredTransaction probe(TransactionOrderKey key) {
+        UUID id = RowOrder.requireId(key.id());
+        return new StoredTransaction(id.getMostSignificantBits(), id.getLeastSignificantBits(),
+                null, 0, (byte) 0, null, null, RowOrder.epochSecond(key.timestamp()), key.timestamp().getNano());
+    }
+
+    /**
+     * Builds a search key sorting before or after every transaction of an amount, for seeking in the amount index.
+     * @param minorUnits The amount in minor units
+     * @param first true for a key before the first transaction of the amount, false for one after the last
+     */
+    static StoredTransaction amountProbe(long minorUnits, boolean first) {
+        // Most recent first, so the latest possible timestamp sorts before every stored transaction
+        return first
+                ? new StoredTransaction(0, 0, null, minorUnits, (byte) 0, null, null, Long.MAX_VALUE, Integer.MAX_VALUE)
+                : new StoredTransaction(0, 0, null, minorUnits, (byte) 0, null, null, Long.MIN_VALUE, Integer.MIN_VALUE);
+    }
+
+    /**
+     * @return The duplicate detection key of the transaction
+     */
+    DedupKey dedupKey() {
+        return new DedupKey(accountNumber, amountMinorUnits, type);
+    }
+
+    /**
+     * @return The timestamp in milliseconds since the epoch (UTC)
+     */
+    long epochMilli() {
+        return epochSecond * 1000 + nano / 1_000_000;
+    }
+
+    /**
+     * @return A new transaction object with the stored data
+     */
+    Transaction toTransaction() {
+        return new Transaction(new UUID(idHi, idLo).toString(), accountNumber,
+                new Amount(amountMinorUnits, amountScale).toBigDecimal(), type, description,
+                RowOrder.timestamp(epochSecond, nano));
+    }
+
+    private static String canonicalType(String type) {
+        if ("DEBIT".equals(type)) {
+            return "DEBIT";
+        }
+        if ("CREDIT".equals(type)) {
+            return "CREDIT";
+        }
+        return type;
+    }
+}
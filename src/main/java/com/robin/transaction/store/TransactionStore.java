@@ -0,0 +1,137 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.DedupFilterStats;
+import com.robin.transaction.model.DescriptionIndexStats;
+import com.robin.transaction.model.DescriptionMatch;
+import com.robin.transaction.model.Transaction;
+import com.robin.transaction.model.TransactionOrderKey;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine for transactions.
+ * Implementations keep the primary id lookup together with a time-ordered index
+ * (most recent first), a per-account time-ordered index, an amount-ordered index, a full-text
+ * index of descriptions and a duplicate detection index, and must keep all of them consistent
+ * for concurrent writers of the same id.
+ * <p>
+ * Two transactions are duplicates if they have the same dedup key (the same account number,
+ * amount in fixed-point minor units and type) and both timestamps fall inside the store's
+ * duplicate detection window.
+ */
+public interface TransactionStore {
+
+    /**
+     * Looks up a transaction by id.
+     * @param id The transaction id
+     * @return The stored transaction, or null if none exists
+     */
+    Transaction get(String id);
+
+    /**
+     * Stores a transaction under its id, replacing any transaction stored with the same id,
+     * without checking for duplicates. Used to restore transactions.
+     * @param transaction The transaction to store, with id and timestamp set
+     * @return The transaction previously stored under the id, or null if none
+     */
+    Transaction put(Transaction transaction);
+
+    /**
+     * Atomically stores a transaction unless a transaction is already stored under its id, or another
+     * transaction with the same dedup key is stored inside the duplicate detection window.
+     * A stored transaction is never replaced; use {@link #replace} for that.
+     * @param transaction The transaction to store, with id and timestamp set
+     * @return true if the transaction was stored, false if its id is taken or it is a duplicate
+     */
+    boolean putIfAbsent(Transaction transaction);
+
+    /**
+     * Stores a batch of transactions, each unless it is a duplicate of a stored transaction or of an
+     * earlier transaction of the batch. Each transaction is stored atomically as by
+     * {@link #putIfAbsent(Transaction)}; the batch as a whole is not atomic.
+     * @param transactions The transactions to store, with ids and timestamps set
+     * @return For each transaction, true if it was stored, false if its id is taken or it is a duplicate
+     * @throws IllegalArgumentException if an id is not a UUID or an amount cannot be stored;
+     *                                  the transactions before it may have been stored
+     */
+    default boolean[] putAllIfAbsent(List<Transaction> transactions) {
+        boolean[] stored = new boolean[transactions.size()];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = putIfAbsent(transactions.get(i));
+        }
+        return stored;
+    }
+
+    /**
+     * Atomically replaces the transaction stored under an id if it is still equal to an expected value.
+     * Updates are not checked for duplicates.
+     * @param id The id of the transaction to replace
+     * @param expected The transaction expected to be stored, as returned by {@link #get(String)}
+     * @param replacement The new transaction data, with id and timestamp set
+     * @return true if the transaction was replaced, false if the id is unknown or its transaction has changed
+     */
+    boolean replace(String id, Transaction expected, Transaction replacement);
+
+    /**
+     * Removes a transaction.
+     * @param id The id of the transaction to remove
+     * @return The removed transaction, or null if none existed
+     */
+    Transaction remove(String id);
+
+    /**
+     * Streams transactions in index order (most recent first).
+     * @param after Position to resume after, or null to start from the most recent transaction
+     * @return A lazily evaluated stream of transactions
+     */
+    Stream<Transaction> scan(TransactionOrderKey after);
+
+    /**
+     * Streams the transactions of one account in index order (most recent first).
+     * @param accountNumber The account number
+     * @param after Position to resume after, or null to start from the most recent transaction
+     * @return A lazily evaluated stream of the account's transactions
+     */
+    Stream<Transaction> scanAccount(String accountNumber, TransactionOrderKey after);
+
+    /**
+     * Streams the transactions with an amount in a range, by ascending amount and then in index order.
+     * @param minMinorUnits Inclusive lower bound of the amount, in {@link com.robin.transaction.model.Amount} minor units
+     * @param maxMinorUnits Inclusive upper bound of the amount, in minor units
+     * @return A lazily evaluated stream of the transactions in the range
+     */
+    Stream<Transaction> scanAmount(long minMinorUnits, long maxMinorUnits);
+
+    /**
+     * Searches the descriptions of the stored transactions, most recently stored or changed first.
+     * Descriptions and the query are compared as lower-case words of letters and digits.
+     * @param query The search words
+     * @param matchAll true for descriptions containing every word of the query, false for any word
+     * @param before Position to resume below, as returned with the last match of the previous page,
+     *               or {@link Long#MAX_VALUE} to start from the most recent match
+     * @return A lazily materialized stream of the matches
+     */
+    Stream<DescriptionMatch> searchDescriptions(String query, boolean matchAll, long before);
+
+    /**
+     * @return The number of stored transactions
+     */
+    long count();
+
+    /**
+     * @param accountNumber The account number
+     * @return The number of stored transactions of the account
+     */
+    long countAccount(String accountNumber);
+
+    /**
+     * @return Counters of the Bloom filters in front of the duplicate check
+     */
+    DedupFilterStats dedupFilterStats();
+
+    /**
+     * @return Size and estimated memory of the full-text index of descriptions
+     */
+    DescriptionIndexStats descriptionIndexStats();
+}
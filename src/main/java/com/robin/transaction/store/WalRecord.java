@@ -0,0 +1,142 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.Amount;
+import com.robin.transaction.model.Transaction;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * A write-ahead log record and its binary frame format.
+ * <p>
+ * A frame is {@code [int payloadLength][int crc32c(payload)][payload]}. The payload starts with the
+ * record type and the id bits; create and update records then carry the transaction fields.
+ *
+ * @param type        The operation
+ * @param id          The id of the affected transaction
+ * @param transaction The transaction data, or null for deletes
+ */
+record WalRecord(Type type, String id, Transaction transaction) {
+
+    /**
+     * Size of the frame header.
+     */
+    static final int HEADER_BYTES = 8;
+
+    /**
+     * Upper bound of a valid payload, used to detect torn or corrupt frames.
+     */
+    static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+
+    enum Type {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    static WalRecord create(Transaction transaction) {
+        return new WalRecord(Type.CREATE, transaction.getId(), transaction);
+    }
+
+    static WalRecord update(Transaction transaction) {
+        return new WalRecord(Type.UPDATE, transaction.getId(), transaction);
+    }
+
+    static WalRecord delete(String id) {
+        return new WalRecord(Type.DELETE, id, null);
+    }
+
+    /**
+     * Encodes the record as a complete frame, ready to be appended to the log.
+     */
+    ByteBuffer toFrame() {
+        UUID uuid = RowOrder.requireId(id);
+        byte[] account = null;
+        byte[] transactionType = null;
+        byte[] description = null;
+        int payloadBytes = 1 + 16;
+        if (transaction != null) {
+            account = bytes(transaction.getAccountNumber());
+            transactionType = bytes(transaction.getType());
+            description = bytes(transaction.getDescription());
+            payloadBytes += 8 + 4 + 8 + 1 + length(account) + length(transactionType) + length(description);
+        }
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payloadBytes);
+        frame.position(HEADER_BYTES);
+        frame.put((byte) type.ordinal());
+        frame.putLong(uuid.getMostSignificantBits());
+        frame.putLong(uuid.getLeastSignificantBits());
+        if (transaction != null) {
+            Amount amount = Amount.of(transaction.getAmount());
+            frame.putLong(RowOrder.epochSecond(transaction.getTimestamp()));
+            frame.putInt(transaction.getTimestamp().getNano());
+            frame.putLong(amount.minorUnits());
+            frame.put(amount.scale());
+            putBytes(frame, account);
+            putBytes(frame, transactionType);
+            putBytes(frame, description);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), HEADER_BYTES, payloadBytes);
+        frame.putInt(0, payloadBytes);
+        frame.putInt(4, (int) crc.getValue());
+        return frame.flip();
+    }
+
+    /**
+     * Decodes a frame payload whose checksum has already been verified.
+     */
+    static WalRecord decode(ByteBuffer payload) {
+        Type type = Type.values()[payload.get()];
+        String id = new UUID(payload.getLong(), payload.getLong()).toString();
+        if (type == Type.DELETE) {
+            return delete(id);
+        }
+        long epochSecond = payload.getLong();
+        int nano = payload.getInt();
+        Amount amount = new Amount(payload.getLong(), payload.get());
+        String account = getString(payload);
+        String transactionType = getString(payload);
+        String description = getString(payload);
+        Transaction transaction = new Transaction(id, account, amount.toBigDecimal(), transactionType, description,
+                RowOrder.timestamp(epochSecond, nano));
+        return new WalRecord(type, id, transaction);
+    }
+
+    /**
+     * Verifies the checksum of a frame payload.
+     */
+    static boolean checksumMatches(ByteBuffer payload, int expected) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue() == expected;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,400 @@
+package com.robin.transaction.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only write-ahead log with group commit.
+ * <p>
+ * Appends are queued and written by a single flusher thread, which collects all records queued
+ * while the previous fsync was running (up to the batch size, waiting at most the flush interval
+ * for more), writes them with one gathering write and makes them durable with one
+ * {@link FileChannel#force(boolean)}. The fsync cost is thereby shared by all concurrent writers.
+ * Records are appended in queue order.
+ * <p>
+ * The log is stored as numbered segment files. {@link #rotate()} starts a new segment at a point in
+ * the queue order, so everything queued afterwards lands in the new segment; snapshots use it to
+ * find the log tail they must be combined with. On open, the segments from a given number on are
+ * replayed in order. Frames are checked by length and CRC; a bad frame at the end of the last segment
+ * is a write torn by a crash and is truncated, while a bad frame anywhere else fails the open, since
+ * the records after it would be replayed without it.
+ */
+class WriteAheadLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long flushIntervalNanos;
+    private final int batchSize;
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+
+    // Written by the flusher thread only, read by close() after the flusher has stopped
+    private FileChannel channel;
+    private long segment;
+
+    // Write-locked to close, read-locked to enqueue, so nothing is queued after the flusher's last drain
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private WriteAheadLog(Path directory, long segment, FileChannel channel, Duration flushInterval, int batchSize) {
+        this.directory = directory;
+        this.segment = segment;
+        this.channel = channel;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.batchSize = Math.max(batchSize, 1);
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Opens the log in a directory, replaying its existing records first.
+     * @param directory Directory holding the log segments, created if missing
+     * @param firstSegment Number of the first segment to replay; older segments are ignored
+     * @param replay Receives every replayed record in log order
+     * @param flushInterval Maximum time to wait for more records before forcing a batch
+     * @param batchSize Maximum number of records per force
+     * @return The opened log, positioned at the end of the last segment
+     * @throws IOException if a segment cannot be read or holds a bad frame before the end of the log
+     */
+    static WriteAheadLog open(Path directory, long firstSegment, Consumer<WalRecord> replay, Duration flushInterval,
+                              int batchSize) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> segments = segments(directory).stream().filter(number -> number >= firstSegment).toList();
+        long replayed = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            replayed += replaySegment(segmentPath(directory, segments.get(i)), i == segments.size() - 1, replay);
+        }
+        long last = segments.isEmpty() ? firstSegment : segments.get(segments.size() - 1);
+        FileChannel channel = openForAppend(segmentPath(directory, last));
+        logger.info("Replayed {} write-ahead log records from {} segment(s) in {}", replayed, segments.size(), directory);
+        return new WriteAheadLog(directory, last, channel, flushInterval, batchSize);
+    }
+
+    /**
+     * Queues a record for the next group commit.
+     * @param record The record to append
+     * @return Future completed with the number of the segment holding the record once it is durable on disk
+     */
+    CompletableFuture<Long> append(WalRecord record) {
+        return enqueue(record.toFrame());
+    }
+
+    /**
+     * Starts a new segment after all records queued so far.
+     * @return Future completed with the number of the new segment once the previous one is durable
+     */
+    CompletableFuture<Long> rotate() {
+        return enqueue(null);
+    }
+
+    /**
+     * Deletes the segments numbered below a segment, once their records are covered by a snapshot.
+     * @param segment Number of the first segment to keep
+     */
+    void deleteSegmentsBefore(long segment) throws IOException {
+        for (long number : segments(directory)) {
+            if (number < segment) {
+                Files.deleteIfExists(segmentPath(directory, number));
+            }
+        }
+    }
+
+    /**
+     * Stops accepting appends, flushes the queued records and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        closing.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private CompletableFuture<Long> enqueue(ByteBuffer frame) {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        closing.readLock().lock();
+        try {
+            if (failure != null || closed) {
+                done.completeExceptionally(rejection());
+            } else {
+                queue.add(new PendingAppend(frame, done));
+            }
+        } finally {
+            closing.readLock().unlock();
+        }
+        return done;
+    }
+
+    private void flushLoop() {
+        List<PendingAppend> batch = new ArrayList<>(batchSize);
+        Throwable cause = null;
+        try {
+            while (!closed || !queue.isEmpty()) {
+                PendingAppend first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cause = e;
+        } catch (RuntimeException e) {
+            logger.error("Write-ahead log flusher failed, rejecting further writes", e);
+            cause = e;
+        } finally {
+            stop(batch, cause);
+        }
+    }
+
+    /**
+     * Rejects further appends and fails the appends not written yet. Called when the flusher exits,
+     * normally only once the log is closed and the queue drained, but also when it stops unexpectedly.
+     */
+    private void stop(List<PendingAppend> batch, Throwable cause) {
+        closing.writeLock().lock();
+        try {
+            if (!closed && failure == null) {
+                failure = new IOException("Write-ahead log flusher stopped", cause);
+            }
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        queue.drainTo(batch);
+        // Appends already written are complete and ignore this
+        batch.forEach(pending -> pending.done().completeExceptionally(rejection()));
+    }
+
+    private RuntimeException rejection() {
+        return failure != null ? new UncheckedIOException("Write-ahead log has failed", failure)
+                : new IllegalStateException("Write-ahead log is closed");
+    }
+
+    /**
+     * Adds queued records to the batch until it is full or the flush interval has passed.
+     */
+    private void collect(List<PendingAppend> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            PendingAppend next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Writes a batch, starting a new segment at each rotation marker (a pending append without frame).
+     */
+    private void flush(List<PendingAppend> batch) {
+        int start = 0;
+        for (int i = 0; i <= batch.size(); i++) {
+            if (i == batch.size() || batch.get(i).frame() == null) {
+                write(batch.subList(start, i));
+                if (i < batch.size()) {
+                    roll(batch.get(i).done());
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    private void write(List<PendingAppend> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (failure != null) {
+            batch.forEach(pending -> pending.done().completeExceptionally(rejection()));
+            return;
+        }
+        try {
+            ByteBuffer[] frames = new ByteBuffer[batch.size()];
+            long remaining = 0;
+            for (int i = 0; i < frames.length; i++) {
+                frames[i] = batch.get(i).frame();
+                remaining += frames[i].remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(frames);
+            }
+            channel.force(false);
+            batch.forEach(pending -> pending.done().complete(segment));
+        } catch (IOException e) {
+            logger.error("Write-ahead log append failed, rejecting further writes", e);
+            failure = e;
+            batch.forEach(pending -> pending.done().completeExceptionally(new UncheckedIOException(e)));
+        }
+    }
+
+    private void roll(CompletableFuture<Long> done) {
+        if (failure != null) {
+            done.completeExceptionally(rejection());
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+            segment++;
+            channel = openForAppend(segmentPath(directory, segment));
+            done.complete(segment);
+        } catch (IOException e) {
+            logger.error("Write-ahead log rotation failed, rejecting further writes", e);
+            failure = e;
+            done.completeExceptionally(new UncheckedIOException(e));
+        }
+    }
+
+    /**
+     * Replays the frames of a segment up to the first bad one, which may only be a torn tail of the last segment.
+     * @param last Whether the segment is the last of the log
+     * @return The number of records replayed
+     */
+    private static long replaySegment(Path path, boolean last, Consumer<WalRecord> replay) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(WalRecord.HEADER_BYTES);
+            while (position + WalRecord.HEADER_BYTES <= size) {
+                readFully(channel, header.clear(), position);
+                int length = header.getInt(0);
+                int checksum = header.getInt(4);
+                if (length <= 0 || length > WalRecord.MAX_PAYLOAD_BYTES
+                        || position + WalRecord.HEADER_BYTES + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(channel, payload, position + WalRecord.HEADER_BYTES);
+                payload.flip();
+                if (!WalRecord.checksumMatches(payload, checksum)) {
+                    break;
+                }
+                replay.accept(WalRecord.decode(payload));
+                records++;
+                position += WalRecord.HEADER_BYTES + length;
+            }
+            if (position < size) {
+                if (!last || !isTornTail(channel, position, size)) {
+                    throw new IOException("Corrupt write-ahead log frame at byte " + position + " of " + path);
+                }
+                logger.warn("Truncating torn write-ahead log tail of {} bytes in {}", size - position, path);
+                channel.truncate(position);
+                channel.force(true);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Tells whether the bytes from a bad frame to the end of a segment are a torn write: a frame cut short
+     * by or ending at the end of the file, or zeros left where the file was extended but not yet written.
+     */
+    private static boolean isTornTail(FileChannel channel, long position, long size) throws IOException {
+        if (size - position < WalRecord.HEADER_BYTES) {
+            return true;
+        }
+        ByteBuffer header = ByteBuffer.allocate(WalRecord.HEADER_BYTES);
+        readFully(channel, header, position);
+        if (position + WalRecord.HEADER_BYTES + Integer.toUnsignedLong(header.getInt(0)) >= size) {
+            return true;
+        }
+        ByteBuffer rest = ByteBuffer.allocate(8192);
+        for (long at = position; at < size; at += rest.limit()) {
+            rest.clear().limit((int) Math.min(rest.capacity(), size - at));
+            readFully(channel, rest, at);
+            for (int i = 0; i < rest.limit(); i++) {
+                if (rest.get(i) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of write-ahead log");
+            }
+        }
+    }
+
+    private static FileChannel openForAppend(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private static List<Long> segments(Path directory) throws IOException {
+        return numberedFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Lists the numbers of the files named prefix + number + suffix in a directory.
+     * @return The numbers in ascending order
+     */
+    static List<Long> numberedFiles(Path directory, String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * A queued frame, or a rotation marker if the frame is null.
+     */
+    private record PendingAppend(ByteBuffer frame, CompletableFuture<Long> done) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.robin.transaction.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private final AtomicInteger runs = new AtomicInteger();
+    private final IdempotencyCache<String> cache = new IdempotencyCache<>(Duration.ofSeconds(60), 2, clock::get);
+
+    private CompletableFuture<String> run() {
+        return CompletableFuture.completedFuture("result-" + runs.incrementAndGet());
+    }
+
+    @Test
+    void execute_WithSameKey_ShouldReplayFirstResult() {
+        // Act
+        String first = cache.execute("key", this::run).join();
+        String retry = cache.execute("key", this::run).join();
+
+        // Assert
+        assertEquals("result-1", first);
+        assertEquals("result-1", retry);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void execute_WhileInFlight_ShouldShareOneExecution() {
+        // Arrange
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = cache.execute("key", () -> pending);
+
+        // Act
+        CompletableFuture<String> concurrent = cache.execute("key", this::run);
+        pending.complete("pending");
+
+        // Assert
+        assertEquals("pending", first.join());
+        assertEquals("pending", concurrent.join());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void execute_AfterFailure_ShouldRunAgain() {
+        // Arrange
+        CompletableFuture<String> failed = cache.execute("key", () -> {
+            throw new IllegalStateException("Failed");
+        });
+
+        // Act
+        String retry = cache.execute("key", this::run).join();
+
+        // Assert
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals("result-1", retry);
+    }
+
+    @Test
+    void execute_AfterTtl_ShouldRunAgain() {
+        // Arrange
+        cache.execute("key", this::run);
+
+        // Act
+        clock.addAndGet(60_000);
+        String afterTtl = cache.execute("key", this::run).join();
+
+        // Assert
+        assertEquals("result-2", afterTtl);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void execute_OverCapacity_ShouldEvictOldestKey() {
+        // Arrange
+        cache.execute("first", this::run);
+        cache.execute("second", this::run);
+
+        // Act
+        cache.execute("third", this::run);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals("result-2", cache.execute("second", this::run).join());
+        assertEquals("result-4", cache.execute("first", this::run).join());
+    }
+
+    @Test
+    void execute_WithFailuresAtCapacity_ShouldNotEvictLiveKeys() {
+        // Arrange: one live key, and room for one request in flight
+        cache.execute("first", this::run);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            CompletableFuture<String> failed = cache.execute("failed-" + i,
+                    () -> CompletableFuture.failedFuture(new IllegalStateException("Failed")));
+            assertTrue(failed.isCompletedExceptionally());
+        }
+        cache.execute("second", this::run);
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals("result-1", cache.execute("first", this::run).join());
+        assertEquals("result-2", cache.execute("second", this::run).join());
+    }
+
+    @Test
+    void execute_WithBlankOrLongKey_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> cache.execute(" ", this::run));
+        assertThrows(IllegalArgumentException.class, () -> cache.execute("k".repeat(256), this::run));
+    }
+}
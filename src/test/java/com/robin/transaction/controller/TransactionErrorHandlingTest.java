@@ -140,6 +140,27 @@ class TransactionErrorHandlingTest {
         assertEquals("Transaction Not Found", response.getBody().get("error"));
     }
 
+    @Test
+    void getTransactionsByAccount_WithCursorOrTimeRange_ShouldNotBeAmbiguous() {
+        // Act
+        ResponseEntity<Map> byCursor = restTemplate.getForEntity(
+            "/api/transactions?cursor=&accountNumber=12345678&from=2024-01-01T00:00:00",
+            Map.class
+        );
+        ResponseEntity<Map> byOffset = restTemplate.getForEntity(
+            "/api/transactions?accountNumber=12345678&from=2024-01-01T00:00:00",
+            Map.class
+        );
+
+        // Assert
+        assertEquals(HttpStatus.OK, byCursor.getStatusCode());
+        assertNotNull(byCursor.getBody());
+        assertTrue(byCursor.getBody().containsKey("content"));
+        assertEquals(HttpStatus.BAD_REQUEST, byOffset.getStatusCode());
+        assertNotNull(byOffset.getBody());
+        assertEquals("Invalid Argument", byOffset.getBody().get("error"));
+    }
+
     @Test
     void createTransaction_WithDuplicateData_ShouldReturnConflictError() {
         // Arrange
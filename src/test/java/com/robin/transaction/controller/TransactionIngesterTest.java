@@ -0,0 +1,105 @@
+package com.robin.transaction.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.robin.transaction.model.BatchItemResult;
+import com.robin.transaction.model.IngestSummary;
+import com.robin.transaction.model.Transaction;
+import com.robin.transaction.service.TransactionService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionIngesterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Set<String> accounts = new HashSet<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    // Accepts the first transaction per account and rejects the others as duplicates
+    private CompletableFuture<List<BatchItemResult>> createBatch(List<Transaction> transactions) {
+        batchSizes.add(transactions.size());
+        return CompletableFuture.completedFuture(transactions.stream()
+                .map(t -> accounts.add(t.getAccountNumber())
+                        ? BatchItemResult.created(t) : BatchItemResult.duplicate(t))
+                .toList());
+    }
+
+    private static ByteArrayInputStream body(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String line(String accountNumber) {
+        return "{\"accountNumber\":\"" + accountNumber + "\",\"amount\":10.00,\"type\":\"CREDIT\",\"description\":\"Backfill\"}\n";
+    }
+
+    @Test
+    void ingest_ShouldCreateInBatchesAndReportRejectedLines() throws Exception {
+        // Arrange
+        TransactionIngester ingester = new TransactionIngester(objectMapper, this::createBatch, 2, 1024);
+        String body = line("11111111") + line("22222222") + "\n" + line("11111111") + "{not json\n" + line("33333333");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        IngestSummary summary = ingester.ingest(body(body), out);
+
+        // Assert
+        assertEquals(new IngestSummary(5, 3, 1, 1), summary);
+        assertEquals(List.of(2, 1, 1), batchSizes);
+        String[] response = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, response.length);
+        assertTrue(response[0].contains("\"line\":4") && response[0].contains("DUPLICATE"));
+        assertTrue(response[1].contains("\"line\":5") && response[1].contains("INVALID"));
+        assertTrue(response[2].contains("\"created\":3"));
+    }
+
+    @Test
+    void ingest_WithEmptyBody_ShouldOnlyWriteSummary() throws Exception {
+        // Arrange
+        TransactionIngester ingester = new TransactionIngester(objectMapper, this::createBatch, 2, 1024);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        IngestSummary summary = ingester.ingest(body(""), out);
+
+        // Assert
+        assertEquals(new IngestSummary(0, 0, 0, 0), summary);
+        assertTrue(batchSizes.isEmpty());
+        assertEquals("{\"lines\":0,\"created\":0,\"duplicates\":0,\"invalid\":0}\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ingest_WithLineLongerThanLimit_ShouldRejectItAndReadOn() throws Exception {
+        // Arrange: the long line spans several reads of the body
+        TransactionIngester ingester = new TransactionIngester(objectMapper, this::createBatch, 2, 200);
+        String longLine = "{\"accountNumber\":\"22222222\",\"description\":\""
+                + "x".repeat(20_000) + "\"}\n";
+        String body = line("11111111") + longLine + line("33333333").stripTrailing();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        IngestSummary summary = ingester.ingest(body(body), out);
+
+        // Assert
+        assertEquals(new IngestSummary(3, 2, 0, 1), summary);
+        assertEquals(Set.of("11111111", "33333333"), accounts);
+        String[] response = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, response.length);
+        assertTrue(response[0].contains("\"line\":2") && response[0].contains("longer than 200 bytes"));
+    }
+
+    @Test
+    void constructor_WithBatchSizeAboveServiceLimit_ShouldFail() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new TransactionIngester(
+                objectMapper, this::createBatch, TransactionService.MAX_BATCH_SIZE + 1, 1024));
+    }
+}
@@ -0,0 +1,46 @@
+package com.robin.transaction.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmountTest {
+
+    @Test
+    void of_ShouldNormalizeMinorUnitsAndKeepScale() {
+        // Act
+        Amount plain = Amount.of(new BigDecimal("10"));
+        Amount scaled = Amount.of(new BigDecimal("10.00"));
+
+        // Assert
+        assertEquals(100000, plain.minorUnits());
+        assertEquals(plain.minorUnits(), scaled.minorUnits());
+        assertEquals(0, plain.compareTo(scaled));
+        assertEquals(new BigDecimal("10"), plain.toBigDecimal());
+        assertEquals(new BigDecimal("10.00"), scaled.toBigDecimal());
+    }
+
+    @Test
+    void of_WithTrailingZerosBeyondScale_ShouldRoundTrip() {
+        // Act
+        Amount amount = Amount.of(new BigDecimal("1.250000"));
+
+        // Assert
+        assertEquals(12500, amount.minorUnits());
+        assertEquals(new BigDecimal("1.250000"), amount.toBigDecimal());
+    }
+
+    @Test
+    void of_WithTooManyDecimals_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> Amount.of(new BigDecimal("0.00001")));
+    }
+
+    @Test
+    void of_WithAmountExceedingLong_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> Amount.of(new BigDecimal("1000000000000000")));
+    }
+}
@@ -0,0 +1,87 @@
+package com.robin.transaction.service;
+
+import com.robin.transaction.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRowParserTest {
+
+    private final CsvRowParser parser = new CsvRowParser();
+
+    private Transaction parse(String row) {
+        ByteBuffer buffer = ByteBuffer.wrap(row.getBytes(StandardCharsets.UTF_8));
+        return parser.parse(buffer, 0, buffer.limit());
+    }
+
+    @Test
+    void parse_ShouldReadAllColumns() {
+        // Act
+        Transaction transaction = parse("12345678,-100.50,DEBIT,Grocery shopping\r");
+
+        // Assert
+        assertEquals("12345678", transaction.getAccountNumber());
+        assertEquals(new BigDecimal("-100.50"), transaction.getAmount());
+        assertEquals("DEBIT", transaction.getType());
+        assertEquals("Grocery shopping", transaction.getDescription());
+        assertNull(transaction.getId());
+        assertNull(transaction.getTimestamp());
+    }
+
+    @Test
+    void parse_ShouldUnquoteFields() {
+        // Act
+        Transaction transaction = parse("\"12345678\",1000,CREDIT,\"Rent, \"\"March\"\" é\"");
+
+        // Assert
+        assertEquals(new BigDecimal("1000"), transaction.getAmount());
+        assertEquals("CREDIT", transaction.getType());
+        assertEquals("Rent, \"March\" é", transaction.getDescription());
+    }
+
+    @Test
+    void parse_ShouldLeaveUnknownTypeAndEmptyFieldsToValidation() {
+        // Act
+        Transaction transaction = parse(",,TRANSFER,");
+
+        // Assert
+        assertNull(transaction.getAccountNumber());
+        assertNull(transaction.getAmount());
+        assertEquals("TRANSFER", transaction.getType());
+        assertNull(transaction.getDescription());
+    }
+
+    @Test
+    void parse_ShouldFallBackForLongAmounts() {
+        // Act
+        Transaction transaction = parse("12345678,1234567890123456789.25,CREDIT,Large");
+
+        // Assert
+        assertEquals(new BigDecimal("1234567890123456789.25"), transaction.getAmount());
+    }
+
+    @Test
+    void parse_ShouldRejectMalformedRows() {
+        // Act & Assert
+        assertEquals("amount", assertThrows(CsvRowParser.RowException.class,
+                () -> parse("12345678,12a,DEBIT,Typo")).errors().keySet().iterator().next());
+        assertThrows(CsvRowParser.RowException.class, () -> parse("12345678,10,DEBIT"));
+        assertThrows(CsvRowParser.RowException.class, () -> parse("12345678,10,DEBIT,a,b"));
+        assertThrows(CsvRowParser.RowException.class, () -> parse("12345678,10,DEBIT,\"open"));
+    }
+
+    @Test
+    void isHeader_ShouldMatchFirstColumnName() {
+        // Arrange
+        ByteBuffer header = ByteBuffer.wrap("AccountNumber,amount,type,description".getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer row = ByteBuffer.wrap("12345678,10,DEBIT,x".getBytes(StandardCharsets.US_ASCII));
+
+        // Act & Assert
+        assertTrue(CsvRowParser.isHeader(header, 0, header.limit()));
+        assertFalse(CsvRowParser.isHeader(row, 0, row.limit()));
+    }
+}
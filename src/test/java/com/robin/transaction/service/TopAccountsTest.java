@@ -0,0 +1,107 @@
+package com.robin.transaction.service;
+
+import com.robin.transaction.model.AccountVolume;
+import com.robin.transaction.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopAccountsTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private final AtomicLong clock = new AtomicLong(START.toEpochSecond(ZoneOffset.UTC));
+
+    @Test
+    void get_ShouldReturnLargestAccountsInWindowFirst() {
+        // Arrange
+        TopAccounts topAccounts = new TopAccounts(60, 10, 100, clock::get);
+        topAccounts.add(transaction("A", START.minusMinutes(5), "10.00"));
+        topAccounts.add(transaction("B", START.minusMinutes(1), "30.00"));
+        topAccounts.add(transaction("C", START, "20.00"));
+        topAccounts.add(transaction("A", START, "25.00"));
+        Transaction removed = transaction("C", START, "15.00");
+        topAccounts.add(removed);
+        topAccounts.subtract(removed);
+
+        // Act
+        List<AccountVolume> hour = topAccounts.get(Duration.ofMinutes(10), 2);
+        List<AccountVolume> lastTwoMinutes = topAccounts.get(Duration.ofMinutes(2), 10);
+
+        // Assert
+        assertEquals(List.of(
+                new AccountVolume("A", new BigDecimal("35.00"), new BigDecimal("0.00")),
+                new AccountVolume("B", new BigDecimal("30.00"), new BigDecimal("0.00"))), hour);
+        assertEquals(List.of("B", "A", "C"), lastTwoMinutes.stream().map(AccountVolume::accountNumber).toList());
+    }
+
+    @Test
+    void get_ShouldDropBucketsOutsideTheWindow() {
+        // Arrange
+        TopAccounts topAccounts = new TopAccounts(60, 10, 100, clock::get);
+        topAccounts.add(transaction("A", START, "10.00"));
+
+        // Act
+        clock.addAndGet(10 * 60);
+
+        // Assert
+        assertTrue(topAccounts.get(Duration.ofMinutes(10), 10).isEmpty());
+    }
+
+    @Test
+    void get_WithMoreAccountsThanCapacity_ShouldFindHeavyAccountsWithinError() {
+        // Arrange
+        TopAccounts topAccounts = new TopAccounts(60, 10, 20, clock::get);
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            String account = i % 5 == 0 ? "HEAVY" + (i % 3) : "LIGHT" + random.nextInt(1_000);
+            topAccounts.add(transaction(account, START.minusMinutes(i % 3), "1.00"));
+        }
+
+        // Act
+        List<AccountVolume> top = topAccounts.get(Duration.ofMinutes(3), 3);
+
+        // Assert
+        assertEquals(List.of("HEAVY0", "HEAVY1", "HEAVY2"),
+                top.stream().map(AccountVolume::accountNumber).sorted().toList());
+        for (AccountVolume account : top) {
+            // Each heavy account has 333 or 334 transactions of 1.00
+            assertTrue(account.volume().compareTo(new BigDecimal("333")) >= 0);
+            assertTrue(account.volume().subtract(account.error()).compareTo(new BigDecimal("334")) <= 0);
+        }
+    }
+
+    @Test
+    void get_WithVolumeBeyondLongRange_ShouldSaturate() {
+        // Arrange: ten of the largest amounts exceed the long range of minor units
+        TopAccounts topAccounts = new TopAccounts(60, 10, 100, clock::get);
+        for (int i = 0; i < 10; i++) {
+            topAccounts.add(transaction("HUGE", START.minusMinutes(i % 3), "99999999999999.9999"));
+        }
+        topAccounts.add(transaction("SMALL", START, "1.00"));
+
+        // Act
+        List<AccountVolume> top = topAccounts.get(Duration.ofMinutes(3), 2);
+
+        // Assert
+        assertEquals(List.of("HUGE", "SMALL"), top.stream().map(AccountVolume::accountNumber).toList());
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE, 4), top.get(0).volume());
+        assertEquals(Long.MAX_VALUE, TopAccounts.saturatedAdd(Long.MAX_VALUE - 1, 2));
+        assertEquals(Long.MIN_VALUE, TopAccounts.saturatedAdd(Long.MIN_VALUE + 1, -2));
+        assertEquals(-1, TopAccounts.saturatedAdd(Long.MAX_VALUE, Long.MIN_VALUE));
+    }
+
+    private static Transaction transaction(String account, LocalDateTime timestamp, String amount) {
+        Transaction transaction = new Transaction(account, new BigDecimal(amount), "DEBIT", "Test");
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
@@ -1,5 +1,7 @@
 package com.robin.transaction.service;
 
+import com.robin.transaction.exception.DuplicateTransactionException;
+import com.robin.transaction.model.AccountBalance;
 import com.robin.transaction.model.Transaction;
 import jakarta.validation.Validator;
 import org.junit.jupiter.api.AfterEach;
@@ -7,13 +9,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -65,7 +70,7 @@ class TransactionConcurrencyTest {
                     try {
                         Transaction transaction = new Transaction(
                             "ACC" + UUID.randomUUID().toString().substring(0, 8),
-                            new BigDecimal(Math.random() * 1000),
+                            BigDecimal.valueOf(Math.random() * 1000).setScale(2, RoundingMode.HALF_UP),
                             Math.random() > 0.5 ? "CREDIT" : "DEBIT",
                             "Concurrent test transaction"
                         );
@@ -90,6 +95,110 @@ class TransactionConcurrencyTest {
         assertTrue(successCount.get() > 0, "At least some transactions should succeed");
     }
 
+    @Test
+    void concurrentIdenticalCreates_ShouldHaveExactlyOneWinner() throws Exception {
+        // Arrange
+        int numThreads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successCount = new AtomicInteger(0);
+        AtomicInteger duplicateCount = new AtomicInteger(0);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < numThreads; i++) {
+            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                Transaction transaction = new Transaction(
+                    "ACCT123456",
+                    new BigDecimal("100.00"),
+                    "CREDIT",
+                    "Identical transaction"
+                );
+                try {
+                    start.await();
+                    transactionService.createTransaction(transaction).join();
+                    successCount.incrementAndGet();
+                } catch (DuplicateTransactionException e) {
+                    duplicateCount.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, executorService);
+            futures.add(future);
+        }
+        start.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // Assert
+        assertEquals(1, successCount.get());
+        assertEquals(numThreads - 1, duplicateCount.get());
+        assertEquals(1, transactionService.getTransactionsByAccount("ACCT123456", PageRequest.of(0, 10))
+            .join().getTotalElements());
+    }
+
+    @Test
+    void concurrentWrites_ShouldKeepBalancesEqualToRecomputation() throws Exception {
+        // Arrange
+        String[] accounts = {"11111111", "22222222", "33333333"};
+        int numThreads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // Act: each thread creates, updates (possibly moving to another account) and deletes transactions
+        for (int i = 0; i < numThreads; i++) {
+            int thread = i;
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < 200; j++) {
+                    String description = "Thread " + thread + " transaction " + j;
+                    Transaction created = transactionService.createTransaction(new Transaction(
+                        accounts[j % accounts.length],
+                        BigDecimal.valueOf(j + 1, 2),
+                        j % 2 == 0 ? "CREDIT" : "DEBIT",
+                        description
+                    )).join();
+                    if (j % 3 == 0) {
+                        transactionService.updateTransaction(created.getId(), new Transaction(
+                            accounts[(j + thread) % accounts.length],
+                            BigDecimal.valueOf(j + 7, 1),
+                            j % 2 == 0 ? "DEBIT" : "CREDIT",
+                            description + " updated"
+                        )).join();
+                    }
+                    if (j % 5 == 0) {
+                        transactionService.deleteTransaction(created.getId()).join();
+                    }
+                }
+            }, executorService));
+        }
+        start.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // Assert
+        for (String account : accounts) {
+            List<Transaction> stored = transactionService
+                .getTransactionsByAccount(account, PageRequest.of(0, 10_000)).join().getContent();
+            BigDecimal credits = BigDecimal.ZERO;
+            BigDecimal debits = BigDecimal.ZERO;
+            for (Transaction transaction : stored) {
+                if ("CREDIT".equals(transaction.getType())) {
+                    credits = credits.add(transaction.getAmount());
+                } else {
+                    debits = debits.add(transaction.getAmount());
+                }
+            }
+            AccountBalance balance = transactionService.getAccountBalance(account).join();
+            assertEquals(stored.size(), balance.count());
+            assertEquals(0, credits.compareTo(balance.credits()));
+            assertEquals(0, debits.compareTo(balance.debits()));
+            assertEquals(0, credits.subtract(debits).compareTo(balance.balance()));
+        }
+    }
+
     @Test
     void concurrentUpdateTransactions_ShouldMaintainConsistency() throws Exception {
         // Arrange
@@ -0,0 +1,112 @@
+package com.robin.transaction.service;
+
+import com.robin.transaction.model.BatchItemResult;
+import com.robin.transaction.model.ImportReport;
+import com.robin.transaction.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCsvImporterTest {
+
+    @TempDir
+    Path directory;
+
+    private final Set<String> accounts = ConcurrentHashMap.newKeySet();
+    private TransactionCsvImporter importer;
+
+    // Accepts the first transaction per account, rejects the others as duplicates and unknown types as invalid
+    private CompletableFuture<List<BatchItemResult>> createBatch(List<Transaction> transactions) {
+        return CompletableFuture.completedFuture(transactions.stream()
+                .map(t -> !"DEBIT".equals(t.getType()) && !"CREDIT".equals(t.getType())
+                        ? BatchItemResult.invalid(t, Map.of("type", "Invalid transaction type"))
+                        : accounts.add(t.getAccountNumber())
+                        ? BatchItemResult.created(t) : BatchItemResult.duplicate(t))
+                .toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (importer != null) {
+            importer.shutdown();
+        }
+    }
+
+    @Test
+    void importFile_ShouldCreateRowsFromAllChunks() throws Exception {
+        // Arrange
+        StringBuilder csv = new StringBuilder("accountNumber,amount,type,description\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append(10_000_000 + i).append(",10.00,CREDIT,Row ").append(i).append("\r\n");
+        }
+        Files.writeString(directory.resolve("rows.csv"), csv);
+        importer = new TransactionCsvImporter(this::createBatch, directory, 1024, 7, 10, 4);
+
+        // Act
+        ImportReport report = importer.importFile("rows.csv");
+
+        // Assert
+        assertEquals(1000, report.rows());
+        assertEquals(1000, report.created());
+        assertEquals(1000, accounts.size());
+        assertTrue(report.rejected().isEmpty());
+        assertTrue(report.rowsPerSecond() > 0);
+    }
+
+    @Test
+    void importFile_ShouldReportRejectedRowsByLine() throws Exception {
+        // Arrange
+        String csv = "11111111,10.00,CREDIT,First\n"
+                + "\n"
+                + "11111111,10.00,CREDIT,Again\n"
+                + "22222222,ten,CREDIT,Typo\n"
+                + "33333333,10.00,TRANSFER,Unknown\n"
+                + "44444444,10.00,DEBIT,Last";
+        Files.writeString(directory.resolve("rejects.csv"), csv);
+        importer = new TransactionCsvImporter(this::createBatch, directory, 1 << 20, 100, 2, 2);
+
+        // Act
+        ImportReport report = importer.importFile("rejects.csv");
+
+        // Assert
+        assertEquals(5, report.rows());
+        assertEquals(2, report.created());
+        assertEquals(1, report.duplicates());
+        assertEquals(2, report.invalid());
+        assertEquals(2, report.rejected().size());
+        assertEquals(3, report.rejected().get(0).line());
+        assertEquals(BatchItemResult.Status.DUPLICATE, report.rejected().get(0).status());
+        assertEquals(4, report.rejected().get(1).line());
+        assertEquals(BatchItemResult.Status.INVALID, report.rejected().get(1).status());
+    }
+
+    @Test
+    void importFile_ShouldRejectFilesOutsideImportDirectory() throws Exception {
+        // Arrange
+        Path inside = Files.createDirectory(directory.resolve("import"));
+        Files.writeString(directory.resolve("outside.csv"), "11111111,10.00,CREDIT,Outside\n");
+        importer = new TransactionCsvImporter(this::createBatch, inside, 1024, 10, 10, 1);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> importer.importFile("../outside.csv"));
+        assertThrows(IllegalArgumentException.class, () -> importer.importFile("missing.csv"));
+        assertThrows(IllegalArgumentException.class, () -> importer.importFile(" "));
+    }
+
+    @Test
+    void constructor_WithBatchSizeAboveServiceLimit_ShouldFail() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new TransactionCsvImporter(this::createBatch, directory,
+                1024, TransactionService.MAX_BATCH_SIZE + 1, 10, 1));
+    }
+}
@@ -70,6 +70,23 @@ class TransactionEdgeCasesTest {
         assertEquals(expectedId, created.getId());
     }
 
+    @Test
+    void createTransaction_WithNonUuidId_ShouldThrowException() {
+        // Arrange
+        Transaction transaction = new Transaction(
+            "12345678",
+            new BigDecimal("100.00"),
+            "CREDIT",
+            "Test transaction"
+        );
+        transaction.setId("not-a-uuid");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+            () -> transactionService.createTransaction(transaction).join()
+        );
+    }
+
     @Test
     void createTransaction_WithZeroAmount_ShouldSucceed() {
         // Arrange
@@ -182,6 +199,35 @@ class TransactionEdgeCasesTest {
         );
     }
 
+    @Test
+    void createTransaction_WithSameAmountDifferentScale_ShouldThrowException() {
+        // Arrange
+        transactionService.createTransaction(
+            new Transaction("12345678", new BigDecimal("100"), "CREDIT", "Test transaction")).join();
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Test transaction");
+
+        // Act & Assert
+        assertThrows(DuplicateTransactionException.class,
+            () -> transactionService.createTransaction(transaction).join()
+        );
+    }
+
+    @Test
+    void createTransaction_WithAmountBeyondFixedPoint_ShouldThrowException() {
+        // Arrange
+        Transaction transaction = new Transaction(
+            "12345678",
+            new BigDecimal("100.000001"),
+            "CREDIT",
+            "Test transaction"
+        );
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+            () -> transactionService.createTransaction(transaction).join()
+        );
+    }
+
     @Test
     void createDuplicateTransaction_ShouldThrowException() {
         Transaction transaction = new Transaction(
@@ -0,0 +1,142 @@
+package com.robin.transaction.service;
+
+import com.robin.transaction.model.RollupBucket;
+import com.robin.transaction.model.RollupGranularity;
+import com.robin.transaction.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionRollupsTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private final AtomicLong clock = new AtomicLong(START.toEpochSecond(ZoneOffset.UTC));
+    private final TransactionRollups rollups = new TransactionRollups(5, 3, 2, clock::get);
+
+    @Test
+    void get_ShouldSumCountsAndAmountsByTypePerBucket() {
+        // Arrange
+        rollups.add(transaction(START.plusSeconds(5), "100.00", "CREDIT"));
+        rollups.add(transaction(START.plusSeconds(50), "40.50", "DEBIT"));
+        rollups.add(transaction(START.minusMinutes(2), "1.25", "CREDIT"));
+        Transaction removed = transaction(START.minusMinutes(2), "7", "DEBIT");
+        rollups.add(removed);
+        rollups.subtract(removed);
+
+        // Act
+        List<RollupBucket> minutes = rollups.get(RollupGranularity.MINUTE, null, null);
+        List<RollupBucket> hours = rollups.get(RollupGranularity.HOUR, START.minusHours(1), START.plusHours(1));
+
+        // Assert
+        assertEquals(List.of(
+                new RollupBucket(START.minusMinutes(2), 1, 0, new BigDecimal("0.00"), 1, new BigDecimal("1.25")),
+                new RollupBucket(START, 2, 1, new BigDecimal("40.50"), 1, new BigDecimal("100.00"))), minutes);
+        assertEquals(List.of(
+                new RollupBucket(START.minusHours(1), 1, 0, new BigDecimal("0.00"), 1, new BigDecimal("1.25")),
+                new RollupBucket(START, 2, 1, new BigDecimal("40.50"), 1, new BigDecimal("100.00"))), hours);
+    }
+
+    @Test
+    void get_ShouldReturnOnlyBucketsOverlappingTheRange() {
+        // Arrange
+        for (int i = 0; i < 4; i++) {
+            rollups.add(transaction(START.minusMinutes(i).plusSeconds(30), "1", "CREDIT"));
+        }
+
+        // Act
+        List<RollupBucket> buckets = rollups.get(RollupGranularity.MINUTE,
+                START.minusMinutes(2).plusSeconds(10), START);
+
+        // Assert
+        assertEquals(List.of(START.minusMinutes(2), START.minusMinutes(1)),
+                buckets.stream().map(RollupBucket::start).toList());
+    }
+
+    @Test
+    void add_ShouldDropBucketsOlderThanTheRing() {
+        // Arrange
+        rollups.add(transaction(START, "1", "CREDIT"));
+        rollups.add(transaction(START.minusMinutes(10), "1", "CREDIT"));
+
+        // Act
+        clock.addAndGet(5 * 60);
+        rollups.add(transaction(START.plusMinutes(5), "2", "DEBIT"));
+
+        // Assert
+        List<RollupBucket> buckets = rollups.get(RollupGranularity.MINUTE, null, null);
+        assertEquals(1, buckets.size());
+        assertEquals(START.plusMinutes(5), buckets.get(0).start());
+        assertEquals(List.of(1L, 2L),
+                rollups.get(RollupGranularity.HOUR, null, null).stream().map(RollupBucket::count).toList());
+    }
+
+    @Test
+    void add_AfterCurrentBucket_ShouldNotEvictRetainedBuckets() {
+        // Arrange
+        rollups.add(transaction(START.minusMinutes(4), "1", "CREDIT"));
+        Transaction future = transaction(START.plusMinutes(1), "3", "DEBIT");
+
+        // Act
+        rollups.add(future);
+        List<RollupBucket> beforeDue = rollups.get(RollupGranularity.MINUTE, null, null);
+        clock.addAndGet(60);
+        rollups.subtract(future);
+        rollups.add(transaction(START.plusMinutes(1).plusSeconds(1), "4", "DEBIT"));
+
+        // Assert
+        assertEquals(List.of(START.minusMinutes(4), START.plusMinutes(1)),
+                beforeDue.stream().map(RollupBucket::start).toList());
+        assertEquals(List.of(new RollupBucket(START.plusMinutes(1), 1, 1, new BigDecimal("4.00"), 0,
+                new BigDecimal("0.00"))), rollups.get(RollupGranularity.MINUTE, null, null));
+    }
+
+    @Test
+    void add_MoreThanOneBucketAhead_ShouldBeDropped() {
+        // Arrange
+        rollups.add(transaction(START, "1", "CREDIT"));
+
+        // Act
+        rollups.add(transaction(START.plusMinutes(2), "2", "CREDIT"));
+        rollups.add(transaction(START.plusHours(2), "3", "CREDIT"));
+        rollups.add(transaction(START.plusYears(100), "4", "CREDIT"));
+
+        // Assert
+        assertEquals(List.of(START), rollups.get(RollupGranularity.MINUTE, null, null).stream()
+                .map(RollupBucket::start).toList());
+        assertEquals(List.of(2L), rollups.get(RollupGranularity.HOUR, null, null).stream()
+                .map(RollupBucket::count).toList());
+        assertEquals(List.of(3L), rollups.get(RollupGranularity.DAY, null, null).stream()
+                .map(RollupBucket::count).toList());
+    }
+
+    @Test
+    void subtract_WhenAddedMoreThanOneBucketAhead_ShouldNotGoNegative() {
+        // Arrange
+        rollups.add(transaction(START, "1", "CREDIT"));
+        Transaction future = transaction(START.plusMinutes(2), "2", "CREDIT");
+        rollups.add(future);
+
+        // Act: remove it once its bucket is current
+        clock.addAndGet(2 * 60);
+        rollups.subtract(future);
+
+        // Assert
+        assertEquals(List.of(new RollupBucket(START, 1, 0, new BigDecimal("0.00"), 1, new BigDecimal("1.00"))),
+                rollups.get(RollupGranularity.MINUTE, null, null));
+        assertEquals(List.of(1L), rollups.get(RollupGranularity.HOUR, null, null).stream()
+                .map(RollupBucket::count).toList());
+    }
+
+    private static Transaction transaction(LocalDateTime timestamp, String amount, String type) {
+        Transaction transaction = new Transaction("12345678", new BigDecimal(amount), type, "Test");
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
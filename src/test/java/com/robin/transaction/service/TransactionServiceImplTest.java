@@ -2,15 +2,28 @@ package com.robin.transaction.service;
 
 import com.robin.transaction.exception.DuplicateTransactionException;
 import com.robin.transaction.exception.TransactionNotFoundException;
+import com.robin.transaction.model.AccountBalance;
+import com.robin.transaction.model.AccountVolume;
+import com.robin.transaction.model.BatchItemResult;
+import com.robin.transaction.model.CursorPage;
+import com.robin.transaction.model.MultiGetResult;
+import com.robin.transaction.model.RollupBucket;
+import com.robin.transaction.model.RollupGranularity;
 import com.robin.transaction.model.Transaction;
 import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -62,6 +75,52 @@ class TransactionServiceImplTest {
         assertThrows(DuplicateTransactionException.class, () -> transactionService.createTransaction(transaction).join());
     }
 
+    @Test
+    void createTransaction_WithExistingId_ShouldThrowAndKeepStoredTransaction() {
+        // Arrange
+        Transaction original = transactionService.createTransaction(
+                new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Original")).join();
+        Transaction reused = new Transaction("12345678", new BigDecimal("250.00"), "DEBIT", "Reused id");
+        reused.setId(original.getId());
+
+        // Act & Assert
+        assertThrows(DuplicateTransactionException.class, () -> transactionService.createTransaction(reused).join());
+        assertEquals(original, transactionService.getTransaction(original.getId()).join());
+        assertEquals(new AccountBalance("12345678", new BigDecimal("100.00"), new BigDecimal("100.00"),
+                new BigDecimal("0.00"), 1), transactionService.getAccountBalance("12345678").join());
+    }
+
+    @Test
+    void createTransactions_ShouldReportOutcomePerTransaction() {
+        // Arrange
+        transactionService.createTransaction(
+            new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Existing")).join();
+        Transaction invalidId = new Transaction("12345678", new BigDecimal("300.00"), "CREDIT", "Invalid id");
+        invalidId.setId("not-a-uuid");
+        List<Transaction> batch = List.of(
+            new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Duplicate of existing"),
+            new Transaction("87654321", new BigDecimal("200.00"), "DEBIT", "First in batch"),
+            new Transaction("87654321", new BigDecimal("200.00"), "DEBIT", "Duplicate in batch"),
+            invalidId);
+
+        // Act
+        List<BatchItemResult> results = transactionService.createTransactions(batch).join();
+
+        // Assert
+        assertEquals(List.of(BatchItemResult.Status.DUPLICATE, BatchItemResult.Status.CREATED,
+                BatchItemResult.Status.DUPLICATE, BatchItemResult.Status.INVALID),
+            results.stream().map(BatchItemResult::status).toList());
+        assertTrue(results.get(3).errors().containsKey("id"));
+        assertEquals(batch.get(1), transactionService.getTransaction(batch.get(1).getId()).join());
+        assertEquals(2, transactionService.getAllTransactions(PageRequest.of(0, 10)).join().getTotalElements());
+    }
+
+    @Test
+    void createTransactions_WithEmptyBatch_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> transactionService.createTransactions(List.of()).join());
+    }
+
     @Test
     void getTransaction_ShouldSucceed() {
         // Arrange
@@ -80,6 +139,24 @@ class TransactionServiceImplTest {
         assertEquals(transaction.getDescription(), retrieved.getDescription());
     }
 
+    @Test
+    void getTransactionsByIds_ShouldReturnFoundAndMissing() {
+        // Arrange
+        Transaction first = transactionService.createTransaction(
+            new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "First")).join();
+        Transaction second = transactionService.createTransaction(
+            new Transaction("12345678", new BigDecimal("200.00"), "CREDIT", "Second")).join();
+        String unknown = UUID.randomUUID().toString();
+
+        // Act
+        MultiGetResult result = transactionService.getTransactionsByIds(
+            List.of(second.getId(), unknown, first.getId(), second.getId(), "not-a-uuid")).join();
+
+        // Assert
+        assertEquals(List.of(second, first), result.found());
+        assertEquals(List.of(unknown, "not-a-uuid"), result.missing());
+    }
+
     @Test
     void getTransaction_WithNonExistentId_ShouldThrowException() {
         // Arrange
@@ -136,4 +213,356 @@ class TransactionServiceImplTest {
         // Act & Assert
         assertThrows(TransactionNotFoundException.class, () -> transactionService.deleteTransaction(nonExistentId.toString()).join());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void getAccountBalance_ShouldFollowCreateUpdateAndDelete() {
+        // Arrange
+        Transaction salary = transactionService.createTransaction(
+                new Transaction("12345678", new BigDecimal("1000.00"), "CREDIT", "Salary")).join();
+        Transaction rent = transactionService.createTransaction(
+                new Transaction("12345678", new BigDecimal("400.50"), "DEBIT", "Rent")).join();
+        transactionService.createTransactions(List.of(
+                new Transaction("12345678", new BigDecimal("0.25"), "CREDIT", "Interest"),
+                new Transaction("87654321", new BigDecimal("50.00"), "CREDIT", "Other account"))).join();
+
+        // Act
+        Transaction moved = new Transaction("87654321", new BigDecimal("400.50"), "DEBIT", "Rent");
+        transactionService.updateTransaction(rent.getId(), moved).join();
+        transactionService.deleteTransaction(salary.getId()).join();
+
+        // Assert
+        assertEquals(new AccountBalance("12345678", new BigDecimal("0.25"), new BigDecimal("0.25"),
+                new BigDecimal("0.00"), 1), transactionService.getAccountBalance("12345678").join());
+        assertEquals(new AccountBalance("87654321", new BigDecimal("-350.50"), new BigDecimal("50.00"),
+                new BigDecimal("400.50"), 2), transactionService.getAccountBalance("87654321").join());
+        assertEquals(0, transactionService.getAccountBalance("99999999").join().count());
+    }
+
+    @Test
+    void getTopAccounts_ShouldFollowCreateAndDelete() {
+        // Arrange
+        transactionService.createTransaction(
+                new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Salary")).join();
+        Transaction large = transactionService.createTransaction(
+                new Transaction("87654321", new BigDecimal("500.00"), "DEBIT", "Car")).join();
+        transactionService.createTransactions(List.of(
+                new Transaction("87654321", new BigDecimal("20.00"), "DEBIT", "Fuel"),
+                new Transaction("11112222", new BigDecimal("60.00"), "CREDIT", "Refund"))).join();
+
+        // Act
+        List<AccountVolume> before = transactionService.getTopAccounts(Duration.ofMinutes(60), 2).join();
+        transactionService.deleteTransaction(large.getId()).join();
+        List<AccountVolume> after = transactionService.getTopAccounts(Duration.ofMinutes(60), 2).join();
+
+        // Assert
+        assertEquals(List.of(new AccountVolume("87654321", new BigDecimal("520.00"), new BigDecimal("0.00")),
+                new AccountVolume("12345678", new BigDecimal("100.00"), new BigDecimal("0.00"))), before);
+        assertEquals(List.of("12345678", "11112222"), after.stream().map(AccountVolume::accountNumber).toList());
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getTopAccounts(Duration.ofMinutes(61), 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getTopAccounts(Duration.ofMinutes(60), 0));
+    }
+
+    @Test
+    void getRollups_ShouldFollowCreateUpdateAndDelete() {
+        // Arrange
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(2);
+        Transaction salary = new Transaction("12345678", new BigDecimal("1000.00"), "CREDIT", "Salary");
+        salary.setTimestamp(hour.plusMinutes(1));
+        Transaction rent = new Transaction("12345678", new BigDecimal("400.50"), "DEBIT", "Rent");
+        rent.setTimestamp(hour.plusMinutes(1).plusSeconds(30));
+        Transaction fee = new Transaction("87654321", new BigDecimal("2.00"), "DEBIT", "Fee");
+        fee.setTimestamp(hour.plusMinutes(70));
+        transactionService.createTransaction(salary).join();
+        transactionService.createTransaction(rent).join();
+        transactionService.createTransactions(List.of(fee)).join();
+
+        // Act
+        Transaction lowerRent = new Transaction("12345678", new BigDecimal("350.00"), "DEBIT", "Rent");
+        lowerRent.setTimestamp(rent.getTimestamp());
+        transactionService.updateTransaction(rent.getId(), lowerRent).join();
+        transactionService.deleteTransaction(fee.getId()).join();
+
+        // Assert
+        RollupBucket minute = new RollupBucket(hour.plusMinutes(1), 2, 1, new BigDecimal("350.00"),
+                1, new BigDecimal("1000.00"));
+        assertEquals(List.of(minute), transactionService.getRollups(RollupGranularity.MINUTE, hour, null).join());
+        assertEquals(List.of(new RollupBucket(hour, 2, 1, new BigDecimal("350.00"), 1, new BigDecimal("1000.00"))),
+                transactionService.getRollups(RollupGranularity.HOUR, hour, hour.plusHours(2)).join());
+        assertTrue(transactionService.getRollups(RollupGranularity.HOUR, hour.plusHours(1), null).join().isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getRollups(RollupGranularity.DAY, hour, hour.minusDays(1)));
+    }
+
+    @Test
+    void getAllTransactions_ShouldReturnMostRecentFirst() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            Transaction transaction = new Transaction("12345678", new BigDecimal(100 + i), "CREDIT", "Test transaction " + i);
+            transaction.setTimestamp(now.minusMinutes(i));
+            transactionService.createTransaction(transaction).join();
+        }
+
+        // Act
+        Page<Transaction> firstPage = transactionService.getAllTransactions(PageRequest.of(0, 2)).join();
+        Page<Transaction> lastPage = transactionService.getAllTransactions(PageRequest.of(2, 2)).join();
+
+        // Assert
+        assertEquals(5, firstPage.getTotalElements());
+        assertEquals(now, firstPage.getContent().get(0).getTimestamp());
+        assertEquals(now.minusMinutes(1), firstPage.getContent().get(1).getTimestamp());
+        assertEquals(1, lastPage.getContent().size());
+        assertEquals(now.minusMinutes(4), lastPage.getContent().get(0).getTimestamp());
+    }
+
+    @Test
+    void getAllTransactions_WithTimeRangeWithoutCount_ShouldOnlyTellWhetherMoreFollow() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 6; i++) {
+            Transaction transaction = new Transaction("12345678", new BigDecimal(100 + i), "CREDIT", "Test transaction");
+            transaction.setTimestamp(now.minusMinutes(i));
+            transactionService.createTransaction(transaction).join();
+        }
+        LocalDateTime from = now.minusHours(1);
+
+        // Act
+        Page<Transaction> first = transactionService.getAllTransactions(from, null, PageRequest.of(0, 2), false).join();
+        Page<Transaction> last = transactionService.getAllTransactions(from, null, PageRequest.of(2, 2), false).join();
+
+        // Assert
+        assertEquals(3, first.getTotalElements());
+        assertTrue(first.hasNext());
+        assertEquals(6, last.getTotalElements());
+        assertFalse(last.hasNext());
+    }
+
+    @Test
+    void getAllTransactions_WithTimeRange_ShouldRecountRangeAfterChange() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 6; i++) {
+            Transaction transaction = new Transaction("12345678", new BigDecimal(100 + i), "CREDIT", "Test transaction");
+            transaction.setTimestamp(now.minusMinutes(i));
+            transactionService.createTransaction(transaction).join();
+        }
+        LocalDateTime from = now.minusHours(1);
+
+        // Act
+        long before = transactionService.getAllTransactions(from, null, PageRequest.of(0, 2)).join().getTotalElements();
+        long again = transactionService.getAllTransactions(from, null, PageRequest.of(1, 2)).join().getTotalElements();
+        Transaction added = new Transaction("12345678", new BigDecimal("200"), "DEBIT", "Test transaction");
+        added.setTimestamp(now.minusMinutes(30));
+        transactionService.createTransaction(added).join();
+        long after = transactionService.getAllTransactions(from, null, PageRequest.of(1, 2)).join().getTotalElements();
+
+        // Assert
+        assertEquals(6, before);
+        assertEquals(6, again);
+        assertEquals(7, after);
+    }
+
+    @Test
+    void streamTransactions_ShouldReturnTimeRangeMostRecentFirst() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 10; i++) {
+            Transaction transaction = new Transaction("12345678", new BigDecimal(100 + i), "CREDIT", "Test transaction");
+            transaction.setTimestamp(now.minusMinutes(i));
+            transactionService.createTransaction(transaction).join();
+        }
+
+        // Act
+        List<Transaction> all = transactionService.streamTransactions(null, null).toList();
+        List<Transaction> range = transactionService.streamTransactions(now.minusMinutes(6), now.minusMinutes(2)).toList();
+
+        // Assert
+        assertEquals(10, all.size());
+        assertEquals(List.of(now.minusMinutes(3), now.minusMinutes(4), now.minusMinutes(5), now.minusMinutes(6)),
+            range.stream().map(Transaction::getTimestamp).toList());
+        assertThrows(IllegalArgumentException.class, () -> transactionService.streamTransactions(now, now.minusMinutes(1)));
+    }
+
+    @Test
+    void deleteTransaction_ShouldRemoveFromPages() {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Test transaction");
+        Transaction created = transactionService.createTransaction(transaction).join();
+
+        // Act
+        transactionService.deleteTransaction(created.getId()).join();
+
+        // Assert
+        Page<Transaction> page = transactionService.getAllTransactions(PageRequest.of(0, 10)).join();
+        assertEquals(0, page.getTotalElements());
+        assertTrue(page.getContent().isEmpty());
+    }
+
+    @Test
+    void getTransactions_ShouldWalkAllPagesByCursor() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            Transaction transaction = new Transaction("12345678", new BigDecimal(100 + i), "CREDIT", "Test transaction " + i);
+            transaction.setTimestamp(now.minusMinutes(i));
+            transactionService.createTransaction(transaction).join();
+        }
+
+        // Act
+        CursorPage<Transaction> first = transactionService.getTransactions(null, 2).join();
+        CursorPage<Transaction> second = transactionService.getTransactions(first.next(), 2).join();
+        CursorPage<Transaction> last = transactionService.getTransactions(second.next(), 2).join();
+
+        // Assert
+        assertEquals(now, first.content().get(0).getTimestamp());
+        assertEquals(now.minusMinutes(2), second.content().get(0).getTimestamp());
+        assertEquals(1, last.content().size());
+        assertEquals(now.minusMinutes(4), last.content().get(0).getTimestamp());
+        assertNull(last.next());
+    }
+
+    @Test
+    void getTransactionsByAmount_ShouldCombineAmountAndTimeRanges() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 20; i++) {
+            Transaction transaction = new Transaction("12345678", new BigDecimal(100 * (i % 10)), "CREDIT", "Test transaction " + i);
+            transaction.setTimestamp(now.minusMinutes(i));
+            transactionService.createTransaction(transaction).join();
+        }
+
+        // Act: few large amounts over the whole time range, then a narrow time range over all amounts
+        CursorPage<Transaction> first = transactionService.getTransactionsByAmount(
+                new BigDecimal("800"), null, null, null, null, 3).join();
+        CursorPage<Transaction> second = transactionService.getTransactionsByAmount(
+                new BigDecimal("800"), null, null, null, first.next(), 3).join();
+        CursorPage<Transaction> recent = transactionService.getTransactionsByAmount(
+                new BigDecimal("100"), new BigDecimal("500"), now.minusMinutes(12), now.minusMinutes(2), null, 10).join();
+
+        // Assert
+        assertEquals(List.of(now.minusMinutes(8), now.minusMinutes(9), now.minusMinutes(18)),
+                first.content().stream().map(Transaction::getTimestamp).toList());
+        assertEquals(List.of(now.minusMinutes(19)), second.content().stream().map(Transaction::getTimestamp).toList());
+        assertNull(second.next());
+        assertEquals(List.of(now.minusMinutes(3), now.minusMinutes(4), now.minusMinutes(5),
+                        now.minusMinutes(11), now.minusMinutes(12)),
+                recent.content().stream().map(Transaction::getTimestamp).toList());
+        assertThrows(IllegalArgumentException.class, () -> transactionService.getTransactionsByAmount(
+                new BigDecimal("500"), new BigDecimal("100"), null, null, null, 10));
+    }
+
+    @Test
+    void getTransactions_WithTimeRange_ShouldPageOnlyTransactionsInRange() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 10; i++) {
+            Transaction transaction = new Transaction("12345678", new BigDecimal(100 + i), "CREDIT", "Test transaction " + i);
+            transaction.setTimestamp(now.minusHours(i));
+            transactionService.createTransaction(transaction).join();
+        }
+        LocalDateTime from = now.minusHours(6);
+        LocalDateTime to = now.minusHours(1);
+
+        // Act
+        CursorPage<Transaction> first = transactionService.getTransactions(from, to, null, 3).join();
+        CursorPage<Transaction> last = transactionService.getTransactions(from, to, first.next(), 3).join();
+        Page<Transaction> page = transactionService.getAllTransactions(from, to, PageRequest.of(1, 3)).join();
+
+        // Assert
+        assertEquals(List.of(now.minusHours(2), now.minusHours(3), now.minusHours(4)),
+                first.content().stream().map(Transaction::getTimestamp).toList());
+        assertEquals(List.of(now.minusHours(5), now.minusHours(6)),
+                last.content().stream().map(Transaction::getTimestamp).toList());
+        assertNull(last.next());
+        assertEquals(5, page.getTotalElements());
+        assertEquals(List.of(now.minusHours(5), now.minusHours(6)),
+                page.getContent().stream().map(Transaction::getTimestamp).toList());
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getTransactions(to, from, null, 3));
+    }
+
+    @Test
+    void getTransactionsByAccount_WithTimeRange_ShouldPageOnlyAccountTransactionsInRange() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 10; i++) {
+            String account = i % 2 == 0 ? "12345678" : "87654321";
+            Transaction transaction = new Transaction(account, new BigDecimal(100 + i), "CREDIT", "Test transaction " + i);
+            transaction.setTimestamp(now.minusHours(i));
+            transactionService.createTransaction(transaction).join();
+        }
+        LocalDateTime from = now.minusHours(8);
+        LocalDateTime to = now.minusHours(1);
+
+        // Act
+        CursorPage<Transaction> first = transactionService.getTransactionsByAccount("12345678", from, to, null, 2).join();
+        CursorPage<Transaction> last = transactionService.getTransactionsByAccount("12345678", from, to, first.next(), 2).join();
+
+        // Assert
+        assertEquals(List.of(now.minusHours(2), now.minusHours(4)),
+                first.content().stream().map(Transaction::getTimestamp).toList());
+        assertEquals(List.of(now.minusHours(6), now.minusHours(8)),
+                last.content().stream().map(Transaction::getTimestamp).toList());
+        assertNull(last.next());
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getTransactionsByAccount("12345678", to, from, null, 2));
+    }
+
+    @Test
+    void searchTransactions_ShouldPageMatchesAndFollowDeletes() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            transactionService.createTransaction(new Transaction(
+                    "12345678", new BigDecimal(10 + i), "CREDIT", "Refund order " + i)).join();
+        }
+        Transaction other = transactionService.createTransaction(
+                new Transaction("12345678", new BigDecimal("99.00"), "DEBIT", "Grocery order")).join();
+
+        // Act
+        CursorPage<Transaction> first = transactionService.searchTransactions("refund ORDER", true, null, 3).join();
+        CursorPage<Transaction> last = transactionService.searchTransactions("refund ORDER", true, first.next(), 3).join();
+        transactionService.deleteTransaction(other.getId()).join();
+        CursorPage<Transaction> any = transactionService.searchTransactions("grocery 4", false, null, 10).join();
+
+        // Assert
+        assertEquals(List.of("Refund order 4", "Refund order 3", "Refund order 2"),
+                first.content().stream().map(Transaction::getDescription).toList());
+        assertEquals(List.of("Refund order 1", "Refund order 0"),
+                last.content().stream().map(Transaction::getDescription).toList());
+        assertNull(last.next());
+        assertEquals(List.of("Refund order 4"), any.content().stream().map(Transaction::getDescription).toList());
+        assertThrows(IllegalArgumentException.class, () -> transactionService.searchTransactions(" ", true, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> transactionService.searchTransactions("refund", true, "x", 10));
+    }
+
+    @Test
+    void getTransactions_WithMalformedCursor_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> transactionService.getTransactions("not-a-cursor", 10).join());
+    }
+
+    @Test
+    void getTransactionsByAccount_ShouldOnlyReturnAccountTransactions() {
+        // Arrange
+        Transaction first = transactionService.createTransaction(
+            new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Test transaction")).join();
+        transactionService.createTransaction(
+            new Transaction("87654321", new BigDecimal("100.00"), "CREDIT", "Other account")).join();
+        Transaction moved = transactionService.createTransaction(
+            new Transaction("87654321", new BigDecimal("300.00"), "DEBIT", "Moved transaction")).join();
+
+        // Act
+        Transaction update = new Transaction("12345678", new BigDecimal("300.00"), "DEBIT", "Moved transaction");
+        transactionService.updateTransaction(moved.getId(), update).join();
+        Page<Transaction> page = transactionService.getTransactionsByAccount("12345678", PageRequest.of(0, 10)).join();
+        Page<Transaction> other = transactionService.getTransactionsByAccount("87654321", PageRequest.of(0, 10)).join();
+
+        // Assert
+        assertEquals(2, page.getTotalElements());
+        assertTrue(page.getContent().stream().allMatch(t -> "12345678".equals(t.getAccountNumber())));
+        assertTrue(page.getContent().stream().anyMatch(t -> first.getId().equals(t.getId())));
+        assertEquals(1, other.getTotalElements());
+    }
+}
@@ -0,0 +1,66 @@
+package com.robin.transaction.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockedBloomFilterTest {
+
+    private static DedupKey key(int i) {
+        return new DedupKey(String.valueOf(10_000_000 + i), 100L * i, i % 2 == 0 ? "CREDIT" : "DEBIT");
+    }
+
+    @Test
+    void mightContain_WithAddedKeys_ShouldNeverMiss() {
+        // Arrange
+        BlockedBloomFilter filter = new BlockedBloomFilter(16 * 1024, BlockedBloomFilter.hashesFor(16 * 1024, 10_000));
+
+        // Act
+        IntStream.range(0, 10_000).parallel().forEach(i -> filter.add(key(i)));
+
+        // Assert
+        assertTrue(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain(key(i))));
+    }
+
+    @Test
+    void mightContain_WhenSizedForTarget_ShouldStayNearFalsePositiveRate() {
+        // Arrange: about 9.6 bits per key reach a 1% false-positive rate
+        long bytes = BlockedBloomFilter.bytesFor(10_000, 0.01);
+        BlockedBloomFilter filter = new BlockedBloomFilter(bytes, BlockedBloomFilter.hashesFor(bytes, 10_000));
+        IntStream.range(0, 10_000).forEach(i -> filter.add(key(i)));
+
+        // Act
+        long falsePositives = IntStream.range(10_000, 110_000).filter(i -> filter.mightContain(key(i))).count();
+
+        // Assert: blocking costs some accuracy, so allow up to twice the target
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void bytesFor_ShouldSizeForKeysAndProbability() {
+        // Act & Assert
+        assertEquals(11_982, BlockedBloomFilter.bytesFor(10_000, 0.01));
+        assertEquals(7, BlockedBloomFilter.hashesFor(11_982, 10_000));
+        assertEquals(3, BlockedBloomFilter.hashesFor(6_000, 10_000));
+        assertThrows(IllegalArgumentException.class, () -> BlockedBloomFilter.bytesFor(10_000, 0));
+        assertThrows(IllegalArgumentException.class, () -> BlockedBloomFilter.bytesFor(10_000, 1));
+    }
+
+    @Test
+    void mightContain_WithKeysDifferingOnlyInAmount_ShouldStayNearFalsePositiveRate() {
+        // Arrange: keys of one account, whose 32-bit hash codes differ in few bits
+        long bytes = BlockedBloomFilter.bytesFor(10_000, 0.01);
+        BlockedBloomFilter filter = new BlockedBloomFilter(bytes, BlockedBloomFilter.hashesFor(bytes, 10_000));
+        IntStream.range(0, 10_000).forEach(i -> filter.add(new DedupKey("12345678", i, "CREDIT")));
+
+        // Act
+        long falsePositives = IntStream.range(10_000, 110_000)
+                .filter(i -> filter.mightContain(new DedupKey("12345678", i, "CREDIT")))
+                .count();
+
+        // Assert
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,93 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.DedupFilterStats;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DedupIndexTest {
+
+    private static final DedupKey KEY = new DedupKey("12345678", 1_000_000, "CREDIT");
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final DedupIndex index = new DedupIndex(Duration.ofSeconds(10), 10, 10_000, 64 * 1024, 0.01,
+            clock::get);
+
+    @Test
+    void claim_WithinWindow_ShouldRejectDuplicate() {
+        // Arrange
+        index.claim(KEY, clock.get());
+        clock.addAndGet(8_000);
+
+        // Act & Assert
+        assertFalse(index.claim(KEY, clock.get()));
+        assertTrue(index.claim(new DedupKey("12345678", 1_000_000, "DEBIT"), clock.get()));
+    }
+
+    @Test
+    void claim_AfterWindow_ShouldAcceptKeyAgain() {
+        // Arrange
+        index.claim(KEY, clock.get());
+
+        // Act
+        clock.addAndGet(11_000);
+
+        // Assert
+        assertTrue(index.claim(KEY, clock.get()));
+        assertFalse(index.claim(KEY, clock.get()));
+    }
+
+    @Test
+    void claim_WithTimestampBeforeWindow_ShouldNotRegister() {
+        // Arrange
+        long old = clock.get() - 60_000;
+
+        // Act & Assert
+        assertTrue(index.claim(KEY, old));
+        assertTrue(index.claim(KEY, clock.get()));
+    }
+
+    @Test
+    void release_ShouldAcceptKeyAgainOnlyWhenLastHolderIsReleased() {
+        // Arrange
+        index.claim(KEY, clock.get());
+        index.add(KEY, clock.get() - 3_000);
+
+        // Act & Assert
+        index.release(KEY, clock.get());
+        assertFalse(index.claim(KEY, clock.get()));
+        index.release(KEY, clock.get() - 3_000);
+        assertTrue(index.claim(KEY, clock.get()));
+    }
+
+    @Test
+    void claim_WithFutureTimestamp_ShouldCountAsNow() {
+        // Arrange
+        index.claim(KEY, clock.get() + 3_600_000);
+
+        // Act & Assert
+        assertFalse(index.claim(KEY, clock.get()));
+        clock.addAndGet(11_000);
+        assertTrue(index.claim(KEY, clock.get()));
+    }
+
+    @Test
+    void stats_ShouldCountFilterHitsAndFalsePositives() {
+        // Arrange
+        index.claim(KEY, clock.get());
+        index.release(KEY, clock.get());
+
+        // Act
+        index.claim(KEY, clock.get());
+        index.claim(KEY, clock.get());
+        DedupFilterStats stats = index.stats();
+
+        // Assert
+        assertEquals(3, stats.lookups());
+        assertEquals(2, stats.filterHits());
+        assertEquals(1, stats.falsePositives());
+    }
+}
@@ -0,0 +1,197 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.DescriptionIndexStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DescriptionIndexTest {
+
+    @Test
+    void tokenize_ShouldSplitIntoDistinctLowerCaseWords() {
+        // Act & Assert
+        assertEquals(List.of("refund", "café", "42", "order"), DescriptionIndex.tokenize("Refund: CAFÉ #42, order/refund"));
+        assertEquals(List.of(), DescriptionIndex.tokenize(" -- "));
+        assertEquals(List.of(), DescriptionIndex.tokenize(null));
+        assertEquals(DescriptionIndex.MAX_TERM_LENGTH, DescriptionIndex.tokenize("x".repeat(100)).get(0).length());
+    }
+
+    @Test
+    void search_ShouldMatchAllOrAnyTermsMostRecentFirst() {
+        // Arrange
+        DescriptionIndex index = new DescriptionIndex();
+        index.add(0, 1, "Refund Amazon order");
+        index.add(0, 2, "Amazon purchase");
+        index.add(0, 3, "Coffee refund");
+        index.add(0, 4, "Rent");
+
+        // Act & Assert
+        assertArrayEquals(new long[] {0},
+                index.search(List.of("refund", "amazon"), true, Long.MAX_VALUE, Integer.MAX_VALUE).positions());
+        assertArrayEquals(new long[] {2, 1, 0},
+                index.search(List.of("refund", "amazon"), false, Long.MAX_VALUE, Integer.MAX_VALUE).positions());
+        assertArrayEquals(new long[] {1, 0},
+                index.search(List.of("refund", "amazon"), false, 2, Integer.MAX_VALUE).positions());
+        assertArrayEquals(new long[] {3L},
+                index.search(List.of("coffee"), true, Long.MAX_VALUE, Integer.MAX_VALUE).idLo());
+        assertEquals(0,
+                index.search(List.of("refund", "missing"), true, Long.MAX_VALUE, Integer.MAX_VALUE).positions().length);
+    }
+
+    @Test
+    void addAndRemove_ShouldReplaceDocumentOfId() {
+        // Arrange
+        DescriptionIndex index = new DescriptionIndex();
+        index.add(0, 1, "Grocery store");
+        index.add(0, 2, "Grocery delivery");
+
+        // Act
+        index.add(0, 1, "Hardware store");
+        index.remove(0, 2);
+
+        // Assert
+        assertEquals(0, index.search(List.of("grocery"), true, Long.MAX_VALUE, Integer.MAX_VALUE).positions().length);
+        assertArrayEquals(new long[] {2},
+                index.search(List.of("store"), true, Long.MAX_VALUE, Integer.MAX_VALUE).positions());
+        DescriptionIndexStats stats = index.stats();
+        assertEquals(1, stats.transactions());
+        assertEquals(2, stats.deadDocuments());
+    }
+
+    @Test
+    void remove_WhenDeadDocumentsDominate_ShouldCompactPostings() {
+        // Arrange
+        DescriptionIndex index = new DescriptionIndex(1);
+        for (int i = 0; i < 3000; i++) {
+            index.add(0, i, "Transfer batch " + i);
+        }
+        long postingBytes = index.stats().postingBytes();
+
+        // Act
+        for (int i = 0; i < 2500; i++) {
+            index.remove(0, i);
+        }
+
+        // Assert
+        DescriptionIndexStats stats = index.stats();
+        assertEquals(500, stats.transactions());
+        assertTrue(stats.postingBytes() < postingBytes / 2, "Posting bytes: " + stats.postingBytes());
+        assertEquals(500,
+                index.search(List.of("transfer", "batch"), true, Long.MAX_VALUE, Integer.MAX_VALUE).positions().length);
+        assertArrayEquals(new long[] {2999},
+                index.search(List.of("2999"), true, Long.MAX_VALUE, Integer.MAX_VALUE).positions());
+        assertTrue(stats.bytesPerTransaction() > 0);
+    }
+
+    @Test
+    void remove_WhenCompacting_ShouldRenumberDocumentsAndKeepPositions() {
+        // Arrange
+        DescriptionIndex index = new DescriptionIndex(1);
+        for (int i = 0; i < 3000; i++) {
+            index.add(0, i, "Transfer batch " + i);
+        }
+        long[] before = index.search(List.of("transfer"), true, 2900, 3).positions();
+
+        // Act
+        for (int i = 0; i < 2500; i++) {
+            index.remove(0, i);
+        }
+        index.add(0, 2999, "Transfer batch again");
+
+        // Assert
+        DescriptionIndexStats stats = index.stats();
+        assertEquals(500, stats.transactions());
+        // Compacted once 1501 documents were dead; the 1000 removed since are not renumbered yet
+        assertEquals(1000, stats.deadDocuments());
+        assertArrayEquals(new long[] {2899, 2898, 2897}, before);
+        assertArrayEquals(before, index.search(List.of("transfer"), true, 2900, 3).positions());
+        assertArrayEquals(new long[] {3000}, index.search(List.of("again"), true, Long.MAX_VALUE, 10).positions());
+    }
+
+    @Test
+    void remove_WithShards_ShouldCompactEachShardOnItsOwn() {
+        // Arrange: ids 0 to 2999 spread over two shards of about 1500 documents
+        DescriptionIndex index = new DescriptionIndex(2);
+        for (int i = 0; i < 3000; i++) {
+            index.add(0, i, "Transfer batch " + i);
+        }
+
+        // Act
+        for (int i = 0; i < 2500; i++) {
+            index.remove(0, i);
+        }
+
+        // Assert: each shard compacted once 1024 of its documents were dead, rather than the index at 1501
+        DescriptionIndexStats stats = index.stats();
+        assertEquals(500, stats.transactions());
+        assertTrue(stats.deadDocuments() < 1000, "Dead documents: " + stats.deadDocuments());
+        assertEquals(500,
+                index.search(List.of("transfer", "batch"), true, Long.MAX_VALUE, Integer.MAX_VALUE).positions().length);
+        assertArrayEquals(new long[] {2999, 2998},
+                index.search(List.of("transfer"), true, Long.MAX_VALUE, 2).positions());
+    }
+
+    @Test
+    void search_AcrossShards_ShouldMergeByPosition() {
+        // Arrange
+        DescriptionIndex index = new DescriptionIndex(4);
+        for (int i = 0; i < 100; i++) {
+            index.add(i, i * 31L, i % 2 == 0 ? "Card payment" : "Card refund");
+        }
+
+        // Act
+        DescriptionIndex.Hits first = index.search(List.of("card"), true, Long.MAX_VALUE, 10);
+        DescriptionIndex.Hits last = index.search(List.of("payment"), true, 10, 10);
+
+        // Assert
+        assertArrayEquals(LongStream.range(0, 10).map(i -> 99 - i).toArray(), first.positions());
+        assertArrayEquals(LongStream.range(0, 10).map(i -> 99 - i).map(i -> i * 31).toArray(), first.idLo());
+        assertTrue(first.more());
+        assertArrayEquals(new long[] {8, 6, 4, 2, 0}, last.positions());
+        assertFalse(last.more());
+    }
+
+    @Test
+    void stream_ShouldSearchInBatchesUntilConsumed() {
+        // Arrange
+        DescriptionIndex index = new DescriptionIndex();
+        for (int i = 0; i < 1000; i++) {
+            index.add(0, i, i % 3 == 0 ? "Card payment" : "Card refund");
+        }
+
+        // Act
+        DescriptionIndex.Hits first = index.search(List.of("payment", "card"), true, Long.MAX_VALUE, 5);
+        List<Long> all = index.stream(List.of("payment", "refund"), false, 500)
+                .map(DescriptionIndex.Hit::position)
+                .toList();
+
+        // Assert
+        assertArrayEquals(new long[] {999, 996, 993, 990, 987}, first.positions());
+        assertTrue(first.more());
+        assertEquals(LongStream.range(0, 500).map(i -> 499 - i).boxed().toList(), all);
+        assertFalse(index.search(List.of("payment"), true, 3, 5).more());
+    }
+
+    @Test
+    void search_WithConcurrentWriters_ShouldFindEveryLiveDocument() {
+        // Arrange
+        DescriptionIndex index = new DescriptionIndex();
+
+        // Act
+        IntStream.range(0, 20_000).parallel().forEach(i -> {
+            index.add(i % 7, i, "Payment " + (i % 2 == 0 ? "even" : "odd"));
+            if (i % 4 == 0) {
+                index.remove(i % 7, i);
+            }
+        });
+
+        // Assert
+        assertEquals(5_000, index.search(List.of("even"), true, Long.MAX_VALUE, Integer.MAX_VALUE).positions().length);
+        assertEquals(15_000,
+                index.search(List.of("payment"), true, Long.MAX_VALUE, Integer.MAX_VALUE).positions().length);
+    }
+}
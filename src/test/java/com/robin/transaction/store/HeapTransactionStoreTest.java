@@ -0,0 +1,9 @@
+package com.robin.transaction.store;
+
+class HeapTransactionStoreTest extends TransactionStoreContractTest {
+
+    @Override
+    protected TransactionStore createStore() {
+        return new HeapTransactionStore();
+    }
+}
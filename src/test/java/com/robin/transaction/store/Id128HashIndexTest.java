@@ -0,0 +1,56 @@
+package com.robin.transaction.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Id128HashIndexTest {
+
+    @Test
+    void compute_ShouldInsertReplaceAndRemove() {
+        // Arrange
+        Id128HashIndex<String> index = new Id128HashIndex<>(1);
+
+        // Act
+        index.compute(1, 2, current -> "first");
+        index.compute(1, 2, current -> current + "-updated");
+        index.compute(3, 4, current -> "second");
+        index.compute(3, 4, current -> null);
+
+        // Assert
+        assertEquals("first-updated", index.get(1, 2));
+        assertNull(index.get(3, 4));
+        assertNull(index.get(2, 1));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void compute_ShouldMatchReferenceMapThroughResizesAndRemovals() {
+        // Arrange
+        Id128HashIndex<Long> index = new Id128HashIndex<>(2);
+        Map<Long, Long> reference = new HashMap<>();
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(5_000);
+            if (random.nextBoolean()) {
+                index.compute(key, ~key, current -> key);
+                reference.put(key, key);
+            } else {
+                index.compute(key, ~key, current -> null);
+                reference.remove(key);
+            }
+        }
+
+        // Assert
+        assertEquals(reference.size(), index.size());
+        for (long key = 0; key < 5_000; key++) {
+            assertEquals(reference.get(key), index.get(key, ~key));
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournaledTransactionStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopen_ShouldReplayCreateUpdateAndDelete() throws Exception {
+        // Arrange
+        Transaction kept = new Transaction("12345678", new BigDecimal("100.50"), "CREDIT", "Salary");
+        Transaction deleted = new Transaction("87654321", new BigDecimal("20"), "DEBIT", null);
+        try (JournaledTransactionStore store = open(new HeapTransactionStore())) {
+            store.put(kept);
+            store.put(deleted);
+            kept.setAmount(new BigDecimal("101.00"));
+            store.replace(kept.getId(), store.get(kept.getId()), kept);
+            store.remove(deleted.getId());
+        }
+
+        // Act
+        try (JournaledTransactionStore reopened = open(new HeapTransactionStore())) {
+
+            // Assert
+            assertEquals(1, reopened.count());
+            assertEquals(kept, reopened.get(kept.getId()));
+            assertNull(reopened.get(deleted.getId()));
+        }
+    }
+
+    @Test
+    void putAllIfAbsent_ShouldLogStoredTransactionsOnly() throws Exception {
+        // Arrange
+        List<Transaction> batch = List.of(
+                new Transaction("12345678", new BigDecimal("10.00"), "CREDIT", "First"),
+                new Transaction("12345678", new BigDecimal("10.00"), "CREDIT", "Duplicate"),
+                new Transaction("87654321", new BigDecimal("20.00"), "DEBIT", "Second"));
+        try (JournaledTransactionStore store = open(new HeapTransactionStore())) {
+
+            // Act
+            boolean[] stored = store.putAllIfAbsent(batch);
+
+            // Assert
+            assertArrayEquals(new boolean[]{true, false, true}, stored);
+        }
+        try (JournaledTransactionStore reopened = open(new HeapTransactionStore())) {
+            assertEquals(2, reopened.count());
+            assertNull(reopened.get(batch.get(1).getId()));
+        }
+    }
+
+    @Test
+    void reopen_ShouldTruncateTornTail() throws Exception {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.50"), "CREDIT", "Salary");
+        try (JournaledTransactionStore store = open(new OffHeapTransactionStore(4, 64))) {
+            store.put(transaction);
+        }
+        Path segment = segment();
+        long validBytes = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 42, 1, 2}));
+        }
+
+        // Act
+        try (JournaledTransactionStore reopened = open(new OffHeapTransactionStore(4, 64))) {
+
+            // Assert
+            assertEquals(transaction, reopened.get(transaction.getId()));
+            assertEquals(validBytes, Files.size(segment));
+        }
+    }
+
+    @Test
+    void reopen_WithCorruptFrameBeforeTail_ShouldFail() throws Exception {
+        // Arrange
+        try (JournaledTransactionStore store = open(new HeapTransactionStore())) {
+            store.put(new Transaction("12345678", new BigDecimal("100.50"), "CREDIT", "First"));
+            store.put(new Transaction("87654321", new BigDecimal("20"), "DEBIT", "Second"));
+        }
+        Path segment = segment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), WalRecord.HEADER_BYTES + 1);
+        }
+        long bytes = Files.size(segment);
+
+        // Act & Assert
+        assertThrows(UncheckedIOException.class, () -> open(new HeapTransactionStore()));
+        assertEquals(bytes, Files.size(segment));
+    }
+
+    @Test
+    void reopen_WithTornTailInEarlierSegment_ShouldFail() throws Exception {
+        // Arrange
+        try (JournaledTransactionStore store = open(new HeapTransactionStore())) {
+            store.put(new Transaction("12345678", new BigDecimal("100.50"), "CREDIT", "First"));
+        }
+        Path segment = segment();
+        Files.copy(segment, directory.resolve("wal-0000000000000000001.log"));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 42, 1, 2}));
+        }
+
+        // Act & Assert
+        assertThrows(UncheckedIOException.class, () -> open(new HeapTransactionStore()));
+    }
+
+    @Test
+    void put_ShouldApplyChangeOnlyOnceLogged() throws Exception {
+        // Arrange: the wrapped store records the log size when each change reaches it
+        List<Long> logBytes = new ArrayList<>();
+        HeapTransactionStore delegate = new HeapTransactionStore() {
+            @Override
+            public Transaction put(Transaction transaction) {
+                try {
+                    logBytes.add(Files.size(segment()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return super.put(transaction);
+            }
+        };
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.50"), "CREDIT", "Salary");
+
+        // Act
+        try (JournaledTransactionStore store = open(delegate)) {
+            store.put(transaction);
+        }
+
+        // Assert
+        assertEquals(List.of(Files.size(segment())), logBytes);
+    }
+
+    @Test
+    void writes_WhenStoreRejectsLoggedChange_ShouldNotReplayIt() throws Exception {
+        // Arrange
+        Transaction kept = new Transaction("12345678", new BigDecimal("100.50"), "CREDIT", "Salary");
+        Transaction refund = new Transaction("12345678", new BigDecimal("10.00"), "REFUND", "Refund");
+        Transaction duplicate = new Transaction("12345678", new BigDecimal("100.50"), "CREDIT", "Salary");
+        duplicate.setTimestamp(kept.getTimestamp());
+        try (JournaledTransactionStore store = open(new OffHeapTransactionStore(4, 64))) {
+            store.put(kept);
+
+            // Act
+            assertThrows(IllegalArgumentException.class, () -> store.put(refund));
+            assertFalse(store.putIfAbsent(duplicate));
+            assertThrows(IllegalArgumentException.class, () -> store.replace(kept.getId(), kept,
+                    new Transaction(kept.getId(), "12345678", new BigDecimal("1.00"), "REFUND", null,
+                            kept.getTimestamp())));
+        }
+
+        // Assert
+        try (JournaledTransactionStore reopened = open(new OffHeapTransactionStore(4, 64))) {
+            assertEquals(1, reopened.count());
+            assertEquals(kept, reopened.get(kept.getId()));
+            assertNull(reopened.get(refund.getId()));
+            assertNull(reopened.get(duplicate.getId()));
+        }
+    }
+
+    @Test
+    void concurrentPuts_ShouldAllBeDurable() throws Exception {
+        // Arrange
+        List<Transaction> transactions = Stream.generate(
+                        () -> new Transaction("12345678", new BigDecimal("1.00"), "CREDIT", null))
+                .limit(200)
+                .toList();
+
+        // Act
+        try (JournaledTransactionStore store = open(new HeapTransactionStore())) {
+            transactions.parallelStream().forEach(store::put);
+        }
+
+        // Assert
+        try (JournaledTransactionStore reopened = open(new HeapTransactionStore())) {
+            assertEquals(transactions.size(), reopened.count());
+            transactions.forEach(transaction -> assertEquals(transaction, reopened.get(transaction.getId())));
+        }
+    }
+
+    @Test
+    void snapshot_ShouldReplaceOlderSegmentsAndRecoverWithTail() throws Exception {
+        // Arrange
+        Transaction snapshotted = new Transaction("12345678", new BigDecimal("100.50"), "CREDIT", "Salary");
+        Transaction tail = new Transaction("87654321", new BigDecimal("20"), "DEBIT", null);
+        try (JournaledTransactionStore store = open(new HeapTransactionStore())) {
+            store.put(snapshotted);
+
+            // Act
+            long rows = store.snapshot();
+            store.put(tail);
+            store.remove(snapshotted.getId());
+
+            // Assert
+            assertEquals(1, rows);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("snapshot-0000000000000000001.snap", "wal-0000000000000000001.log"),
+                    files.map(path -> path.getFileName().toString()).sorted().toList());
+        }
+        try (JournaledTransactionStore reopened = open(new OffHeapTransactionStore(4, 64))) {
+            assertEquals(1, reopened.count());
+            assertNull(reopened.get(snapshotted.getId()));
+            assertEquals(tail, reopened.get(tail.getId()));
+        }
+    }
+
+    @Test
+    void snapshot_WhileWriting_ShouldRecoverEveryWrite() throws Exception {
+        // Arrange
+        List<Transaction> transactions = Stream.generate(
+                        () -> new Transaction("12345678", new BigDecimal("1.00"), "CREDIT", null))
+                .limit(2000)
+                .toList();
+
+        // Act
+        try (JournaledTransactionStore store = open(new HeapTransactionStore())) {
+            CompletableFuture<Void> writers = CompletableFuture.runAsync(
+                    () -> transactions.parallelStream().forEach(store::put));
+            while (!writers.isDone()) {
+                store.snapshot();
+            }
+            writers.join();
+        }
+
+        // Assert
+        try (JournaledTransactionStore reopened = open(new HeapTransactionStore())) {
+            assertEquals(transactions.size(), reopened.count());
+            transactions.forEach(transaction -> assertEquals(transaction, reopened.get(transaction.getId())));
+        }
+    }
+
+    @Test
+    void writes_WhenLogRejectsRecords_ShouldLeaveStoreUnchanged() throws Exception {
+        // Arrange: a closed log rejects every record
+        HeapTransactionStore delegate = new HeapTransactionStore();
+        Transaction kept = new Transaction("12345678", new BigDecimal("100.50"), "CREDIT", "Salary");
+        Transaction update = new Transaction("12345678", new BigDecimal("200.00"), "DEBIT", "Updated");
+        update.setId(kept.getId());
+        Transaction added = new Transaction("87654321", new BigDecimal("20"), "DEBIT", null);
+        JournaledTransactionStore store = open(delegate);
+        store.put(kept);
+        store.close();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> store.put(update));
+        assertThrows(IllegalStateException.class, () -> store.put(added));
+        assertThrows(IllegalStateException.class, () -> store.putIfAbsent(added));
+        assertThrows(IllegalStateException.class, () -> store.putAllIfAbsent(List.of(added)));
+        assertThrows(IllegalStateException.class, () -> store.replace(kept.getId(), kept, update));
+        assertThrows(IllegalStateException.class, () -> store.remove(kept.getId()));
+        assertEquals(1, delegate.count());
+        assertEquals(kept, delegate.get(kept.getId()));
+        assertNull(delegate.get(added.getId()));
+        assertEquals(1, delegate.scanAccount("12345678", null).count());
+    }
+
+    private JournaledTransactionStore open(TransactionStore delegate) {
+        return new JournaledTransactionStore(delegate, directory, Duration.ofMillis(1), 64);
+    }
+
+    private Path segment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+}
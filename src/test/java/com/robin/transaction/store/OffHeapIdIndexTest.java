@@ -0,0 +1,56 @@
+package com.robin.transaction.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapIdIndexTest {
+
+    @Test
+    void compute_ShouldInsertReplaceAndRemove() {
+        // Arrange
+        OffHeapIdIndex index = new OffHeapIdIndex(1);
+
+        // Act
+        index.compute(1, 2, current -> 0);
+        index.compute(1, 2, current -> current + 7);
+        index.compute(3, 4, current -> 9);
+        index.compute(3, 4, current -> OffHeapIdIndex.ABSENT);
+
+        // Assert
+        assertEquals(7, index.get(1, 2));
+        assertEquals(OffHeapIdIndex.ABSENT, index.get(3, 4));
+        assertEquals(OffHeapIdIndex.ABSENT, index.get(2, 1));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void compute_ShouldMatchReferenceMapThroughResizesAndRemovals() {
+        // Arrange
+        OffHeapIdIndex index = new OffHeapIdIndex(2);
+        Map<Long, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(5_000);
+            if (random.nextBoolean()) {
+                index.compute(key, ~key, current -> (int) key);
+                reference.put(key, (int) key);
+            } else {
+                index.compute(key, ~key, current -> OffHeapIdIndex.ABSENT);
+                reference.remove(key);
+            }
+        }
+
+        // Assert
+        assertEquals(reference.size(), index.size());
+        for (long key = 0; key < 5_000; key++) {
+            assertEquals((int) reference.getOrDefault(key, OffHeapIdIndex.ABSENT), index.get(key, ~key));
+        }
+    }
+}
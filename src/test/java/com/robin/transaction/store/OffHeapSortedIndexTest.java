@@ -0,0 +1,62 @@
+package com.robin.transaction.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapSortedIndexTest {
+
+    @Test
+    void range_ShouldMergeRunsAndPendingEntriesInOrder() {
+        // Arrange
+        OffHeapSortedIndex index = new OffHeapSortedIndex(4, (row, version) -> true, () -> Long.MAX_VALUE);
+        List<OffHeapSortedIndex.Entry> added = new ArrayList<>();
+
+        // Act
+        for (int row = 0; row < 50; row++) {
+            OffHeapSortedIndex.Entry entry = new OffHeapSortedIndex.Entry(row % 3, row * 7 % 11, 0, 0, row, row, 2);
+            index.add(entry);
+            index.flushIfFull();
+            added.add(entry);
+        }
+
+        // Assert
+        added.sort(Comparator.naturalOrder());
+        assertEquals(added, index.range(null, null).toList());
+        assertEquals(added.stream().filter(entry -> entry.major() == 1).toList(),
+                index.range(OffHeapSortedIndex.Entry.first(1), OffHeapSortedIndex.Entry.first(2)).toList());
+        assertEquals(added.stream().filter(entry -> entry.major() == 2).toList(),
+                index.range(OffHeapSortedIndex.Entry.first(2), OffHeapSortedIndex.Entry.last(2)).toList());
+    }
+
+    @Test
+    void flushIfFull_ShouldDropDeadEntriesAndKeepLiveOnes() {
+        // Arrange: each row is rewritten many times, and only its latest version is live
+        Map<Integer, Integer> versions = new HashMap<>();
+        OffHeapSortedIndex index = new OffHeapSortedIndex(8,
+                (row, version) -> versions.get(row) == version, () -> versions.size());
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            int row = random.nextInt(20);
+            int version = versions.merge(row, 2, Integer::sum);
+            index.add(new OffHeapSortedIndex.Entry(0, random.nextInt(100), 0, 0, row, row, version));
+            index.flushIfFull();
+        }
+
+        // Assert
+        List<OffHeapSortedIndex.Entry> entries = index.range(null, null).toList();
+        assertTrue(entries.size() <= 3 * versions.size() + 16, "entries: " + entries.size());
+        assertEquals(versions.size(), entries.stream()
+                .filter(entry -> versions.get(entry.row()) == entry.version())
+                .count());
+    }
+}
@@ -0,0 +1,123 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTransactionStoreTest extends TransactionStoreContractTest {
+
+    @Override
+    protected TransactionStore createStore() {
+        // Small chunks and few pending index entries so the tests cross chunk boundaries and index runs
+        return new OffHeapTransactionStore(4, 64, DedupIndex.DEFAULT_WINDOW, DedupIndex.DEFAULT_BUCKETS,
+                DedupIndex.DEFAULT_EXPECTED_KEYS, DedupIndex.DEFAULT_FILTER_BYTES, DedupIndex.DEFAULT_FILTER_FPP, 4);
+    }
+
+    @Test
+    void remove_ShouldRecycleRowWithoutExposingOldData() {
+        // Arrange
+        Transaction removed = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Removed");
+        store.put(removed);
+
+        // Act
+        store.remove(removed.getId());
+        Transaction added = new Transaction("12345678", new BigDecimal("300.00"), "DEBIT", "Added");
+        store.put(added);
+
+        // Assert
+        assertNull(store.get(removed.getId()));
+        assertEquals(added, store.get(added.getId()));
+        assertEquals(1, store.scan(null).count());
+    }
+
+    @Test
+    void putIfAbsent_WhenRejected_ShouldNotTakeArenaSpace() {
+        // Arrange: every description fills a whole arena chunk, and the arena holds 65536 chunks
+        String description = "x".repeat(64);
+        store.put(new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", description));
+
+        // Act
+        for (int i = 0; i < 1 << 16; i++) {
+            assertFalse(store.putIfAbsent(new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", description)));
+        }
+        Transaction added = new Transaction("12345678", new BigDecimal("300.00"), "DEBIT", description);
+
+        // Assert
+        assertTrue(store.putIfAbsent(added));
+        assertEquals(added, store.get(added.getId()));
+        assertEquals(2, store.count());
+    }
+
+    @Test
+    void put_WhenReplacingDescriptions_ShouldReuseArenaSpace() {
+        // Arrange: every description fills a whole arena chunk, and the arena holds 65536 chunks
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "x".repeat(64));
+        store.put(transaction);
+        Transaction replacement = transaction;
+
+        // Act
+        for (int i = 0; i < 1 << 16; i++) {
+            replacement = new Transaction(transaction.getId(), "12345678", new BigDecimal(i), "CREDIT",
+                    String.format("%064d", i), transaction.getTimestamp());
+            store.put(replacement);
+        }
+
+        // Assert
+        assertEquals(replacement, store.get(transaction.getId()));
+        assertEquals(1, store.count());
+    }
+
+    @Test
+    void putIfAbsent_WhenRejected_ShouldNotRegisterAccount() {
+        // Arrange
+        OffHeapTransactionStore offHeapStore = (OffHeapTransactionStore) store;
+        Transaction stored = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Stored");
+        store.put(stored);
+
+        // Act
+        assertFalse(store.putIfAbsent(new Transaction(stored.getId(), "87654321", new BigDecimal("100.00"),
+                "CREDIT", "Same id", stored.getTimestamp())));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.put(new Transaction("11111111", new BigDecimal("100.00"), "REFUND", "Bad type")));
+
+        // Assert
+        assertEquals(1, offHeapStore.accountCount());
+        assertEquals(0, store.countAccount("87654321"));
+        assertEquals(0, store.scanAccount("11111111", null).count());
+    }
+
+    @Test
+    void scan_AfterManyReplacements_ShouldReturnOnlyCurrentRows() {
+        // Arrange
+        Transaction first = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "First");
+        Transaction second = new Transaction("87654321", new BigDecimal("200.00"), "DEBIT", "Second");
+        store.put(first);
+        store.put(second);
+
+        // Act: each replacement leaves dead index entries behind
+        for (int i = 1; i <= 100; i++) {
+            store.put(new Transaction(first.getId(), "12345678", new BigDecimal(i), "CREDIT", "First",
+                    first.getTimestamp()));
+        }
+
+        // Assert
+        assertEquals(2, store.scan(null).count());
+        assertEquals(1, store.scanAccount("12345678", null).count());
+        assertEquals(new BigDecimal(100), store.get(first.getId()).getAmount());
+        assertEquals(1, store.scanAmount(1_000_000, 1_000_000).count());
+        assertEquals(0, store.scanAmount(10_000, 999_999).count());
+    }
+
+    @Test
+    void put_WithUnknownType_ShouldThrowException() {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.00"), "REFUND", "Test transaction");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> store.put(transaction));
+        assertEquals(0, store.count());
+    }
+}
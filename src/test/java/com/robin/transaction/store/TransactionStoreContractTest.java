@@ -0,0 +1,318 @@
+package com.robin.transaction.store;
+
+import com.robin.transaction.model.DescriptionMatch;
+import com.robin.transaction.model.Transaction;
+import com.robin.transaction.model.TransactionOrderKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link TransactionStore} implementation must provide.
+ * Implementations are tested by extending this class.
+ */
+abstract class TransactionStoreContractTest {
+
+    protected TransactionStore store;
+
+    protected abstract TransactionStore createStore();
+
+    @BeforeEach
+    void setUpStore() {
+        store = createStore();
+    }
+
+    @Test
+    void put_ShouldRoundTripAllFields() {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.50"), "CREDIT", "Café refund");
+
+        // Act
+        store.put(transaction);
+        Transaction stored = store.get(transaction.getId());
+
+        // Assert
+        assertNotSame(transaction, stored);
+        assertEquals(transaction, stored);
+    }
+
+    @Test
+    void putIfAbsent_WithDuplicateDedupKey_ShouldNotStore() {
+        // Arrange
+        Transaction original = new Transaction("12345678", new BigDecimal("10"), "CREDIT", "Original");
+        Transaction duplicate = new Transaction("12345678", new BigDecimal("10.00"), "CREDIT", "Duplicate");
+
+        // Act
+        boolean originalStored = store.putIfAbsent(original);
+        boolean duplicateStored = store.putIfAbsent(duplicate);
+
+        // Assert
+        assertTrue(originalStored);
+        assertFalse(duplicateStored);
+        assertNull(store.get(duplicate.getId()));
+        assertEquals(1, store.count());
+    }
+
+    @Test
+    void putIfAbsent_WithExistingId_ShouldNotReplace() {
+        // Arrange
+        Transaction original = new Transaction("12345678", new BigDecimal("10"), "CREDIT", "Original");
+        Transaction sameKey = new Transaction("12345678", new BigDecimal("10"), "CREDIT", "Same key");
+        sameKey.setId(original.getId());
+        Transaction otherKey = new Transaction("87654321", new BigDecimal("20"), "DEBIT", "Other key");
+        otherKey.setId(original.getId());
+        store.putIfAbsent(original);
+
+        // Act
+        boolean sameKeyStored = store.putIfAbsent(sameKey);
+        boolean otherKeyStored = store.putIfAbsent(otherKey);
+
+        // Assert
+        assertFalse(sameKeyStored);
+        assertFalse(otherKeyStored);
+        assertEquals(original, store.get(original.getId()));
+        assertEquals(0, store.scanAccount("87654321", null).count());
+        assertEquals(1, store.count());
+    }
+
+    @Test
+    void putIfAbsent_WithConcurrentDuplicates_ShouldStoreExactlyOne() {
+        // Arrange
+        List<Transaction> duplicates = IntStream.range(0, 64)
+                .mapToObj(i -> new Transaction("12345678", new BigDecimal("10.00"), "CREDIT", "Duplicate " + i))
+                .toList();
+
+        // Act
+        long stored = duplicates.parallelStream().filter(store::putIfAbsent).count();
+
+        // Assert
+        assertEquals(1, stored);
+        assertEquals(1, store.count());
+        assertEquals(1, store.countAccount("12345678"));
+    }
+
+    @Test
+    void putIfAbsent_AfterDuplicateRemoved_ShouldStore() {
+        // Arrange
+        Transaction original = new Transaction("12345678", new BigDecimal("10.00"), "CREDIT", "Original");
+        store.putIfAbsent(original);
+        store.remove(original.getId());
+        Transaction again = new Transaction("12345678", new BigDecimal("10.00"), "CREDIT", "Again");
+
+        // Act & Assert
+        assertTrue(store.putIfAbsent(again));
+        assertEquals(again, store.get(again.getId()));
+    }
+
+    @Test
+    void putIfAbsent_WithDuplicateOutsideWindow_ShouldStore() {
+        // Arrange
+        Transaction lastMonth = new Transaction("12345678", new BigDecimal("10.00"), "CREDIT", "Last month");
+        lastMonth.setTimestamp(LocalDateTime.now().minusMonths(1));
+        store.putIfAbsent(lastMonth);
+        Transaction today = new Transaction("12345678", new BigDecimal("10.00"), "CREDIT", "Today");
+
+        // Act & Assert
+        assertTrue(store.putIfAbsent(today));
+        assertEquals(2, store.count());
+    }
+
+    @Test
+    void putIfAbsent_WithDifferentTypeOrAccount_ShouldStore() {
+        // Arrange
+        store.putIfAbsent(new Transaction("12345678", new BigDecimal("10.00"), "CREDIT", "Original"));
+
+        // Act & Assert
+        assertTrue(store.putIfAbsent(new Transaction("12345678", new BigDecimal("10.00"), "DEBIT", "Other type")));
+        assertTrue(store.putIfAbsent(new Transaction("87654321", new BigDecimal("10.00"), "CREDIT", "Other account")));
+        assertEquals(3, store.count());
+    }
+
+    @Test
+    void replace_ShouldMoveTransactionBetweenAccountsAndReleaseDedupKey() {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Test transaction");
+        store.putIfAbsent(transaction);
+        Transaction update = new Transaction("87654321", new BigDecimal("200.00"), "DEBIT", "Updated transaction");
+        update.setId(transaction.getId());
+
+        // Act
+        boolean replaced = store.replace(transaction.getId(), store.get(transaction.getId()), update);
+
+        // Assert
+        assertTrue(replaced);
+        assertEquals(update, store.get(transaction.getId()));
+        assertEquals(0, store.countAccount("12345678"));
+        assertEquals(1, store.countAccount("87654321"));
+        assertEquals(1, store.count());
+        assertTrue(store.putIfAbsent(new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Reused key")));
+        assertFalse(store.putIfAbsent(new Transaction("87654321", new BigDecimal("200.00"), "DEBIT", "Taken key")));
+    }
+
+    @Test
+    void replace_WithStaleExpectedValue_ShouldNotReplace() {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Test transaction");
+        store.put(transaction);
+        Transaction stale = store.get(transaction.getId());
+        Transaction first = new Transaction(transaction.getId(), "12345678", new BigDecimal("150.00"), "CREDIT",
+                "First update", transaction.getTimestamp());
+        Transaction second = new Transaction(transaction.getId(), "12345678", new BigDecimal("175.00"), "CREDIT",
+                "Second update", transaction.getTimestamp());
+        store.replace(transaction.getId(), stale, first);
+
+        // Act
+        boolean replaced = store.replace(transaction.getId(), stale, second);
+
+        // Assert
+        assertFalse(replaced);
+        assertEquals(first, store.get(transaction.getId()));
+    }
+
+    @Test
+    void replace_WithUnknownId_ShouldNotStore() {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Test transaction");
+
+        // Act & Assert
+        assertFalse(store.replace(transaction.getId(), transaction, transaction));
+        assertFalse(store.replace("not-a-uuid", transaction, transaction));
+        assertEquals(0, store.count());
+    }
+
+    @Test
+    void remove_ShouldReturnRemovedTransaction() {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Test transaction");
+        store.put(transaction);
+
+        // Act
+        Transaction removed = store.remove(transaction.getId());
+
+        // Assert
+        assertEquals(transaction, removed);
+        assertNull(store.get(transaction.getId()));
+        assertNull(store.remove(transaction.getId()));
+        assertEquals(0, store.count());
+        assertEquals(0, store.countAccount("12345678"));
+    }
+
+    @Test
+    void scan_ShouldReturnMostRecentFirstAndResumeAfterKey() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 10; i++) {
+            Transaction transaction = new Transaction("12345678", new BigDecimal(i), "DEBIT", "Transaction " + i);
+            transaction.setTimestamp(now.minusSeconds(i));
+            store.put(transaction);
+        }
+
+        // Act
+        List<Transaction> first = store.scan(null).limit(4).toList();
+        List<Transaction> next = store.scan(TransactionOrderKey.of(first.get(3))).toList();
+
+        // Assert
+        assertEquals(now, first.get(0).getTimestamp());
+        assertEquals(6, next.size());
+        assertEquals(now.minusSeconds(4), next.get(0).getTimestamp());
+        assertEquals(10, store.scanAccount("12345678", null).count());
+    }
+
+    @Test
+    void scanAmount_ShouldReturnRangeByAmountThenMostRecentFirst() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 10; i++) {
+            Transaction transaction = new Transaction("12345678", new BigDecimal(i % 5 + ".50"), "DEBIT", "Transaction " + i);
+            transaction.setTimestamp(now.minusSeconds(i));
+            store.put(transaction);
+        }
+        Transaction moved = store.scan(null).findFirst().orElseThrow();
+        Transaction replacement = new Transaction(moved.getId(), moved.getAccountNumber(), new BigDecimal("100.00"),
+                moved.getType(), moved.getDescription(), moved.getTimestamp());
+        store.replace(moved.getId(), moved, replacement);
+
+        // Act
+        List<Transaction> range = store.scanAmount(1_5000, 3_5000).toList();
+
+        // Assert
+        assertEquals(List.of("1.50", "1.50", "2.50", "2.50", "3.50", "3.50"),
+                range.stream().map(t -> t.getAmount().toPlainString()).toList());
+        assertEquals(now.minusSeconds(1), range.get(0).getTimestamp());
+        assertEquals(now.minusSeconds(6), range.get(1).getTimestamp());
+        assertEquals(List.of(replacement), store.scanAmount(1_000_000, Long.MAX_VALUE).toList());
+        assertEquals(1, store.scanAmount(5000, 5000).count());
+        assertEquals(0, store.scanAmount(3_5000, 1_5000).count());
+    }
+
+    @Test
+    void searchDescriptions_ShouldFollowUpdatesAndRemovals() {
+        // Arrange
+        Transaction refund = new Transaction("12345678", new BigDecimal("10.00"), "CREDIT", "Refund from Amazon");
+        Transaction purchase = new Transaction("12345678", new BigDecimal("20.00"), "DEBIT", "Amazon purchase");
+        Transaction coffee = new Transaction("12345678", new BigDecimal("3.00"), "DEBIT", "Coffee");
+        store.put(refund);
+        store.put(purchase);
+        store.put(coffee);
+
+        // Act
+        Transaction renamed = new Transaction(coffee.getId(), coffee.getAccountNumber(), coffee.getAmount(),
+                coffee.getType(), "Coffee refund", coffee.getTimestamp());
+        store.replace(coffee.getId(), coffee, renamed);
+        store.remove(purchase.getId());
+
+        // Assert
+        assertEquals(List.of(renamed, refund),
+                store.searchDescriptions("REFUND", true, Long.MAX_VALUE).map(DescriptionMatch::transaction).toList());
+        assertEquals(List.of(refund),
+                store.searchDescriptions("amazon refund", true, Long.MAX_VALUE).map(DescriptionMatch::transaction).toList());
+        long last = store.searchDescriptions("coffee amazon", false, Long.MAX_VALUE).findFirst().orElseThrow().position();
+        assertEquals(List.of(refund),
+                store.searchDescriptions("coffee amazon", false, last).map(DescriptionMatch::transaction).toList());
+        assertEquals(0, store.searchDescriptions("purchase", false, Long.MAX_VALUE).count());
+        assertEquals(2, store.descriptionIndexStats().transactions());
+    }
+
+    @Test
+    void put_WithNonUuidId_ShouldThrowException() {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Test transaction");
+        transaction.setId("not-a-uuid");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> store.put(transaction));
+        assertThrows(IllegalArgumentException.class, () -> store.putIfAbsent(transaction));
+        assertNull(store.get("not-a-uuid"));
+    }
+
+    @Test
+    void put_WithUppercaseId_ShouldThrowException() {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("100.00"), "CREDIT", "Test transaction");
+        String id = transaction.getId().toUpperCase();
+        transaction.setId(id);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> store.put(transaction));
+        assertThrows(IllegalArgumentException.class, () -> store.putIfAbsent(transaction));
+        assertNull(store.get(id));
+        assertEquals(0, store.count());
+    }
+
+    @Test
+    void put_WithAmountExceedingLong_ShouldThrowException() {
+        // Arrange
+        Transaction transaction = new Transaction("12345678", new BigDecimal("99999999999999999999.99"), "CREDIT", "Test");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> store.put(transaction));
+        assertThrows(IllegalArgumentException.class, () -> store.putIfAbsent(transaction));
+        assertEquals(0, store.count());
+    }
+}